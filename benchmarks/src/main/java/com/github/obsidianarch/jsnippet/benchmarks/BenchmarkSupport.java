@@ -0,0 +1,94 @@
+package com.github.obsidianarch.jsnippet.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+
+/**
+ * Shared setup for the benchmarks.
+ * 
+ * @author Austin
+ */
+final class BenchmarkSupport {
+
+    /** Swallows everything written to it. */
+    static final PrintStream NULL_STREAM = new PrintStream( new OutputStream() {
+
+        @Override
+        public void write( int b ) {
+        }
+
+        @Override
+        public void write( byte[] b, int off, int len ) {
+        }
+
+    } );
+
+    /**
+     * Points user.home at a fresh temporary directory, so JSnippet's files don't end up in the
+     * real ~/.jsnippet. Must be called before JSnippet is first used.
+     * 
+     * @throws IOException
+     *             If the directory couldn't be created.
+     */
+    static void isolateHome() throws IOException {
+        File home = Files.createTempDirectory( "jsnippet-bench" ).toFile();
+        home.deleteOnExit();
+        System.setProperty( "user.home", home.getAbsolutePath() );
+        System.setProperty( "java.awt.headless", "true" );
+    }
+
+    /**
+     * Creates the source of a class with the given number of methods.
+     * 
+     * @param className
+     *            The name of the class.
+     * @param methods
+     *            The number of methods besides main.
+     * @return The source code.
+     */
+    static String createSource( String className, int methods ) {
+        StringBuilder sb = new StringBuilder();
+        sb.append( "import java.util.*;\n\n" );
+        sb.append( "/** Generated for the benchmarks, the word class appears here first. */\n" );
+        sb.append( "public class " ).append( className ).append( " {\n\n" );
+
+        for ( int i = 0; i < methods; i++ ) {
+            sb.append( "    static int method" ).append( i ).append( "( List< Integer > values ) {\n" );
+            sb.append( "        int sum = 0;\n" );
+            sb.append( "        for ( int value : values ) sum += value * " ).append( i ).append( ";\n" );
+            sb.append( "        return sum;\n" );
+            sb.append( "    }\n\n" );
+        }
+
+        sb.append( "    public static void main( String[] args ) {\n" );
+        sb.append( "        System.out.println( \"Hello\" );\n" );
+        sb.append( "    }\n\n" );
+        sb.append( "}\n" );
+        return sb.toString();
+    }
+
+    /**
+     * Gets the number of methods for a size parameter.
+     * 
+     * @param size
+     *            small, medium or large.
+     * @return The number of methods.
+     */
+    static int methodsFor( String size ) {
+        switch ( size ) {
+            case "small":
+                return 1;
+            case "medium":
+                return 100;
+            default:
+                return 2000;
+        }
+    }
+
+    private BenchmarkSupport() {
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.github.obsidianarch.jsnippet.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.obsidianarch.jsnippet.JSnippet;
+
+/**
+ * Measures {@link JSnippet#getClassName(String)} for small, medium and large sources.
+ * 
+ * @author Austin
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class ClassNameBenchmark {
+
+    /** The size of the source. */
+    @Param( { "small", "medium", "large" } )
+    public String size;
+
+    /** The source to find the class name in. */
+    private String source;
+
+    @Setup
+    public void setup() throws Exception {
+        BenchmarkSupport.isolateHome();
+        source = BenchmarkSupport.createSource( "Generated", BenchmarkSupport.methodsFor( size ) );
+    }
+
+    /**
+     * @return The class name.
+     */
+    @Benchmark
+    public String getClassName() {
+        return JSnippet.getClassName( source );
+    }
+
+}
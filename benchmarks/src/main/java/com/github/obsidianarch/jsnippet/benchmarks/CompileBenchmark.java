@@ -0,0 +1,83 @@
+package com.github.obsidianarch.jsnippet.benchmarks;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.obsidianarch.jsnippet.JSnippet;
+
+/**
+ * Measures {@link JSnippet#compileSource(String, String)} for small, medium and large sources,
+ * both when the source has changed and when the build is cached.
+ * 
+ * @author Austin
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 5, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class CompileBenchmark {
+
+    /** The size of the source. */
+    @Param( { "small", "medium", "large" } )
+    public String       size;
+
+    /** If the build runs in memory, or through the disk. */
+    @Param( { "true", "false" } )
+    public boolean      inMemory;
+
+    /** The source being compiled. */
+    private String      source;
+
+    /** Makes every changed build's source unique. */
+    private long        revision;
+
+    /** The real System.out. */
+    private PrintStream out;
+
+    @Setup
+    public void setup() throws Exception {
+        BenchmarkSupport.isolateHome();
+        source = BenchmarkSupport.createSource( "Generated", BenchmarkSupport.methodsFor( size ) );
+        JSnippet.inMemoryBuild = inMemory;
+
+        out = System.out;
+        System.setOut( BenchmarkSupport.NULL_STREAM ); // compileSource reports to System.out
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut( out );
+    }
+
+    /**
+     * @return If the changed source compiled.
+     */
+    @Benchmark
+    public boolean changedSource() {
+        return JSnippet.compileSource( "Generated", source + "// " + revision++ );
+    }
+
+    /**
+     * @return If the unchanged source compiled.
+     */
+    @Benchmark
+    public boolean unchangedSource() {
+        return JSnippet.compileSource( "Generated", source );
+    }
+
+}
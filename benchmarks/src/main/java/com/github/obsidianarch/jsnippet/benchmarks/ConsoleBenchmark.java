@@ -0,0 +1,129 @@
+package com.github.obsidianarch.jsnippet.benchmarks;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.JTextPane;
+import javax.swing.SwingUtilities;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.wordpress.tips4java.MessageConsole;
+
+/**
+ * Measures how many lines per second a {@link MessageConsole} can take, from printing them
+ * to their being in the Document, at several line limits.
+ * 
+ * @author Austin
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( value = 1, jvmArgsAppend = "-Djava.awt.headless=true" )
+public class ConsoleBenchmark {
+
+    /** The lines printed per invocation. */
+    private static final int LINES = 10000;
+
+    /** The console's line limit. */
+    @Param( { "1000", "10000", "100000" } )
+    public int               lineLimit;
+
+    /** The console's text component. */
+    private JTextPane        textPane;
+
+    /** Prints into the console. */
+    private PrintStream      console;
+
+    /** The real System.out. */
+    private PrintStream      out;
+
+    /** The line printed last, which marks the end of an invocation. */
+    private String           lastLine;
+
+    /** Makes the last line of every invocation unique. */
+    private long             invocation;
+
+    @Setup
+    public void setup() {
+        textPane = new JTextPane();
+        MessageConsole messageConsole = new MessageConsole( textPane );
+        messageConsole.setMessageLines( lineLimit );
+
+        out = System.out;
+        messageConsole.redirectOut();
+        console = System.out;
+        System.setOut( out );
+    }
+
+    @TearDown
+    public void tearDown() {
+        console.close();
+    }
+
+    /**
+     * Prints the lines and waits until the last of them has reached the Document.
+     * 
+     * @throws Exception
+     *             If waiting on the Event Dispatch Thread failed.
+     */
+    @Benchmark
+    @OperationsPerInvocation( LINES )
+    public void appendLines() throws Exception {
+        for ( int i = 0; i < LINES; i++ ) {
+            console.println( "Output line number " + i );
+        }
+
+        lastLine = "End of invocation " + invocation++;
+        console.println( lastLine );
+
+        while ( !endsWithLastLine() ) {
+            Thread.sleep( 1 );
+        }
+    }
+
+    /**
+     * @return If the Document ends with the last line printed.
+     * @throws Exception
+     *             If waiting on the Event Dispatch Thread failed.
+     */
+    private boolean endsWithLastLine() throws Exception {
+        final boolean[] result = new boolean[ 1 ];
+
+        SwingUtilities.invokeAndWait( new Runnable() {
+
+            @Override
+            public void run() {
+                Document document = textPane.getDocument();
+                int length = lastLine.length();
+
+                try {
+                    result[ 0 ] = ( document.getLength() >= length ) && document.getText( document.getLength() - length, length ).equals( lastLine );
+                }
+                catch ( BadLocationException e ) {
+                    result[ 0 ] = false;
+                }
+            }
+
+        } );
+
+        return result[ 0 ];
+    }
+
+}
@@ -0,0 +1,121 @@
+package com.github.obsidianarch.jsnippet.benchmarks;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.obsidianarch.jsnippet.ExecutionService;
+import com.github.obsidianarch.jsnippet.MemoryFileManager;
+
+/**
+ * Measures {@link ExecutionService#startProcess(String, File)} from the call to the first byte
+ * of output, and to the process's exit, with and without the worker pool.
+ * 
+ * @author Austin
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.SingleShotTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 20 )
+@Fork( 1 )
+public class ExecutionBenchmark {
+
+    /** The number of pooled JVMs, 0 cold starts every execution. */
+    @Param( { "0", "1" } )
+    public int                     poolSize;
+
+    /** The directory with the compiled snippet. */
+    private File                   classDirectory;
+
+    /** The real System.out. */
+    private PrintStream            out;
+
+    /** Counted down when the first byte of output arrives. */
+    private volatile CountDownLatch firstByte;
+
+    @Setup
+    public void setup() throws Exception {
+        BenchmarkSupport.isolateHome();
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try ( MemoryFileManager fileManager = new MemoryFileManager( compiler.getStandardFileManager( null, null, null ) ) ) {
+            String source = BenchmarkSupport.createSource( "Hello", 0 );
+            compiler.getTask( null, fileManager, null, null, null, Collections.singletonList( MemoryFileManager.createSource( "Hello", source ) ) ).call();
+
+            classDirectory = Files.createTempDirectory( "jsnippet-bench-classes" ).toFile();
+            MemoryFileManager.writeClasses( fileManager.getClassBytes(), classDirectory );
+        }
+
+        ExecutionService.getWorkerPool().configure( poolSize, new ArrayList< String >(), TimeUnit.HOURS.toMillis( 1 ) );
+        ExecutionService.getResourceMonitor().setAttaching( false ); // the management agent would be timed with the child
+
+        // the output managers print the child's output to System.out
+        out = System.out;
+        System.setOut( new PrintStream( new OutputStream() {
+
+            @Override
+            public void write( int b ) {
+                firstByte.countDown();
+            }
+
+            @Override
+            public void write( byte[] b, int off, int len ) {
+                firstByte.countDown();
+            }
+
+        } ) );
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut( out );
+        ExecutionService.getWorkerPool().shutdown();
+        ExecutionService.getResourceMonitor().setAttaching( true );
+    }
+
+    /**
+     * @throws Exception
+     *             If the process couldn't be started.
+     */
+    @Benchmark
+    public void timeToFirstByte() throws Exception {
+        firstByte = new CountDownLatch( 1 );
+        Process process = ExecutionService.startProcess( "Hello", classDirectory );
+        firstByte.await();
+        process.waitFor();
+    }
+
+    /**
+     * @return The exit code.
+     * @throws Exception
+     *             If the process couldn't be started.
+     */
+    @Benchmark
+    public int timeToExit() throws Exception {
+        firstByte = new CountDownLatch( 1 );
+        return ExecutionService.startProcess( "Hello", classDirectory ).waitFor();
+    }
+
+}
@@ -0,0 +1,241 @@
+package com.github.obsidianarch.jsnippet;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the static methods of an actions class, named by the action command of the event, off
+ * of the Event Dispatch Thread. Each method is looked up once and kept as a MethodHandle, and
+ * every action runs on a shared executor, using virtual threads where the JVM has them.
+ * <p>
+ * Actions in the same lane run one at a time, in order, and an action that's already waiting
+ * in its lane isn't queued a second time, so holding down a key can't pile up threads.
+ *
+ * @author Austin
+ */
+public class ActionDispatcher implements ActionListener {
+
+    //
+    // Fields
+    //
+
+    /** Runs the actions of every dispatcher. */
+    private static final ExecutorService      executor = createExecutor();
+
+    /** The class which contains the action methods. */
+    private final Class< ? >                  actionClass;
+
+    /** Passed to the action methods which take a parameter. */
+    private final Object                      argument;
+
+    /** The resolved actions, by action command. */
+    private final Map< String, MethodHandle > handles  = new ConcurrentHashMap<>();
+
+    /** The lane of each action, by action command. */
+    private final Map< String, Lane >         lanes    = new ConcurrentHashMap<>();
+
+    //
+    // Constructors
+    //
+
+    /**
+     * Creates an ActionDispatcher for the methods of the class.
+     *
+     * @param actionClass
+     *            The class which contains the action methods.
+     * @param argument
+     *            Passed to the action methods which take a parameter.
+     */
+    public ActionDispatcher( Class< ? > actionClass, Object argument ) {
+        this.actionClass = actionClass;
+        this.argument = argument;
+    }
+
+    //
+    // Actions
+    //
+
+    /**
+     * Puts the actions into the same lane, so they never run at the same time. Every other
+     * action has a lane to itself.
+     *
+     * @param commands
+     *            The action commands.
+     */
+    public void serialize( String... commands ) {
+        Lane lane = new Lane();
+        for ( String command : commands ) {
+            lanes.put( command, lane );
+        }
+    }
+
+    /**
+     * Queues the action in its lane.
+     *
+     * @param command
+     *            The action command, which is the name of the method.
+     */
+    public void dispatch( String command ) {
+        Lane lane = lanes.get( command );
+
+        if ( lane == null ) {
+            Lane created = new Lane();
+            lane = lanes.putIfAbsent( command, created );
+            if ( lane == null ) lane = created;
+        }
+
+        lane.submit( command );
+    }
+
+    /**
+     * Runs the action on the current thread, any failure is shown to the user.
+     *
+     * @param command
+     *            The action command, which is the name of the method.
+     */
+    private void invoke( String command ) {
+        try {
+            MethodHandle handle = handles.get( command );
+            if ( handle == null ) {
+                handle = resolve( command );
+                handles.put( command, handle );
+            }
+
+            handle.invokeExact();
+        }
+        catch ( Throwable t ) {
+            JSnippet.showError( t, "Running " + command );
+        }
+    }
+
+    /**
+     * Finds the action method and adapts it to take and return nothing.
+     *
+     * @param command
+     *            The action command, which is the name of the method.
+     * @return The action's MethodHandle.
+     * @throws ReflectiveOperationException
+     *             If there isn't an accessible method of that name.
+     */
+    private MethodHandle resolve( String command ) throws ReflectiveOperationException {
+        for ( Method method : actionClass.getMethods() ) {
+            if ( !method.getName().equals( command ) ) continue;
+
+            MethodHandle handle = MethodHandles.publicLookup().unreflect( method );
+            if ( method.getParameterTypes().length == 1 ) {
+                handle = MethodHandles.insertArguments( handle, 0, argument );
+            }
+
+            return handle.asType( MethodType.methodType( void.class ) );
+        }
+
+        throw new NoSuchMethodException( actionClass.getName() + "." + command );
+    }
+
+    //
+    // Overrides
+    //
+
+    @Override
+    public void actionPerformed( ActionEvent e ) {
+        dispatch( e.getActionCommand() );
+    }
+
+    //
+    // Static
+    //
+
+    /**
+     * Creates the executor which runs the actions, with a virtual thread per action if this
+     * JVM supports them, otherwise with a pool of daemon threads.
+     *
+     * @return The executor.
+     */
+    private static ExecutorService createExecutor() {
+        try {
+            return ( ExecutorService ) Executors.class.getMethod( "newVirtualThreadPerTaskExecutor" ).invoke( null );
+        }
+        catch ( ReflectiveOperationException e ) {
+            // older JVM, use platform threads
+        }
+
+        return Executors.newCachedThreadPool( new ThreadFactory() {
+
+            /** The number of threads created so far. */
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread( Runnable r ) {
+                Thread thread = new Thread( r );
+                thread.setName( "Action Dispatcher " + count.incrementAndGet() );
+                thread.setDaemon( true );
+                return thread;
+            }
+
+        } );
+    }
+
+    //
+    // Nested Classes
+    //
+
+    /**
+     * Runs the actions submitted to it one at a time, in order.
+     *
+     * @author Austin
+     */
+    private class Lane implements Runnable {
+
+        /** The actions waiting to run. */
+        private final Deque< String > queue = new ArrayDeque<>();
+
+        /** If the lane currently has a task on the executor. */
+        private boolean               running;
+
+        /**
+         * Queues the action, unless it's already waiting.
+         *
+         * @param command
+         *            The action command.
+         */
+        public synchronized void submit( String command ) {
+            if ( queue.contains( command ) ) return;
+            queue.addLast( command );
+
+            if ( !running ) {
+                running = true;
+                executor.execute( this );
+            }
+        }
+
+        @Override
+        public void run() {
+            while ( true ) {
+                String command;
+                synchronized ( this ) {
+                    command = queue.pollFirst();
+                    if ( command == null ) {
+                        running = false;
+                        return;
+                    }
+                }
+
+                invoke( command );
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,352 @@
+package com.github.obsidianarch.jsnippet;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticListener;
+import javax.tools.JavaFileObject;
+
+import org.fife.ui.rsyntaxtextarea.RSyntaxDocument;
+import org.fife.ui.rsyntaxtextarea.RSyntaxTextArea;
+import org.fife.ui.rsyntaxtextarea.parser.AbstractParser;
+import org.fife.ui.rsyntaxtextarea.parser.DefaultParseResult;
+import org.fife.ui.rsyntaxtextarea.parser.DefaultParserNotice;
+import org.fife.ui.rsyntaxtextarea.parser.ParseResult;
+import org.fife.ui.rsyntaxtextarea.parser.ParserNotice;
+
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+
+/**
+ * Checks the source code for errors as it's typed, and shows them in the editor's gutter.
+ * Once the text has stopped changing for a moment it's parsed and attributed, without
+ * generating any classes, on a single low priority thread. Every edit makes the check in
+ * progress stale, and a stale check is abandoned at the compiler's next phase.
+ * <p>
+ * The Event Dispatch Thread only takes a copy of the text and hands back the finished
+ * notices, so typing never waits on the compiler.
+ *
+ * @author Austin
+ */
+public class BackgroundChecker extends AbstractParser implements DocumentListener {
+
+    //
+    // Fields
+    //
+
+    /** How long the text has to stop changing before it's checked, in milliseconds. */
+    private static final int                DEBOUNCE_DELAY = 500;
+
+    /** The text area being checked. */
+    private final RSyntaxTextArea           textArea;
+
+    /** Waits for the text to stop changing. */
+    private final Timer                     debounce;
+
+    /** Runs the checks, only ever one at a time. */
+    private final ExecutorService           executor;
+
+    /** Has its own file manager, so checks never wait on a build. */
+    private final CompilerSession           session        = new CompilerSession();
+
+    /** Counts the edits, a check is stale once this has moved past the edit it checked. */
+    private final AtomicLong                generation     = new AtomicLong();
+
+    /** The notices from the last check that finished, with the generation they're for. */
+    private volatile Notices                notices        = new Notices( -1, Collections.< ParserNotice > emptyList() );
+
+    //
+    // Constructors
+    //
+
+    /**
+     * Creates a BackgroundChecker for the text area, which checks the current text shortly
+     * and then follows every edit. It must also be added to the text area as a parser to show
+     * its notices.
+     *
+     * @param textArea
+     *            The text area.
+     */
+    public BackgroundChecker( RSyntaxTextArea textArea ) {
+        this.textArea = textArea;
+
+        debounce = new Timer( DEBOUNCE_DELAY, new ActionListener() {
+
+            @Override
+            public void actionPerformed( ActionEvent e ) {
+                submit();
+            }
+
+        } );
+        debounce.setRepeats( false );
+
+        // one thread, and a stale check still waiting is skipped as soon as it starts
+        executor = new ThreadPoolExecutor( 1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue< Runnable >(), new ThreadFactory() {
+
+            @Override
+            public Thread newThread( Runnable r ) {
+                Thread thread = new Thread( r );
+                thread.setName( "Background Checker" );
+                thread.setPriority( Thread.MIN_PRIORITY );
+                thread.setDaemon( true );
+                return thread;
+            }
+
+        } );
+
+        textArea.getDocument().addDocumentListener( this );
+        debounce.start();
+    }
+
+    //
+    // Actions
+    //
+
+    /**
+     * Takes a copy of the text and queues a check of it, called on the Event Dispatch Thread.
+     */
+    private void submit() {
+        if ( !isEnabled() ) return;
+
+        final String source = textArea.getText();
+        final long checked = generation.get();
+
+        executor.execute( new Runnable() {
+
+            @Override
+            public void run() {
+                check( source, checked );
+            }
+
+        } );
+    }
+
+    /**
+     * Checks the source code, and has the text area show the notices if the text hasn't
+     * changed since.
+     *
+     * @param source
+     *            The source code.
+     * @param checked
+     *            The generation of the text.
+     */
+    private void check( String source, final long checked ) {
+        if ( generation.get() != checked ) return;
+
+        String className = JSnippet.getClassName( source );
+        if ( className == null ) className = "Snippet"; // no class yet, the compiler will say so
+
+        final List< ParserNotice > found = new ArrayList<>();
+
+        DiagnosticListener< JavaFileObject > diagnostics = new DiagnosticListener< JavaFileObject >() {
+
+            @Override
+            public void report( Diagnostic< ? extends JavaFileObject > diagnostic ) {
+                found.add( createNotice( diagnostic ) );
+            }
+
+        };
+
+        TaskListener canceller = new TaskListener() {
+
+            @Override
+            public void started( TaskEvent e ) {
+                if ( generation.get() != checked ) throw new StaleCheckException();
+            }
+
+            @Override
+            public void finished( TaskEvent e ) {
+                // only checked when a phase starts
+            }
+
+        };
+
+        try {
+            CompilerSession build = JSnippet.getCompilerSession();
+            if ( JmhRunner.isBenchmark( source ) ) {
+                // checked against the JMH jars like it's built, but without running JMH's processor
+                List< String > options = new ArrayList<>( build.getOptions() );
+                options.add( "-proc:none" );
+                List< File > classpath = new ArrayList<>( build.getResolvedClasspath() );
+                classpath.addAll( JSnippet.jmhRunner.getLibraries() );
+                session.configure( options, classpath );
+            }
+            else {
+                session.configure( build.getOptions(), build.getClasspath() );
+            }
+            session.analyze( Collections.singletonList( MemoryFileManager.createSource( className, source ) ), diagnostics, canceller );
+        }
+        catch ( Exception e ) {
+            if ( generation.get() != checked ) return; // abandoned, the next check is coming
+
+            System.err.println( "Background check failed" );
+            e.printStackTrace();
+            return;
+        }
+
+        if ( generation.get() != checked ) return;
+        notices = new Notices( checked, found );
+
+        SwingUtilities.invokeLater( new Runnable() {
+
+            @Override
+            public void run() {
+                if ( generation.get() == checked ) textArea.forceReparsing( BackgroundChecker.this );
+            }
+
+        } );
+    }
+
+    /**
+     * Creates the gutter notice for the compiler's diagnostic.
+     *
+     * @param diagnostic
+     *            The diagnostic.
+     * @return The notice.
+     */
+    private ParserNotice createNotice( Diagnostic< ? extends JavaFileObject > diagnostic ) {
+        String message = diagnostic.getMessage( null );
+        int line = ( int ) Math.max( 0, diagnostic.getLineNumber() - 1 );
+
+        DefaultParserNotice notice;
+        if ( diagnostic.getStartPosition() == Diagnostic.NOPOS ) {
+            notice = new DefaultParserNotice( this, message, line );
+        }
+        else {
+            int start = ( int ) diagnostic.getStartPosition();
+            int length = ( int ) Math.max( 1, diagnostic.getEndPosition() - start );
+            notice = new DefaultParserNotice( this, message, line, start, length );
+        }
+
+        switch ( diagnostic.getKind() ) {
+            case ERROR:
+                notice.setLevel( ParserNotice.Level.ERROR );
+                break;
+            case WARNING:
+            case MANDATORY_WARNING:
+                notice.setLevel( ParserNotice.Level.WARNING );
+                break;
+            default:
+                notice.setLevel( ParserNotice.Level.INFO );
+        }
+
+        notice.setToolTipText( message );
+        return notice;
+    }
+
+    /**
+     * Stops checking, and lets the checking thread end.
+     */
+    public void shutdown() {
+        textArea.getDocument().removeDocumentListener( this );
+        debounce.stop();
+        generation.incrementAndGet();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Marks the text as changed, making any check in progress stale, and waits for it to stop
+     * changing.
+     */
+    private void changed() {
+        generation.incrementAndGet();
+        debounce.restart();
+    }
+
+    //
+    // Overrides
+    //
+
+    @Override
+    public ParseResult parse( RSyntaxDocument doc, String style ) {
+        DefaultParseResult result = new DefaultParseResult( this );
+
+        // the offsets are only right for the text that was checked, not for any edit since
+        Notices last = notices;
+        if ( last.generation != generation.get() ) return result;
+
+        for ( ParserNotice notice : last.notices ) {
+            result.addNotice( notice );
+        }
+        return result;
+    }
+
+    @Override
+    public void insertUpdate( DocumentEvent e ) {
+        changed();
+    }
+
+    @Override
+    public void removeUpdate( DocumentEvent e ) {
+        changed();
+    }
+
+    @Override
+    public void changedUpdate( DocumentEvent e ) {
+        // attribute changes don't change the source
+    }
+
+    //
+    // Nested Classes
+    //
+
+    /**
+     * The notices of a check, and the generation of the text they were found in.
+     *
+     * @author Austin
+     */
+    private static class Notices {
+
+        /** The generation of the text that was checked. */
+        private final long                 generation;
+
+        /** The notices. */
+        private final List< ParserNotice > notices;
+
+        /**
+         * Constructs a Notices.
+         *
+         * @param generation
+         *            The generation of the text that was checked.
+         * @param notices
+         *            The notices.
+         */
+        public Notices( long generation, List< ParserNotice > notices ) {
+            this.generation = generation;
+            this.notices = notices;
+        }
+
+    }
+
+    /**
+     * Thrown from inside the compiler to abandon a stale check.
+     *
+     * @author Austin
+     */
+    private static class StaleCheckException extends RuntimeException {
+
+        /**
+         * Constructs a StaleCheckException.
+         */
+        public StaleCheckException() {
+            super( "The source changed during the check", null, false, false );
+        }
+
+    }
+
+}
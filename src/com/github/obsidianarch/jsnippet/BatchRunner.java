@@ -0,0 +1,542 @@
+package com.github.obsidianarch.jsnippet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticListener;
+import javax.tools.JavaFileObject;
+
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+
+/**
+ * Compiles and runs a directory of snippets without the editor, for scripted runs. The
+ * snippets are compiled together in as few javac tasks as their type names allow, and run
+ * in separate processes across a pool sized to the number of cores.
+ * <p>
+ * Every snippet gets a directory in the output directory, with its classes, build log,
+ * standard output and standard error. A summary table of build and run times and exit codes
+ * is printed and written to {@code summary.txt}.
+ *
+ * @author Austin
+ */
+public class BatchRunner {
+
+    //
+    // Fields
+    //
+
+    /** How the batch mode is used. */
+    private static final String           USAGE    = "Usage: jsnippet --batch <directory or glob> [--out <directory>] [--jobs <count>] [--timeout <seconds>]";
+
+    /** The snippets being run. */
+    private final List< Snippet >         snippets = new ArrayList<>();
+
+    /** The directory the results are written to. */
+    private final File                    outputDirectory;
+
+    /** The number of snippets run at once. */
+    private final int                     jobs;
+
+    /** How long a snippet may run before it's killed, in seconds. */
+    private final long                    timeout;
+
+    //
+    // Constructors
+    //
+
+    /**
+     * Creates a BatchRunner for the snippets.
+     *
+     * @param files
+     *            The snippets' source files, along with their paths relative to the base
+     *            directory.
+     * @param outputDirectory
+     *            The directory the results are written to.
+     * @param jobs
+     *            The number of snippets run at once.
+     * @param timeout
+     *            How long a snippet may run before it's killed, in seconds.
+     * @throws IOException
+     *             If a source file couldn't be read.
+     */
+    private BatchRunner( Map< Path, Path > files, File outputDirectory, int jobs, long timeout ) throws IOException {
+        this.outputDirectory = outputDirectory;
+        this.jobs = jobs;
+        this.timeout = timeout;
+
+        for ( Map.Entry< Path, Path > file : files.entrySet() ) {
+            String relative = file.getValue().toString();
+            String source = new String( Files.readAllBytes( file.getKey() ), StandardCharsets.UTF_8 );
+            File directory = new File( outputDirectory, relative.substring( 0, relative.length() - ".java".length() ) );
+            snippets.add( new Snippet( relative, source, directory ) );
+        }
+    }
+
+    //
+    // Actions
+    //
+
+    /**
+     * Compiles the snippets. Snippets can only share a javac task if none of their top level
+     * types have the same name, and if none of them mentions the name of another's types,
+     * since it would compile against a type that isn't in its own classes. Each snippet goes
+     * into the first task it can share. Anything a shared task fails to produce is compiled
+     * again on its own, so one broken snippet can't take the rest of its task down with it.
+     */
+    private void compileAll() {
+        List< List< Snippet > > groups = new ArrayList<>();
+        List< Set< String > > groupTypes = new ArrayList<>();
+        List< Set< String > > groupNames = new ArrayList<>();
+        List< Set< String > > groupIdentifiers = new ArrayList<>();
+
+        for ( Snippet snippet : snippets ) {
+            if ( snippet.className == null ) continue; // nothing to compile
+
+            int index = 0;
+            while ( ( index < groups.size() ) && ( !Collections.disjoint( groupTypes.get( index ), snippet.types ) || !Collections.disjoint( groupIdentifiers.get( index ), snippet.simpleNames ) || !Collections.disjoint( groupNames.get( index ), snippet.identifiers ) ) ) {
+                index++;
+            }
+
+            if ( index == groups.size() ) {
+                groups.add( new ArrayList< Snippet >() );
+                groupTypes.add( new HashSet< String >() );
+                groupNames.add( new HashSet< String >() );
+                groupIdentifiers.add( new HashSet< String >() );
+            }
+            groups.get( index ).add( snippet );
+            groupTypes.get( index ).addAll( snippet.types );
+            groupNames.get( index ).addAll( snippet.simpleNames );
+            groupIdentifiers.get( index ).addAll( snippet.identifiers );
+        }
+
+        for ( List< Snippet > group : groups ) {
+            compile( group );
+
+            for ( Snippet snippet : group ) {
+                if ( !snippet.built && !snippet.failed && ( group.size() > 1 ) ) {
+                    snippet.log.getBuffer().setLength( 0 );
+                    snippet.buildNanos = 0; // only the build on its own is counted
+                    compile( Collections.singletonList( snippet ) );
+                }
+            }
+        }
+    }
+
+    /**
+     * Compiles the snippets in a single javac task. The time spent in each compilation unit
+     * is charged to its snippet, and each diagnostic goes to its snippet's build log.
+     *
+     * @param group
+     *            The snippets, whose class names are all different.
+     */
+    private void compile( List< Snippet > group ) {
+        // the compiler wraps the file objects it hands back, so the units are matched by URI
+        final Map< URI, Snippet > units = new HashMap<>();
+        List< JavaFileObject > sources = new ArrayList<>();
+        for ( Snippet snippet : group ) {
+            JavaFileObject source = MemoryFileManager.createSource( snippet.className, snippet.source );
+            units.put( source.toUri(), snippet );
+            sources.add( source );
+        }
+
+        DiagnosticListener< JavaFileObject > diagnostics = new DiagnosticListener< JavaFileObject >() {
+
+            @Override
+            public void report( Diagnostic< ? extends JavaFileObject > diagnostic ) {
+                if ( diagnostic.getSource() == null ) return;
+
+                Snippet snippet = units.get( diagnostic.getSource().toUri() );
+                if ( snippet == null ) return;
+
+                snippet.log.write( new BuildDiagnostic( diagnostic ) + System.lineSeparator() );
+                if ( diagnostic.getKind() == Diagnostic.Kind.ERROR ) snippet.failed = true;
+            }
+
+        };
+
+        TaskListener timer = new TaskListener() {
+
+            /** When the current event started. */
+            private long started;
+
+            @Override
+            public void started( TaskEvent e ) {
+                started = System.nanoTime();
+            }
+
+            @Override
+            public void finished( TaskEvent e ) {
+                if ( e.getSourceFile() == null ) return;
+
+                Snippet snippet = units.get( e.getSourceFile().toUri() );
+                if ( snippet != null ) snippet.buildNanos += System.nanoTime() - started;
+            }
+
+        };
+
+        try {
+            Map< String, byte[] > classes = new HashMap<>();
+            JSnippet.getCompilerSession().compileInMemory( sources, classes, diagnostics, timer );
+
+            for ( Snippet snippet : group ) {
+                if ( snippet.failed || !classes.containsKey( snippet.className ) ) continue;
+
+                Map< String, byte[] > own = new HashMap<>();
+                for ( Map.Entry< String, byte[] > entry : classes.entrySet() ) {
+                    if ( snippet.owns( entry.getKey() ) ) own.put( entry.getKey(), entry.getValue() );
+                }
+
+                MemoryFileManager.writeClasses( own, snippet.classDirectory() );
+                snippet.built = true;
+            }
+        }
+        catch ( IOException e ) {
+            for ( Snippet snippet : group ) {
+                e.printStackTrace( new PrintWriter( snippet.log, true ) );
+            }
+        }
+    }
+
+    /**
+     * Runs every snippet that built, a few at a time.
+     *
+     * @throws InterruptedException
+     *             If interrupted while waiting for the snippets.
+     */
+    private void runAll() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool( jobs );
+        for ( final Snippet snippet : snippets ) {
+            if ( !snippet.built ) continue;
+
+            executor.execute( new Runnable() {
+
+                @Override
+                public void run() {
+                    execute( snippet );
+                }
+
+            } );
+        }
+
+        executor.shutdown();
+        executor.awaitTermination( Long.MAX_VALUE, TimeUnit.MILLISECONDS );
+    }
+
+    /**
+     * Runs the snippet in a new process, with its output going straight to its files.
+     *
+     * @param snippet
+     *            The snippet.
+     */
+    private void execute( Snippet snippet ) {
+        String java = new File( System.getProperty( "java.home" ), "bin/java" ).getAbsolutePath();
+        ProcessBuilder builder = new ProcessBuilder( java, "-cp", snippet.classDirectory().getAbsolutePath(), snippet.className );
+        builder.redirectOutput( new File( snippet.directory, "stdout.txt" ) );
+        builder.redirectError( new File( snippet.directory, "stderr.txt" ) );
+
+        long start = System.nanoTime();
+        try {
+            Process process = builder.start();
+            if ( process.waitFor( timeout, TimeUnit.SECONDS ) ) {
+                snippet.exitCode = process.exitValue();
+            }
+            else {
+                process.destroyForcibly().waitFor();
+                snippet.timedOut = true;
+            }
+        }
+        catch ( IOException | InterruptedException e ) {
+            e.printStackTrace( new PrintWriter( snippet.log, true ) );
+        }
+        snippet.runNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Writes each snippet's build log, then prints the summary and writes it to
+     * {@code summary.txt}.
+     *
+     * @return If every snippet built and exited with 0.
+     * @throws IOException
+     *             If a file couldn't be written.
+     */
+    private boolean report() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append( String.format( "%-50s %10s %10s %8s%n", "Snippet", "Build (ms)", "Run (ms)", "Exit" ) );
+
+        boolean passed = true;
+        for ( Snippet snippet : snippets ) {
+            snippet.directory.mkdirs();
+            Files.write( new File( snippet.directory, "build.log" ).toPath(), snippet.log.toString().getBytes( StandardCharsets.UTF_8 ) );
+
+            String exit = !snippet.built ? "BUILD" : snippet.timedOut ? "TIMEOUT" : ( snippet.exitCode + "" );
+            sb.append( String.format( "%-50s %10.1f %10.1f %8s%n", snippet.name, snippet.buildNanos / 1e6, snippet.runNanos / 1e6, exit ) );
+
+            passed &= snippet.built && !snippet.timedOut && ( snippet.exitCode == 0 );
+        }
+
+        System.out.print( sb );
+        Files.write( new File( outputDirectory, "summary.txt" ).toPath(), sb.toString().getBytes( StandardCharsets.UTF_8 ) );
+        return passed;
+    }
+
+    //
+    // Static
+    //
+
+    /**
+     * Runs the batch mode.
+     *
+     * @param args
+     *            The command line arguments, following {@code --batch}.
+     * @return The exit code: 0 if every snippet built and exited with 0, 1 if any didn't, and
+     *         2 if the arguments were wrong.
+     */
+    public static int run( String[] args ) {
+        String pattern = null;
+        File output = new File( "jsnippet-results" );
+        int jobs = Runtime.getRuntime().availableProcessors();
+        long timeout = 60;
+
+        try {
+            for ( int i = 0; i < args.length; i++ ) {
+                switch ( args[ i ] ) {
+                    case "--out":
+                        output = new File( args[ ++i ] );
+                        break;
+                    case "--jobs":
+                        jobs = Integer.parseInt( args[ ++i ] );
+                        break;
+                    case "--timeout":
+                        timeout = Long.parseLong( args[ ++i ] );
+                        break;
+                    default:
+                        pattern = args[ i ];
+                }
+            }
+        }
+        catch ( ArrayIndexOutOfBoundsException | NumberFormatException e ) {
+            pattern = null;
+        }
+
+        if ( ( pattern == null ) || ( jobs < 1 ) ) {
+            System.err.println( USAGE );
+            return 2;
+        }
+
+        try {
+            Map< Path, Path > files = findSnippets( pattern );
+            if ( files.isEmpty() ) {
+                System.err.println( "No snippets match " + pattern );
+                return 2;
+            }
+
+            output.mkdirs();
+            BatchRunner runner = new BatchRunner( files, output, jobs, timeout );
+            runner.compileAll();
+            runner.runAll();
+            return runner.report() ? 0 : 1;
+        }
+        catch ( IOException | InterruptedException e ) {
+            e.printStackTrace();
+            return 1;
+        }
+    }
+
+    /**
+     * Finds every word in the source which could be an identifier, including the ones in
+     * comments and strings, which only makes the snippets share fewer tasks.
+     *
+     * @param source
+     *            The source code.
+     * @return The words.
+     */
+    private static Set< String > findIdentifiers( String source ) {
+        Set< String > identifiers = new HashSet<>();
+
+        int i = 0;
+        while ( i < source.length() ) {
+            if ( !Character.isJavaIdentifierStart( source.charAt( i ) ) ) {
+                i++;
+                continue;
+            }
+
+            int start = i++;
+            while ( ( i < source.length() ) && Character.isJavaIdentifierPart( source.charAt( i ) ) ) {
+                i++;
+            }
+            identifiers.add( source.substring( start, i ) );
+        }
+        return identifiers;
+    }
+
+    /**
+     * Finds the snippets. A directory matches every .java file in and under it, anything else
+     * is a glob which is searched for from the directory before its first wildcard.
+     *
+     * @param pattern
+     *            The directory or glob.
+     * @return The snippets' source files, each mapped to its path relative to the directory
+     *         that was searched, in order.
+     * @throws IOException
+     *             If the directory couldn't be searched.
+     */
+    private static Map< Path, Path > findSnippets( String pattern ) throws IOException {
+        Path base;
+        final PathMatcher matcher;
+
+        if ( new File( pattern ).isDirectory() ) {
+            base = new File( pattern ).toPath();
+            matcher = FileSystems.getDefault().getPathMatcher( "glob:**.java" );
+        }
+        else {
+            int wildcard = pattern.length();
+            for ( char c : "*?[{".toCharArray() ) {
+                if ( pattern.indexOf( c ) != -1 ) wildcard = Math.min( wildcard, pattern.indexOf( c ) );
+            }
+
+            int separator = Math.max( pattern.lastIndexOf( '/', wildcard ), pattern.lastIndexOf( File.separatorChar, wildcard ) );
+            base = new File( ( separator == -1 ) ? "." : pattern.substring( 0, separator + 1 ) ).toPath();
+            matcher = FileSystems.getDefault().getPathMatcher( "glob:" + pattern.substring( separator + 1 ) );
+        }
+
+        Map< Path, Path > files = new LinkedHashMap<>();
+        try ( Stream< Path > walk = Files.walk( base ) ) {
+            for ( Path path : walk.sorted().collect( Collectors.toList() ) ) {
+                Path relative = base.relativize( path );
+                if ( Files.isRegularFile( path ) && path.toString().endsWith( ".java" ) && matcher.matches( relative ) ) {
+                    files.put( path, relative );
+                }
+            }
+        }
+        return files;
+    }
+
+    //
+    // Nested Classes
+    //
+
+    /**
+     * A single snippet, and what became of it.
+     *
+     * @author Austin
+     */
+    private static class Snippet {
+
+        /** The path of the snippet relative to the directory that was searched. */
+        private final String         name;
+
+        /** The source code. */
+        private final String         source;
+
+        /** The fully qualified name of the snippet's main class, null if it has none. */
+        private final String         className;
+
+        /** The fully qualified names of the snippet's top level types. */
+        private final List< String > types = new ArrayList<>();
+
+        /** The simple names of the snippet's top level types. */
+        private final Set< String >  simpleNames = new HashSet<>();
+
+        /** Every word in the source, other than its own type names, which could name a type. */
+        private final Set< String >  identifiers;
+
+        /** The directory for the snippet's results. */
+        private final File           directory;
+
+        /** The build log. */
+        private final StringWriter   log = new StringWriter();
+
+        /** If the snippet's classes were written. */
+        private boolean              built;
+
+        /** If the compiler reported an error in the snippet. */
+        private boolean              failed;
+
+        /** If the snippet had to be killed. */
+        private boolean              timedOut;
+
+        /** The exit code of the snippet's process. */
+        private int                  exitCode;
+
+        /** The time the compiler spent on the snippet. */
+        private long                 buildNanos;
+
+        /** The time the snippet ran for. */
+        private long                 runNanos;
+
+        /**
+         * Constructs a Snippet.
+         *
+         * @param name
+         *            The path of the snippet relative to the directory that was searched.
+         * @param source
+         *            The source code.
+         * @param directory
+         *            The directory for the snippet's results.
+         */
+        public Snippet( String name, String source, File directory ) {
+            this.name = name;
+            this.source = source;
+            this.directory = directory;
+            directory.mkdirs();
+
+            SourceScanner.SourceInfo info = SourceScanner.scan( source );
+            for ( String type : info.getTypeNames() ) {
+                types.add( info.qualify( type ) );
+                simpleNames.add( type );
+            }
+
+            identifiers = findIdentifiers( source );
+            identifiers.removeAll( simpleNames );
+
+            className = info.getClassName();
+            if ( className == null ) log.write( "No types are declared" + System.lineSeparator() );
+        }
+
+        /**
+         * Checks if a class came from this snippet.
+         *
+         * @param binaryName
+         *            The binary name of the class.
+         * @return If it's one of the snippet's top level types, or nested in one.
+         */
+        public boolean owns( String binaryName ) {
+            for ( String type : types ) {
+                if ( binaryName.equals( type ) || binaryName.startsWith( type + "$" ) ) return true;
+            }
+            return false;
+        }
+
+        /**
+         * @return The directory the snippet's classes are written to.
+         */
+        public File classDirectory() {
+            return new File( directory, "classes" );
+        }
+
+    }
+
+}
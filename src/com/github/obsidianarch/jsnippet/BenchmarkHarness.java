@@ -0,0 +1,161 @@
+package com.github.obsidianarch.jsnippet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Times a snippet, calling its {@link Measure} method, or its main method if it doesn't have
+ * one, for a number of warm-up iterations which aren't kept and then for the measured ones.
+ * <p>
+ * Run as a main class, it's one fork of a benchmark, and takes:
+ *
+ * <pre>
+ * results file, class name, warm-up iterations, measured iterations, arguments...
+ * </pre>
+ *
+ * The time of every measured iteration is written to the results file in nanoseconds, one per
+ * line, and the process exits with 1 if the snippet threw. Like {@link WorkerLauncher}, this
+ * class must not touch the rest of JSnippet, so that forks don't load the editor.
+ *
+ * @author Austin
+ */
+public final class BenchmarkHarness {
+
+    //
+    // Fields
+    //
+
+    /** Whatever the measured method returned, so the work that produced it can't be dropped. */
+    private static volatile int sink;
+
+    //
+    // Constructors
+    //
+
+    /**
+     * Only the static methods are used.
+     */
+    private BenchmarkHarness() {
+    }
+
+    //
+    // Static
+    //
+
+    /**
+     * Times a snippet.
+     *
+     * @param snippet
+     *            The snippet's class.
+     * @param arguments
+     *            The arguments passed to the main method, if it's the one that's timed.
+     * @param warmups
+     *            The number of iterations before the measured ones.
+     * @param iterations
+     *            The number of measured iterations.
+     * @return The time of each measured iteration, in nanoseconds.
+     * @throws Throwable
+     *             Whatever the snippet threw, or if it has nothing to time.
+     */
+    public static long[] measure( Class< ? > snippet, String[] arguments, int warmups, int iterations ) throws Throwable {
+        Method method = findMeasured( snippet );
+        boolean isMain = method.getName().equals( "main" ) && ( method.getParameterTypes().length == 1 );
+        Object target = Modifier.isStatic( method.getModifiers() ) ? null : snippet.getDeclaredConstructor().newInstance();
+        method.setAccessible( true );
+
+        long[] times = new long[ iterations ];
+        for ( int i = -warmups; i < iterations; i++ ) {
+            Object[] parameters = isMain ? new Object[ ] { arguments.clone() } : new Object[ 0 ];
+
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = method.invoke( target, parameters );
+            }
+            catch ( InvocationTargetException e ) {
+                throw e.getCause();
+            }
+            long time = System.nanoTime() - start;
+
+            sink ^= System.identityHashCode( result );
+
+            if ( i < 0 ) {
+                System.out.printf( "# Warm-up %d of %d: %,d ns%n", i + warmups + 1, warmups, time );
+            }
+            else {
+                System.out.printf( "# Iteration %d of %d: %,d ns%n", i + 1, iterations, time );
+                times[ i ] = time;
+            }
+        }
+        return times;
+    }
+
+    /**
+     * Finds the method to time, the first one that's marked with {@link Measure}, otherwise
+     * the main method. The marker is matched by name, so it's found whichever class loader
+     * loaded it.
+     *
+     * @param snippet
+     *            The snippet's class.
+     * @return The method.
+     * @throws NoSuchMethodException
+     *             If the snippet has neither.
+     */
+    private static Method findMeasured( Class< ? > snippet ) throws NoSuchMethodException {
+        for ( Method method : snippet.getDeclaredMethods() ) {
+            for ( Annotation annotation : method.getAnnotations() ) {
+                if ( !annotation.annotationType().getName().equals( Measure.class.getName() ) ) continue;
+
+                if ( method.getParameterTypes().length != 0 ) throw new NoSuchMethodException( "The @Measure method " + method.getName() + " can't take parameters" );
+                return method;
+            }
+        }
+        return snippet.getMethod( "main", String[].class );
+    }
+
+    /**
+     * Runs one fork of a benchmark.
+     *
+     * @param args
+     *            The results file, the class name, the warm-up and measured iterations, then
+     *            the arguments passed to the snippet.
+     * @throws IOException
+     *             If the results couldn't be written.
+     */
+    public static void main( String[] args ) throws IOException {
+        File results = new File( args[ 0 ] );
+        String className = args[ 1 ];
+        int warmups = Integer.parseInt( args[ 2 ] );
+        int iterations = Integer.parseInt( args[ 3 ] );
+
+        String[] arguments = new String[ args.length - 4 ];
+        System.arraycopy( args, 4, arguments, 0, arguments.length );
+
+        long[] times;
+        try {
+            times = measure( Class.forName( className ), arguments, warmups, iterations );
+        }
+        catch ( Throwable t ) {
+            System.err.print( "Exception in thread \"main\" " );
+            t.printStackTrace();
+            System.exit( 1 );
+            return;
+        }
+
+        try ( PrintWriter out = new PrintWriter( Files.newBufferedWriter( results.toPath(), StandardCharsets.UTF_8 ) ) ) {
+            for ( long time : times ) {
+                out.println( time );
+            }
+        }
+
+        System.exit( 0 ); // the snippet may have left threads running
+    }
+
+}
@@ -0,0 +1,173 @@
+package com.github.obsidianarch.jsnippet;
+
+import java.util.Arrays;
+
+/**
+ * The statistics of a benchmark's measured iterations. Outliers are found with Tukey's fences,
+ * any time more than one and a half interquartile ranges outside of the middle half is one.
+ * They're counted, but still part of every other statistic.
+ *
+ * @author Austin
+ */
+public final class BenchmarkStatistics {
+
+    //
+    // Fields
+    //
+
+    /** The times of the iterations, in nanoseconds, from fastest to slowest. */
+    private final long[] sorted;
+
+    /** The average time. */
+    private final double mean;
+
+    /** The sample standard deviation of the times. */
+    private final double standardDeviation;
+
+    /** The number of times below the lower fence. */
+    private final int    lowOutliers;
+
+    /** The number of times above the upper fence. */
+    private final int    highOutliers;
+
+    //
+    // Constructors
+    //
+
+    /**
+     * Computes the statistics of the times.
+     *
+     * @param times
+     *            The times of the iterations, in nanoseconds.
+     * @throws IllegalArgumentException
+     *             If there are no times.
+     */
+    public BenchmarkStatistics( long[] times ) {
+        if ( times.length == 0 ) throw new IllegalArgumentException( "There are no measured iterations" );
+
+        sorted = times.clone();
+        Arrays.sort( sorted );
+
+        double sum = 0;
+        for ( long time : sorted ) {
+            sum += time;
+        }
+        mean = sum / sorted.length;
+
+        double squares = 0;
+        for ( long time : sorted ) {
+            squares += ( time - mean ) * ( time - mean );
+        }
+        standardDeviation = ( sorted.length > 1 ) ? Math.sqrt( squares / ( sorted.length - 1 ) ) : 0;
+
+        double q1 = getPercentile( 25 );
+        double q3 = getPercentile( 75 );
+        double lowerFence = q1 - 1.5 * ( q3 - q1 );
+        double upperFence = q3 + 1.5 * ( q3 - q1 );
+
+        int low = 0;
+        int high = 0;
+        for ( long time : sorted ) {
+            if ( time < lowerFence ) low++;
+            if ( time > upperFence ) high++;
+        }
+        lowOutliers = low;
+        highOutliers = high;
+    }
+
+    //
+    // Getters
+    //
+
+    /**
+     * @return The number of measured iterations.
+     */
+    public int getCount() {
+        return sorted.length;
+    }
+
+    /**
+     * @return The average time, in nanoseconds.
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * @return The sample standard deviation of the times, in nanoseconds.
+     */
+    public double getStandardDeviation() {
+        return standardDeviation;
+    }
+
+    /**
+     * @return The fastest time, in nanoseconds.
+     */
+    public long getMin() {
+        return sorted[ 0 ];
+    }
+
+    /**
+     * @return The slowest time, in nanoseconds.
+     */
+    public long getMax() {
+        return sorted[ sorted.length - 1 ];
+    }
+
+    /**
+     * Finds the time that a percentage of the iterations were at least as fast as,
+     * interpolating between the two closest times.
+     *
+     * @param percent
+     *            The percentage, from 0 to 100.
+     * @return The time, in nanoseconds.
+     */
+    public double getPercentile( double percent ) {
+        double rank = ( percent / 100 ) * ( sorted.length - 1 );
+        int below = ( int ) Math.floor( rank );
+        int above = Math.min( below + 1, sorted.length - 1 );
+        return sorted[ below ] + ( rank - below ) * ( sorted[ above ] - sorted[ below ] );
+    }
+
+    /**
+     * @return The number of times below the lower fence.
+     */
+    public int getLowOutliers() {
+        return lowOutliers;
+    }
+
+    /**
+     * @return The number of times above the upper fence.
+     */
+    public int getHighOutliers() {
+        return highOutliers;
+    }
+
+    //
+    // Overrides
+    //
+
+    @Override
+    public String toString() {
+        return String.format( "n = %d, mean = %s \u00b1 %s, min = %s, p50 = %s, p90 = %s, p99 = %s, max = %s, outliers = %d low, %d high", getCount(), formatTime( mean ), formatTime( standardDeviation ), formatTime( getMin() ), formatTime( getPercentile( 50 ) ), formatTime( getPercentile( 90 ) ), formatTime( getPercentile( 99 ) ), formatTime( getMax() ), lowOutliers, highOutliers );
+    }
+
+    //
+    // Static
+    //
+
+    /**
+     * Formats a time in the largest unit it's at least one of.
+     *
+     * @param nanos
+     *            The time, in nanoseconds.
+     * @return The formatted time.
+     */
+    public static String formatTime( double nanos ) {
+        if ( nanos >= 1e9 ) return String.format( "%.3f s", nanos / 1e9 );
+        if ( nanos >= 1e6 ) return String.format( "%.3f ms", nanos / 1e6 );
+        if ( nanos >= 1e3 ) return String.format( "%.3f \u00b5s", nanos / 1e3 );
+        return String.format( "%.0f ns", nanos );
+    }
+
+}
@@ -0,0 +1,419 @@
+package com.github.obsidianarch.jsnippet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Remembers the output of recent builds, keyed by a hash of the source code and the compiler
+ * options, so that building unchanged source goes straight to execution. The most recently
+ * used builds are kept in a directory each, the least recently used are deleted once there
+ * are more than the capacity.
+ * <p>
+ * A build's directory only counts as cached once it has a marker file, written after all of
+ * its classes, so a build that was cut short by quitting or a crash is thrown away rather than
+ * picked up as a build with missing classes.
+ *
+ * @author Austin
+ */
+public class BuildCache {
+
+    //
+    // Fields
+    //
+
+    /** The name of the file which marks a build's directory as complete. */
+    private static final String         COMPLETE = ".complete";
+
+    /** The directory which contains a directory for every cached build. */
+    private final File                  directory;
+
+    /** The maximum number of builds that are kept. */
+    private final int                   capacity;
+
+    /** The cached builds, least recently used first. */
+    private final Map< String, Entry >  entries  = new LinkedHashMap<>( 16, 0.75f, true );
+
+    /** Writes and deletes the cached builds in the background. */
+    private final ExecutorService       writer;
+
+    //
+    // Constructors
+    //
+
+    /**
+     * Creates a BuildCache in the directory, any complete builds already in there are picked
+     * up and the rest are deleted.
+     *
+     * @param directory
+     *            The directory to keep the builds in.
+     * @param capacity
+     *            The maximum number of builds that are kept.
+     */
+    public BuildCache( File directory, int capacity ) {
+        this.directory = directory;
+        this.capacity = capacity;
+
+        writer = Executors.newSingleThreadExecutor( new ThreadFactory() {
+
+            @Override
+            public Thread newThread( Runnable r ) {
+                Thread thread = new Thread( r );
+                thread.setName( "Build Cache Writer" );
+                thread.setDaemon( true );
+                return thread;
+            }
+
+        } );
+
+        // the directories' modification times are the order they were last used in
+        File[] builds = directory.listFiles();
+        if ( builds == null ) return;
+
+        Arrays.sort( builds, new Comparator< File >() {
+
+            @Override
+            public int compare( File a, File b ) {
+                return Long.compare( a.lastModified(), b.lastModified() );
+            }
+
+        } );
+
+        for ( final File build : builds ) {
+            if ( !build.isDirectory() ) continue;
+
+            if ( new File( build, COMPLETE ).isFile() ) {
+                entries.put( build.getName(), new Entry( build, Collections.< String, byte[] > emptyMap() ) );
+                continue;
+            }
+
+            writer.execute( new Runnable() {
+
+                @Override
+                public void run() {
+                    delete( build );
+                }
+
+            } );
+        }
+        evict();
+    }
+
+    //
+    // Actions
+    //
+
+    /**
+     * Finds a cached build, and marks it as the most recently used.
+     *
+     * @param key
+     *            The key from {@link #createKey(String, List)}.
+     * @return The build, or null if it isn't cached.
+     */
+    public synchronized Entry get( String key ) {
+        final Entry entry = entries.get( key );
+        if ( entry == null ) return null;
+
+        writer.execute( new Runnable() {
+
+            @Override
+            public void run() {
+                entry.directory.setLastModified( System.currentTimeMillis() );
+            }
+
+        } );
+
+        return entry;
+    }
+
+    /**
+     * Caches a build which was compiled in memory, the classes are written to the disk in the
+     * background. If they can't be written the build is removed again.
+     *
+     * @param key
+     *            The key from {@link #createKey(String, List)}.
+     * @param classes
+     *            The compiled classes, by binary name.
+     * @return The cached build.
+     */
+    public synchronized Entry put( final String key, final Map< String, byte[] > classes ) {
+        final Entry entry = new Entry( new File( directory, key ), classes );
+        entry.written = new CountDownLatch( 1 );
+
+        writer.execute( new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    delete( entry.directory );
+                    MemoryFileManager.writeClasses( classes, entry.directory );
+                    markComplete( entry.directory );
+                }
+                catch ( IOException e ) {
+                    System.err.println( "Failed to write the build to the cache" );
+                    e.printStackTrace();
+                    discard( key, entry );
+                }
+                finally {
+                    entry.written.countDown();
+                }
+            }
+
+        } );
+
+        entries.put( key, entry );
+        evict();
+        return entry;
+    }
+
+    /**
+     * Creates an empty directory for a build that the compiler will write to the disk. Once
+     * the build succeeds it must be {@link #complete(String) completed}, if it fails it must be
+     * {@link #remove(String) removed}.
+     *
+     * @param key
+     *            The key from {@link #createKey(String, List)}.
+     * @return The cached build, whose directory the compiler should write to.
+     */
+    public Entry reserve( String key ) {
+        final Entry entry = new Entry( new File( directory, key ), Collections.< String, byte[] > emptyMap() );
+
+        // done on the writer, so that nothing it still has queued can touch the new directory,
+        // without holding the lock, which the writer takes when it has to discard a build
+        try {
+            writer.submit( new Runnable() {
+
+                @Override
+                public void run() {
+                    delete( entry.directory );
+                    entry.directory.mkdirs();
+                }
+
+            } ).get();
+        }
+        catch ( InterruptedException | ExecutionException e ) {
+            entry.directory.mkdirs();
+        }
+
+        synchronized ( this ) {
+            entries.put( key, entry );
+            evict();
+        }
+        return entry;
+    }
+
+    /**
+     * Marks a reserved build as complete, so that it's picked up the next time the cache is
+     * created. If the marker can't be written the build is removed.
+     *
+     * @param key
+     *            The key from {@link #createKey(String, List)}.
+     */
+    public synchronized void complete( String key ) {
+        Entry entry = entries.get( key );
+        if ( entry == null ) return;
+
+        try {
+            markComplete( entry.directory );
+        }
+        catch ( IOException e ) {
+            System.err.println( "Failed to write the build to the cache" );
+            e.printStackTrace();
+            remove( key );
+        }
+    }
+
+    /**
+     * Removes a build whose classes couldn't be written, unless it's been replaced since.
+     *
+     * @param key
+     *            The key from {@link #createKey(String, List)}.
+     * @param entry
+     *            The build.
+     */
+    private synchronized void discard( String key, Entry entry ) {
+        if ( entries.remove( key, entry ) ) delete( entry.directory );
+    }
+
+    /**
+     * Removes a build from the cache.
+     *
+     * @param key
+     *            The key from {@link #createKey(String, List)}.
+     */
+    public synchronized void remove( String key ) {
+        final Entry entry = entries.remove( key );
+        if ( entry == null ) return;
+
+        writer.execute( new Runnable() {
+
+            @Override
+            public void run() {
+                delete( entry.directory );
+            }
+
+        } );
+    }
+
+    /**
+     * Removes the least recently used builds until the cache is within its capacity.
+     */
+    private void evict() {
+        Iterator< Entry > iterator = entries.values().iterator();
+
+        while ( entries.size() > capacity ) {
+            final Entry eldest = iterator.next();
+            iterator.remove();
+
+            writer.execute( new Runnable() {
+
+                @Override
+                public void run() {
+                    delete( eldest.directory );
+                }
+
+            } );
+        }
+    }
+
+    //
+    // Static
+    //
+
+    /**
+     * Creates the key for a build, which is a hash of everything that goes into the compiled
+     * classes.
+     *
+     * @param source
+     *            The source code.
+     * @param options
+     *            The options passed to the compiler.
+     * @return The key.
+     */
+    public static String createKey( String source, List< String > options ) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance( "SHA-256" );
+            digest.update( System.getProperty( "java.version" ).getBytes( StandardCharsets.UTF_8 ) );
+            for ( String option : options ) {
+                digest.update( ( byte ) 0 );
+                digest.update( option.getBytes( StandardCharsets.UTF_8 ) );
+            }
+            digest.update( ( byte ) 0 );
+            digest.update( source.getBytes( StandardCharsets.UTF_8 ) );
+
+            StringBuilder sb = new StringBuilder();
+            for ( byte b : digest.digest() ) {
+                sb.append( String.format( "%02x", b ) );
+            }
+            return sb.toString();
+        }
+        catch ( NoSuchAlgorithmException e ) {
+            throw new IllegalStateException( "SHA-256 is always available", e );
+        }
+    }
+
+    /**
+     * Writes the marker file into a build's directory, after everything else in it.
+     *
+     * @param directory
+     *            The build's directory.
+     * @throws IOException
+     *             If the marker couldn't be written.
+     */
+    private static void markComplete( File directory ) throws IOException {
+        File marker = new File( directory, COMPLETE );
+        if ( !marker.isFile() && !marker.createNewFile() ) throw new IOException( "Failed to create " + marker );
+    }
+
+    /**
+     * Deletes the file, and everything in it if it's a directory.
+     *
+     * @param file
+     *            The file to delete.
+     */
+    private static void delete( File file ) {
+        File[] children = file.listFiles();
+        if ( children != null ) {
+            for ( File child : children ) {
+                delete( child );
+            }
+        }
+        file.delete();
+    }
+
+    //
+    // Nested Classes
+    //
+
+    /**
+     * The output of a single cached build.
+     *
+     * @author Austin
+     */
+    public static class Entry {
+
+        /** The directory which contains the class files. */
+        private final File                  directory;
+
+        /** The classes, if the build was compiled in memory. */
+        private final Map< String, byte[] > classes;
+
+        /** Counted down once the classes have been written, if they're being written. */
+        private CountDownLatch              written;
+
+        /**
+         * Constructs an Entry for the build.
+         *
+         * @param directory
+         *            The directory which contains the class files.
+         * @param classes
+         *            The classes, if the build was compiled in memory.
+         */
+        private Entry( File directory, Map< String, byte[] > classes ) {
+            this.directory = directory;
+            this.classes = classes;
+        }
+
+        /**
+         * @return The classes, by binary name. Builds that weren't compiled in memory only
+         *         have their {@link #getDirectory() directory}.
+         */
+        public Map< String, byte[] > getClasses() {
+            return classes;
+        }
+
+        /**
+         * Gets the directory which contains the class files, waiting for them to be written
+         * if they haven't been yet.
+         *
+         * @return The directory which contains the class files.
+         */
+        public File getDirectory() {
+            if ( written != null ) {
+                try {
+                    written.await();
+                }
+                catch ( InterruptedException e ) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return directory;
+        }
+
+    }
+
+}
@@ -0,0 +1,221 @@
+package com.github.obsidianarch.jsnippet;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticListener;
+import javax.tools.JavaFileObject;
+
+/**
+ * A single message from the compiler, kept as the parts the editor needs rather than as the
+ * text javac would have printed.
+ *
+ * @author Austin
+ */
+public final class BuildDiagnostic {
+
+    //
+    // Fields
+    //
+
+    /** The kind of message. */
+    private final Diagnostic.Kind kind;
+
+    /** The name of the source file, or null if it isn't about a source file. */
+    private final String          source;
+
+    /** The line, starting at 1, or 0 if there isn't one. */
+    private final int             line;
+
+    /** The column, starting at 1, or 0 if there isn't one. */
+    private final int             column;
+
+    /** The offset of the start of the problem in the source, or -1 if there isn't one. */
+    private final int             start;
+
+    /** The offset of the end of the problem in the source, or -1 if there isn't one. */
+    private final int             end;
+
+    /** The compiler's code for the message, such as compiler.err.cant.resolve. */
+    private final String          code;
+
+    /** The message. */
+    private final String          message;
+
+    //
+    // Constructors
+    //
+
+    /**
+     * Constructs a BuildDiagnostic from the compiler's diagnostic.
+     *
+     * @param diagnostic
+     *            The compiler's diagnostic.
+     */
+    public BuildDiagnostic( Diagnostic< ? extends JavaFileObject > diagnostic ) {
+        kind = diagnostic.getKind();
+        source = ( diagnostic.getSource() == null ) ? null : diagnostic.getSource().getName();
+        line = ( int ) Math.max( 0, diagnostic.getLineNumber() );
+        column = ( int ) Math.max( 0, diagnostic.getColumnNumber() );
+        start = ( int ) diagnostic.getStartPosition();
+        end = ( int ) diagnostic.getEndPosition();
+        code = diagnostic.getCode();
+        message = diagnostic.getMessage( null );
+    }
+
+    //
+    // Getters
+    //
+
+    /**
+     * @return The kind of message.
+     */
+    public Diagnostic.Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return If this is an error.
+     */
+    public boolean isError() {
+        return kind == Diagnostic.Kind.ERROR;
+    }
+
+    /**
+     * @return The name of the source file, or null if it isn't about a source file.
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return The line, starting at 1, or 0 if there isn't one.
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * @return The column, starting at 1, or 0 if there isn't one.
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * @return The offset of the start of the problem in the source, or -1 if there isn't one.
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * @return The offset of the end of the problem in the source, or -1 if there isn't one.
+     */
+    public int getEnd() {
+        return end;
+    }
+
+    /**
+     * @return The compiler's code for the message.
+     */
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * @return The message.
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    //
+    // Overrides
+    //
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        if ( source != null ) {
+            sb.append( source.substring( Math.max( source.lastIndexOf( '/' ), source.lastIndexOf( File.separatorChar ) ) + 1 ) );
+            if ( line > 0 ) sb.append( ':' ).append( line ).append( ':' ).append( column );
+            sb.append( ": " );
+        }
+        sb.append( kind.toString().toLowerCase().replace( '_', ' ' ) ).append( ": " ).append( message );
+        return sb.toString();
+    }
+
+    //
+    // Static
+    //
+
+    /**
+     * Prints the diagnostics to the build log in two writes, the errors to System.err and
+     * everything else to System.out, rather than a write per line.
+     *
+     * @param diagnostics
+     *            The diagnostics.
+     */
+    public static void print( List< BuildDiagnostic > diagnostics ) {
+        StringBuilder errors = new StringBuilder();
+        StringBuilder others = new StringBuilder();
+        int errorCount = 0;
+        int warningCount = 0;
+
+        for ( BuildDiagnostic diagnostic : diagnostics ) {
+            if ( diagnostic.isError() ) {
+                errors.append( diagnostic ).append( System.lineSeparator() );
+                errorCount++;
+            }
+            else {
+                others.append( diagnostic ).append( System.lineSeparator() );
+                if ( diagnostic.getKind() != Diagnostic.Kind.NOTE ) warningCount++;
+            }
+        }
+
+        if ( warningCount > 0 ) others.append( warningCount ).append( warningCount == 1 ? " warning" : " warnings" ).append( System.lineSeparator() );
+        if ( errorCount > 0 ) errors.append( errorCount ).append( errorCount == 1 ? " error" : " errors" ).append( System.lineSeparator() );
+
+        if ( others.length() > 0 ) {
+            System.out.print( others );
+            System.out.flush();
+        }
+        if ( errors.length() > 0 ) {
+            System.err.print( errors );
+            System.err.flush();
+        }
+    }
+
+    //
+    // Nested Classes
+    //
+
+    /**
+     * Collects the compiler's diagnostics as BuildDiagnostics.
+     *
+     * @author Austin
+     */
+    public static class Collector implements DiagnosticListener< JavaFileObject > {
+
+        /** The diagnostics, in the order they were reported. */
+        private final List< BuildDiagnostic > diagnostics = new ArrayList<>();
+
+        /**
+         * @return The diagnostics, in the order they were reported.
+         */
+        public synchronized List< BuildDiagnostic > getDiagnostics() {
+            return Collections.unmodifiableList( new ArrayList<>( diagnostics ) );
+        }
+
+        @Override
+        public synchronized void report( Diagnostic< ? extends JavaFileObject > diagnostic ) {
+            diagnostics.add( new BuildDiagnostic( diagnostic ) );
+        }
+
+    }
+
+}
@@ -0,0 +1,136 @@
+package com.github.obsidianarch.jsnippet;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+
+/**
+ * Records how long each phase of a build took. The compiler's own phases are timed by
+ * listening to the javac task, everything around it is recorded by the build.
+ *
+ * @author Austin
+ */
+public class BuildTimings implements TaskListener {
+
+    //
+    // Fields
+    //
+
+    /** The compiler phases which are timed, and the names they're recorded under. */
+    private static final Map< TaskEvent.Kind, String > PHASES = new EnumMap<>( TaskEvent.Kind.class );
+
+    /** The time spent in each phase, in nanoseconds, in the order they first happened. */
+    private final Map< String, Long >                  nanos  = new LinkedHashMap<>();
+
+    /** When each compiler phase that's under way started. */
+    private final Map< TaskEvent.Kind, Long >          starts = new EnumMap<>( TaskEvent.Kind.class );
+
+    /** When the compiler task was created, until it starts parsing. */
+    private long                                       taskCreated;
+
+    static {
+        PHASES.put( TaskEvent.Kind.PARSE, "Parse" );
+        PHASES.put( TaskEvent.Kind.ENTER, "Enter" );
+        PHASES.put( TaskEvent.Kind.ANALYZE, "Analyze" );
+        PHASES.put( TaskEvent.Kind.GENERATE, "Generate" );
+    }
+
+    //
+    // Actions
+    //
+
+    /**
+     * Adds the time since the start to the phase.
+     *
+     * @param phase
+     *            The name of the phase.
+     * @param start
+     *            When the phase started, from {@link System#nanoTime()}.
+     */
+    public synchronized void record( String phase, long start ) {
+        add( phase, System.nanoTime() - start );
+    }
+
+    /**
+     * Marks the creation of the compiler task, the time until the compiler starts parsing is
+     * recorded as its startup.
+     */
+    public synchronized void taskCreated() {
+        taskCreated = System.nanoTime();
+    }
+
+    /**
+     * Adds the time to the phase.
+     *
+     * @param phase
+     *            The name of the phase.
+     * @param time
+     *            The time, in nanoseconds.
+     */
+    private void add( String phase, long time ) {
+        Long total = nanos.get( phase );
+        nanos.put( phase, ( total == null ) ? time : total + time );
+    }
+
+    //
+    // Getters
+    //
+
+    /**
+     * @return The time spent in each phase, in nanoseconds, in the order they first happened.
+     */
+    public synchronized Map< String, Long > getPhases() {
+        return Collections.unmodifiableMap( new LinkedHashMap<>( nanos ) );
+    }
+
+    /**
+     * Gets the time spent in a phase.
+     *
+     * @param phase
+     *            The name of the phase.
+     * @return The time, in nanoseconds, or 0 if the phase didn't happen.
+     */
+    public synchronized long getNanos( String phase ) {
+        Long time = nanos.get( phase );
+        return ( time == null ) ? 0 : time;
+    }
+
+    //
+    // Overrides
+    //
+
+    @Override
+    public synchronized void started( TaskEvent e ) {
+        if ( !PHASES.containsKey( e.getKind() ) ) return;
+
+        long now = System.nanoTime();
+        if ( taskCreated != 0 ) {
+            add( "Compiler startup", now - taskCreated );
+            taskCreated = 0;
+        }
+
+        starts.put( e.getKind(), now );
+    }
+
+    @Override
+    public synchronized void finished( TaskEvent e ) {
+        Long start = starts.remove( e.getKind() );
+        if ( start != null ) {
+            record( PHASES.get( e.getKind() ), start );
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder();
+        for ( Map.Entry< String, Long > entry : nanos.entrySet() ) {
+            sb.append( String.format( "    %-18s %9.3f ms%n", entry.getKey(), entry.getValue() / 1e6 ) );
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,335 @@
+package com.github.obsidianarch.jsnippet;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.tools.DiagnosticListener;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TaskListener;
+
+/**
+ * Keeps the compiler's file manager alive between builds. Creating a file manager means
+ * opening the platform classes and every archive on the classpath again, and the first build
+ * with a new one also pays for loading the compiler itself, so the same file manager is used
+ * until the compiler options or the classpath change.
+ * <p>
+ * The file manager isn't thread safe, so the builds of a session run one at a time.
+ *
+ * @author Austin
+ */
+public class CompilerSession {
+
+    //
+    // Fields
+    //
+
+    /** Compiled by {@link #prewarm()}, it touches the commonly used parts of the platform. */
+    private static final String           WARMUP_SOURCE = "import java.util.*;\n"
+                                                        + "public class Warmup {\n"
+                                                        + "    public static void main( String[] args ) {\n"
+                                                        + "        List< String > list = new ArrayList<>( Arrays.asList( args ) );\n"
+                                                        + "        Map< String, Integer > map = new HashMap<>();\n"
+                                                        + "        for ( String s : list ) map.merge( s, 1, Integer::sum );\n"
+                                                        + "        System.out.println( String.format( \"%s\", map ) );\n"
+                                                        + "    }\n"
+                                                        + "}\n";
+
+    /** The system's compiler. */
+    private final JavaCompiler            compiler      = ToolProvider.getSystemJavaCompiler();
+
+    /** The file manager shared by the builds, created on first use. */
+    private StandardJavaFileManager       fileManager;
+
+    /** The options passed to the compiler. */
+    private List< String >                options       = Collections.emptyList();
+
+    /** The classpath of the compiled code, null for the editor's own classpath. */
+    private List< File >                  classpath;
+
+    //
+    // Actions
+    //
+
+    /**
+     * Compiles the sources, keeping the classes in memory.
+     *
+     * @param units
+     *            The compilation units.
+     * @param classes
+     *            Receives the bytecode of every class the compiler wrote, by binary name. If
+     *            the code didn't compile that's whatever was generated before the errors.
+     * @param diagnostics
+     *            Receives the compiler's diagnostics, or null to print them to System.err.
+     * @param listener
+     *            Listens to the compiler task, or null.
+     * @return If the code compiled.
+     * @throws IOException
+     *             If the file manager couldn't be created.
+     */
+    public synchronized boolean compileInMemory( Iterable< ? extends JavaFileObject > units, Map< String, byte[] > classes, DiagnosticListener< ? super JavaFileObject > diagnostics, TaskListener listener ) throws IOException {
+        // not closed, that would close the shared file manager
+        MemoryFileManager memory = new MemoryFileManager( getFileManager() );
+
+        JavacTask task = ( JavacTask ) compiler.getTask( null, memory, diagnostics, options, null, units );
+        if ( listener != null ) task.addTaskListener( listener );
+
+        boolean success = task.call();
+        classes.putAll( memory.getClassBytes() );
+        return success;
+    }
+
+    /**
+     * Compiles the source files, writing the classes into the directory.
+     *
+     * @param sources
+     *            The source files.
+     * @param directory
+     *            The output directory.
+     * @param diagnostics
+     *            Receives the compiler's diagnostics, or null to print them to System.err.
+     * @param listener
+     *            Listens to the compiler task, or null.
+     * @return If the code compiled.
+     * @throws IOException
+     *             If the file manager couldn't be created or the directory can't be used.
+     */
+    public synchronized boolean compileToDirectory( List< File > sources, File directory, DiagnosticListener< ? super JavaFileObject > diagnostics, TaskListener listener ) throws IOException {
+        StandardJavaFileManager fileManager = getFileManager();
+        fileManager.setLocation( StandardLocation.CLASS_OUTPUT, Collections.singletonList( directory ) );
+
+        JavacTask task = ( JavacTask ) compiler.getTask( null, fileManager, diagnostics, options, null, fileManager.getJavaFileObjectsFromFiles( sources ) );
+        if ( listener != null ) task.addTaskListener( listener );
+
+        return task.call();
+    }
+
+    /**
+     * Compiles the source files with libraries on the classpath and the processor path,
+     * writing the classes, the resources and the sources the processors generate into
+     * directories. These builds are rare and take far less time than what they build, so they
+     * get a file manager of their own rather than changing the shared one.
+     *
+     * @param sources
+     *            The source files.
+     * @param directory
+     *            The output directory of the classes and resources.
+     * @param generatedSources
+     *            The output directory of the generated sources.
+     * @param libraries
+     *            The jars added to the classpath, which also hold the processors.
+     * @param diagnostics
+     *            Receives the compiler's diagnostics, or null to print them to System.err.
+     * @param listener
+     *            Listens to the compiler task, or null.
+     * @return If the code compiled.
+     * @throws IOException
+     *             If the file manager couldn't be created or a directory can't be used.
+     */
+    public synchronized boolean compileWithLibraries( List< File > sources, File directory, File generatedSources, List< File > libraries, DiagnosticListener< ? super JavaFileObject > diagnostics, TaskListener listener ) throws IOException {
+        List< File > fullClasspath = new ArrayList<>( getResolvedClasspath() );
+        fullClasspath.addAll( libraries );
+        generatedSources.mkdirs();
+
+        try ( StandardJavaFileManager libraryManager = compiler.getStandardFileManager( null, null, null ) ) {
+            libraryManager.setLocation( StandardLocation.CLASS_PATH, fullClasspath );
+            libraryManager.setLocation( StandardLocation.ANNOTATION_PROCESSOR_PATH, libraries );
+            libraryManager.setLocation( StandardLocation.CLASS_OUTPUT, Collections.singletonList( directory ) );
+            libraryManager.setLocation( StandardLocation.SOURCE_OUTPUT, Collections.singletonList( generatedSources ) );
+
+            JavacTask task = ( JavacTask ) compiler.getTask( null, libraryManager, diagnostics, options, null, libraryManager.getJavaFileObjectsFromFiles( sources ) );
+            if ( listener != null ) task.addTaskListener( listener );
+
+            return task.call();
+        }
+    }
+
+    /**
+     * Parses and attributes the sources without generating any classes, which is enough to
+     * find every error the compiler would report.
+     *
+     * @param units
+     *            The compilation units.
+     * @param diagnostics
+     *            Receives the compiler's diagnostics.
+     * @param listener
+     *            Listens to the compiler task, or null. An unchecked exception thrown by the
+     *            listener abandons the check.
+     * @throws IOException
+     *             If the file manager couldn't be created, or the sources couldn't be read.
+     */
+    public synchronized void analyze( Iterable< ? extends JavaFileObject > units, DiagnosticListener< ? super JavaFileObject > diagnostics, TaskListener listener ) throws IOException {
+        JavacTask task = ( JavacTask ) compiler.getTask( null, getFileManager(), diagnostics, options, null, units );
+        if ( listener != null ) task.addTaskListener( listener );
+
+        task.parse();
+        task.analyze();
+    }
+
+    /**
+     * Compiles a small class and throws it away, so that the compiler is loaded and the file
+     * manager has opened the platform classes before the first real build.
+     */
+    public void prewarm() {
+        try {
+            compileInMemory( Collections.singletonList( MemoryFileManager.createSource( "Warmup", WARMUP_SOURCE ) ), new HashMap< String, byte[] >(), null, null );
+        }
+        catch ( IOException e ) {
+            System.err.println( "Failed to warm up the compiler" );
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Closes the file manager, the next build creates a new one.
+     */
+    public synchronized void invalidate() {
+        if ( fileManager == null ) return;
+
+        try {
+            fileManager.close();
+        }
+        catch ( IOException e ) {
+            System.err.println( "Failed to close the compiler's file manager" );
+            e.printStackTrace();
+        }
+        fileManager = null;
+    }
+
+    //
+    // Setters
+    //
+
+    /**
+     * Changes the compiler options and the classpath, the file manager is only replaced if
+     * either of them is different.
+     *
+     * @param options
+     *            The options passed to the compiler.
+     * @param classpath
+     *            The classpath of the compiled code, null for the editor's own classpath.
+     */
+    public synchronized void configure( List< String > options, List< File > classpath ) {
+        List< String > newOptions = Collections.unmodifiableList( new ArrayList<>( options ) );
+        List< File > newClasspath = ( classpath == null ) ? null : Collections.unmodifiableList( new ArrayList<>( classpath ) );
+
+        if ( newOptions.equals( this.options ) && Objects.equals( newClasspath, this.classpath ) ) return;
+
+        this.options = newOptions;
+        this.classpath = newClasspath;
+        invalidate();
+    }
+
+    //
+    // Getters
+    //
+
+    /**
+     * @return The options passed to the compiler.
+     */
+    public synchronized List< String > getOptions() {
+        return options;
+    }
+
+    /**
+     * @return The classpath of the compiled code, null for the editor's own classpath.
+     */
+    public synchronized List< File > getClasspath() {
+        return classpath;
+    }
+
+    /**
+     * @return The classpath of the compiled code, with the editor's own classpath in place of
+     *         null.
+     */
+    public synchronized List< File > getResolvedClasspath() {
+        if ( classpath != null ) return classpath;
+
+        List< File > entries = new ArrayList<>();
+        for ( String entry : System.getProperty( "java.class.path" ).split( File.pathSeparator ) ) {
+            if ( !entry.isEmpty() ) entries.add( new File( entry ) );
+        }
+        return entries;
+    }
+
+    /**
+     * @return The shared file manager, which is created if there isn't one.
+     * @throws IOException
+     *             If the classpath couldn't be set.
+     */
+    private StandardJavaFileManager getFileManager() throws IOException {
+        if ( fileManager == null ) {
+            fileManager = compiler.getStandardFileManager( null, null, null );
+            if ( classpath != null ) fileManager.setLocation( StandardLocation.CLASS_PATH, classpath );
+        }
+        return fileManager;
+    }
+
+    //
+    // Static
+    //
+
+    /**
+     * Describes the classpath, so that a different or changed classpath has a different
+     * description. Every entry is a line with its path, and either its size and modification
+     * time or, for a directory, the number of class files in it and the newest of their times.
+     *
+     * @param classpath
+     *            The classpath.
+     * @return The description.
+     */
+    public static String describeClasspath( List< File > classpath ) {
+        StringBuilder sb = new StringBuilder();
+        for ( File entry : classpath ) {
+            if ( entry.isDirectory() ) {
+                // a directory's own time only changes when entries are added or removed, not
+                // when the classes in it are compiled again
+                long[] classes = new long[ 2 ];
+                describeClasses( entry, classes );
+                sb.append( entry.getAbsolutePath() ).append( '|' ).append( classes[ 0 ] ).append( '|' ).append( classes[ 1 ] ).append( '\n' );
+            }
+            else {
+                // a changed jar almost always has a different size or modification time
+                sb.append( entry.getAbsolutePath() ).append( '|' ).append( entry.length() ).append( '|' ).append( entry.lastModified() ).append( '\n' );
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Counts the class files in a directory and everything in it, and finds the newest of
+     * them.
+     *
+     * @param directory
+     *            The directory.
+     * @param classes
+     *            Receives the number of class files in its first element, and the latest
+     *            modification time in its second.
+     */
+    private static void describeClasses( File directory, long[] classes ) {
+        File[] files = directory.listFiles();
+        if ( files == null ) return;
+
+        for ( File file : files ) {
+            if ( file.isDirectory() ) {
+                describeClasses( file, classes );
+            }
+            else if ( file.getName().endsWith( ".class" ) ) {
+                classes[ 0 ]++;
+                classes[ 1 ] = Math.max( classes[ 1 ], file.lastModified() );
+            }
+        }
+    }
+
+}
@@ -7,7 +7,6 @@ import java.util.List;
 
 import org.fife.ui.autocomplete.BasicCompletion;
 import org.fife.ui.autocomplete.CompletionProvider;
-import org.fife.ui.autocomplete.DefaultCompletionProvider;
 import org.fife.ui.autocomplete.ShorthandCompletion;
 
 /**
@@ -19,7 +18,9 @@ public final class CompletionProviderFactory {
 
     /**
      * Creates the CompletionProvider with the keywords and code templates read from their
-     * respective files.
+     * respective files. The symbols of the JDK and the classpath are offered once their index
+     * has been loaded in the background, it's only built on the first launch and whenever
+     * what it was built from changes.
      * 
      * @return The created CompletionProvider.
      */
@@ -30,7 +31,7 @@ public final class CompletionProviderFactory {
         List< String[] > templates = readTemplates();
         
         // create the provider
-        DefaultCompletionProvider provider = new DefaultCompletionProvider();
+        final SymbolCompletionProvider provider = new SymbolCompletionProvider();
         
         // load data into the provider
         for ( String s : keywords ) {
@@ -41,6 +42,25 @@ public final class CompletionProviderFactory {
             provider.addCompletion( new ShorthandCompletion( provider, s[ 0 ], s[ 1 ], s[ 2 ] ) );
         }
         
+        // load the index without holding up the editor
+        Thread indexer = new Thread( new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    provider.setIndex( SymbolIndexCache.load( JSnippet.SYMBOL_INDEX, JSnippet.getCompilerSession().getResolvedClasspath() ) );
+                }
+                catch ( Exception e ) {
+                    System.err.println( "Failed to index the JDK for autocompletion" );
+                    e.printStackTrace();
+                }
+            }
+
+        }, "Symbol Indexer" );
+        indexer.setDaemon( true );
+        indexer.setPriority( Thread.MIN_PRIORITY );
+        indexer.start();
+        
         return provider;
     }
     
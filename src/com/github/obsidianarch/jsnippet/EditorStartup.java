@@ -0,0 +1,249 @@
+package com.github.obsidianarch.jsnippet;
+
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.SwingUtilities;
+import javax.swing.UIManager;
+
+import org.fife.ui.autocomplete.CompletionProvider;
+import org.fife.ui.rsyntaxtextarea.Theme;
+
+/**
+ * Opens the editor. The window is shown as soon as it's been laid out, while the theme, the
+ * default text and the autocompletion are loaded on other threads and the compiler warms up,
+ * each is applied to the editor when it's ready. How long every phase took is printed once
+ * they've all finished.
+ *
+ * @author Austin
+ */
+public class EditorStartup {
+
+    //
+    // Fields
+    //
+
+    /** When the startup began, from {@link System#nanoTime()}. */
+    private final long             start      = System.nanoTime();
+
+    /** How long each phase took. */
+    private final BuildTimings     timings    = new BuildTimings();
+
+    /** Opened once the frame exists, the loaders wait for it before applying anything. */
+    private final CountDownLatch   frameShown = new CountDownLatch( 1 );
+
+    /** The loaders and the compiler warm-up which haven't finished yet. */
+    private final AtomicInteger    remaining  = new AtomicInteger( 4 );
+
+    /** The editor, once it's been created. */
+    private volatile JSnippetFrame frame;
+
+    //
+    // Actions
+    //
+
+    /**
+     * Starts loading everything, then creates and shows the frame.
+     */
+    public void start() {
+        ExecutorService loaders = Executors.newFixedThreadPool( 3, new ThreadFactory() {
+
+            /** The number of threads created so far. */
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread( Runnable r ) {
+                Thread thread = new Thread( r );
+                thread.setName( "Startup " + count.incrementAndGet() );
+                thread.setDaemon( true );
+                return thread;
+            }
+
+        } );
+
+        loaders.execute( new Runnable() {
+
+            @Override
+            public void run() {
+                loadTheme();
+            }
+
+        } );
+        loaders.execute( new Runnable() {
+
+            @Override
+            public void run() {
+                loadDefaultText();
+            }
+
+        } );
+        loaders.execute( new Runnable() {
+
+            @Override
+            public void run() {
+                loadCompletion();
+            }
+
+        } );
+        loaders.shutdown();
+
+        Thread warmup = new Thread( new Runnable() {
+
+            @Override
+            public void run() {
+                long phase = System.nanoTime();
+                JSnippet.getCompilerSession().prewarm(); // load the compiler before the first build
+                timings.record( "Compiler warm-up", phase );
+                finished();
+            }
+
+        }, "Compiler Warmup" );
+        warmup.setDaemon( true );
+        warmup.setPriority( Thread.MIN_PRIORITY );
+        warmup.start();
+
+        long phase = System.nanoTime();
+        try {
+            UIManager.setLookAndFeel( UIManager.getSystemLookAndFeelClassName() ); // change it to the system default
+        }
+        catch ( Exception e ) {
+            JSnippet.showError( e, "setting the LookAndFeel!" );
+        }
+        timings.record( "Look and feel", phase );
+
+        try {
+            SwingUtilities.invokeAndWait( new Runnable() {
+
+                @Override
+                public void run() {
+                    long phase = System.nanoTime();
+                    frame = new JSnippetFrame();
+                    frame.setVisible( true );
+                    timings.record( "Window", phase );
+                }
+
+            } );
+        }
+        catch ( InterruptedException | InvocationTargetException e ) {
+            JSnippet.showError( e, "creating the editor window" );
+            System.exit( 1 );
+        }
+        frameShown.countDown();
+
+        System.out.printf( "Editor shown after %d milliseconds%n", TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start ) );
+
+        ExecutionService.getWorkerPool().fill(); // get a JVM ready for the first execution
+    }
+
+    /**
+     * Parses the editor's theme, and applies it.
+     */
+    private void loadTheme() {
+        long phase = System.nanoTime();
+        Theme theme = null;
+        try ( InputStream in = JSnippet.class.getResourceAsStream( "/res/eclipse_theme.xml" ) ) {
+            theme = Theme.load( in );
+        }
+        catch ( Exception e ) {
+            JSnippet.showError( e, "When loading the Eclipse theme!" );
+        }
+        timings.record( "Theme", phase );
+
+        final Theme loaded = theme;
+        apply( new Runnable() {
+
+            @Override
+            public void run() {
+                if ( loaded != null ) frame.applyTheme( loaded );
+            }
+
+        } );
+    }
+
+    /**
+     * Reads the default text, and puts it in the editor.
+     */
+    private void loadDefaultText() {
+        long phase = System.nanoTime();
+        String text = "";
+        try {
+            text = new String( Files.readAllBytes( JSnippet.DEFAULT_TEXT.toPath() ) );
+        }
+        catch ( Exception e ) {
+            JSnippet.showError( e, "Reading default text" );
+        }
+        timings.record( "Default text", phase );
+
+        final String loaded = text;
+        apply( new Runnable() {
+
+            @Override
+            public void run() {
+                frame.setDefaultText( loaded );
+            }
+
+        } );
+    }
+
+    /**
+     * Creates the completion provider, and installs it in the editor.
+     */
+    private void loadCompletion() {
+        long phase = System.nanoTime();
+        final CompletionProvider provider = CompletionProviderFactory.createProvider();
+        timings.record( "Autocompletion", phase );
+
+        apply( new Runnable() {
+
+            @Override
+            public void run() {
+                frame.installCompletion( provider );
+            }
+
+        } );
+    }
+
+    /**
+     * Waits for the frame, then runs the change on the Event Dispatch Thread.
+     *
+     * @param change
+     *            Applies what was loaded to the frame.
+     */
+    private void apply( final Runnable change ) {
+        try {
+            frameShown.await();
+        }
+        catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        SwingUtilities.invokeLater( new Runnable() {
+
+            @Override
+            public void run() {
+                change.run();
+                finished();
+            }
+
+        } );
+    }
+
+    /**
+     * Counts down a finished phase, and prints the timings after the last one.
+     */
+    private void finished() {
+        if ( remaining.decrementAndGet() != 0 ) return;
+
+        System.out.printf( "Startup finished after %d milliseconds%n", TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start ) );
+        System.out.print( timings );
+    }
+
+}
@@ -1,10 +1,15 @@
 package com.github.obsidianarch.jsnippet;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Manages the execution of binary files for JSnippet.
@@ -18,36 +23,152 @@ public class ExecutionService {
     //
     
     /** The current process. */
-    private static Process currentProcess;
+    private static Process               currentProcess;
+
+    /** The current execution inside of this JVM. */
+    private static InProcessExecution    currentExecution;
+
+    /** A stopped execution whose threads ignored the interrupt, or null. */
+    private static InProcessExecution    strandedExecution;
+
+    /** Keeps all of the output of the current or last run. */
+    private static OutputSpool           currentSpool;
+
+    /** The JVMs waiting to run snippets. */
+    private static final WorkerPool      workerPool      = new WorkerPool( 1, new ArrayList< String >(), TimeUnit.MINUTES.toMillis( 10 ) );
+
+    /** Samples the resources of every run, four times a second, and keeps the last twenty. */
+    private static final ResourceMonitor resourceMonitor = new ResourceMonitor( 250, 20 );
 
     //
     // Actions 
     //
     
+    /**
+     * Executes the class that was compiled with the given class name, with the selected run
+     * profile.
+     * 
+     * @param className
+     *            The class name to execute.
+     * @param classDirectory
+     *            The directory which contains the compiled classes.
+     * @return The process running the class.
+     */
+    public static Process startProcess( String className, File classDirectory ) throws IOException {
+        return startProcess( className, classDirectory, JSnippet.runProfiles.getSelected() );
+    }
+
     /**
      * Executes the class that was compiled with the given class name.
      * 
      * @param className
      *            The class name to execute.
+     * @param classDirectory
+     *            The directory which contains the compiled classes.
+     * @param profile
+     *            The profile the class is run with.
+     * @return The process running the class.
      */
-    public static void startProcess( String fileName, File binaryFile ) throws IOException {
+    public static Process startProcess( String className, File classDirectory, RunProfile profile ) throws IOException {
         terminateProcess();
         
-        // parameters passed to the process creator
-        String[] parameters = new String[ ] {
-            "java",
-            "-cp",
-            JSnippet.TEMP_DIR.getAbsolutePath(),
-            binaryFile.getName().substring( 0, binaryFile.getName().indexOf( '.' ) )
-        };
-        
-        currentProcess = Runtime.getRuntime().exec( parameters ); // execute the file in a different process
-        
-        BufferedReader standardOutput = new BufferedReader( new InputStreamReader( currentProcess.getInputStream() ) ); // the standard output from the program
-        BufferedReader errorOutput = new BufferedReader( new InputStreamReader( currentProcess.getErrorStream() ) ); // the error output from the program
+        List< String > arguments = profile.getArguments();
+
+        if ( workerPool.isEnabled() && profile.canUseWorker( workerPool.getJvmOptions() ) ) {
+            currentProcess = workerPool.take( className, classDirectory.getAbsolutePath(), arguments.toArray( new String[ arguments.size() ] ) ); // hand the class to a waiting JVM
+        }
+        else {
+            ProcessBuilder builder = new ProcessBuilder( profile.createCommand( className, classDirectory.getAbsolutePath() ) );
+            builder.environment().putAll( profile.getEnvironment() );
+            
+            currentProcess = builder.start(); // execute the file in a different process
+        }
         
-        OutputManager outManager = new OutputManager( System.out, standardOutput ); // manages output to System.out
-        OutputManager errManager = new OutputManager( System.err, errorOutput ); // manages output to System.err
+        return copyOutput( currentProcess, className + " [" + profile.getName() + "]", false, true );
+    }
+
+    /**
+     * Starts one fork of a benchmark, a new JVM which times the class with the
+     * {@link BenchmarkHarness}.
+     * 
+     * @param className
+     *            The class name to time.
+     * @param classDirectory
+     *            The directory which contains the compiled classes.
+     * @param profile
+     *            The profile the fork is run with.
+     * @param results
+     *            The file the times of the measured iterations are written to.
+     * @param warmups
+     *            The number of iterations before the measured ones.
+     * @param iterations
+     *            The number of measured iterations.
+     * @return The fork's process.
+     */
+    public static Process startBenchmarkFork( String className, File classDirectory, RunProfile profile, File results, int warmups, int iterations ) throws IOException {
+        terminateProcess();
+
+        String classpath = WorkerPool.getLauncherPath() + File.pathSeparator + classDirectory.getAbsolutePath();
+        List< String > harnessArguments = Arrays.asList( results.getAbsolutePath(), className, warmups + "", iterations + "" );
+
+        ProcessBuilder builder = new ProcessBuilder( profile.createCommand( BenchmarkHarness.class.getName(), classpath, harnessArguments ) );
+        builder.environment().putAll( profile.getEnvironment() );
+
+        currentProcess = builder.start();
+        return copyOutput( currentProcess, className + " [" + profile.getName() + ", benchmark fork]", false, false ); // attaching would be measured with it
+    }
+
+    /**
+     * Starts the JMH runner over the benchmarks in the class directory, in a new JVM started
+     * with the profile. The profile's arguments are passed to the runner after its own.
+     * 
+     * @param classDirectory
+     *            The directory which contains the compiled benchmarks and their list.
+     * @param libraries
+     *            The JMH jars.
+     * @param profile
+     *            The profile the runner is started with.
+     * @param runnerArguments
+     *            The arguments passed to the runner.
+     * @return The runner's process.
+     */
+    public static Process startJmh( File classDirectory, List< File > libraries, RunProfile profile, List< String > runnerArguments ) throws IOException {
+        terminateProcess();
+
+        StringBuilder classpath = new StringBuilder( classDirectory.getAbsolutePath() );
+        for ( File library : libraries ) {
+            classpath.append( File.pathSeparator ).append( library.getAbsolutePath() );
+        }
+
+        ProcessBuilder builder = new ProcessBuilder( profile.createCommand( JmhRunner.MAIN_CLASS, classpath.toString(), runnerArguments ) );
+        builder.environment().putAll( profile.getEnvironment() );
+
+        currentProcess = builder.start();
+        return copyOutput( currentProcess, "JMH runner [" + profile.getName() + "]", true, false ); // the benchmarks run in its forks
+    }
+
+    /**
+     * Copies the output of a process to the console and a new spool, samples its resources,
+     * and reports its exit.
+     * 
+     * @param process
+     *            The process.
+     * @param label
+     *            What the run is listed as by the resource monitor.
+     * @param descendants
+     *            If the processes it starts are sampled with it.
+     * @param attach
+     *            If its JVM is attached to by the resource monitor, which a run that's
+     *            measuring itself shouldn't be.
+     * @return The process.
+     */
+    private static Process copyOutput( Process process, String label, boolean descendants, boolean attach ) {
+        resourceMonitor.watch( process, label, descendants, attach );
+
+        OutputSpool spool = openSpool();
+        OutputPolicy.Limiter limiter = JSnippet.outputPolicy.createLimiter( System.err ); // shared, so both streams together stay under the rate
+        OutputManager outManager = new OutputManager( System.out, process.getInputStream(), spool, limiter, false ); // manages output to System.out
+        OutputManager errManager = new OutputManager( System.err, process.getErrorStream(), spool, limiter, true ); // manages output to System.err
 
         // start output thread
         Thread outThread = new Thread( outManager );
@@ -60,11 +181,85 @@ public class ExecutionService {
         errThread.start();
         
         // start the exit listening thread
-        Thread exitThread = new Thread( new ExitListener( currentProcess ) );
+        Thread exitThread = new Thread( new ExitListener( process, spool, limiter, outThread, errThread ) );
         exitThread.setName( "Exit Listener Thread" );
         exitThread.start();
+        
+        return process;
     }
     
+    /**
+     * Executes the class inside of this JVM, with a class loader that's thrown away after the
+     * run.
+     * 
+     * @param className
+     *            The binary name of the class to execute.
+     * @param classes
+     *            The classes from an in-memory build.
+     * @param classDirectory
+     *            The directory which contains the compiled classes, null if they're all in
+     *            memory.
+     * @param profile
+     *            The profile the class is run with, only its arguments apply inside of this
+     *            JVM.
+     */
+    public static void startInProcess( String className, Map< String, byte[] > classes, File classDirectory, RunProfile profile ) {
+        terminateProcess();
+        if ( isStranded() ) return;
+
+        List< String > arguments = profile.getArguments();
+        currentExecution = new InProcessExecution( className, new SnippetClassLoader( classes, classDirectory ), openSpool(), arguments.toArray( new String[ arguments.size() ] ) );
+        resourceMonitor.watch( currentExecution, className + " [" + profile.getName() + "]" );
+        currentExecution.start();
+    }
+    
+    /**
+     * Times the class inside of this JVM, with the same isolation as
+     * {@link #startInProcess(String, Map, File, RunProfile)}, so the run can be stopped like
+     * any other. Once it's ended its result is the times, if they were all measured.
+     * 
+     * @param className
+     *            The binary name of the class to time.
+     * @param classes
+     *            The classes from an in-memory build.
+     * @param classDirectory
+     *            The directory which contains the compiled classes, null if they're all in
+     *            memory.
+     * @param profile
+     *            The profile the class is run with, only its arguments apply inside of this
+     *            JVM.
+     * @param warmups
+     *            The number of iterations before the measured ones.
+     * @param iterations
+     *            The number of measured iterations.
+     * @return The run, whose result is a long[] of the measured times in nanoseconds, or null
+     *         if nothing can run inside of this JVM right now.
+     */
+    public static InProcessExecution startBenchmarkInProcess( String className, Map< String, byte[] > classes, File classDirectory, RunProfile profile, final int warmups, final int iterations ) {
+        terminateProcess();
+        if ( isStranded() ) return null;
+
+        List< String > arguments = profile.getArguments();
+        currentExecution = new InProcessExecution( className, new SnippetClassLoader( classes, classDirectory ), openSpool(), arguments.toArray( new String[ arguments.size() ] ) ) {
+
+            @Override
+            protected Object invoke( Class< ? > snippet, String[] arguments ) throws Exception {
+                try {
+                    return BenchmarkHarness.measure( snippet, arguments, warmups, iterations );
+                }
+                catch ( Throwable t ) {
+                    throw new InvocationTargetException( t ); // reported like an exception from main
+                }
+            }
+
+        };
+
+        InProcessExecution execution = currentExecution;
+        resourceMonitor.watch( execution, className + " [" + profile.getName() + ", benchmark]" );
+        execution.start();
+        return execution;
+    }
+
     /**
      * Forcibly closes the currently running process, if it is still running.
      */
@@ -72,6 +267,79 @@ public class ExecutionService {
         if ( ( currentProcess != null ) && currentProcess.isAlive() ) {
             currentProcess.destroyForcibly(); // force the process to die
         }
+
+        if ( currentExecution != null ) {
+            currentExecution.terminate();
+            if ( currentExecution.isRunning() ) strandedExecution = currentExecution;
+            currentExecution = null;
+        }
+    }
+
+    /**
+     * Checks if the threads of a stopped execution are still running inside of this JVM, in
+     * which case nothing else is run in it, since they keep the snippet's classes and streams.
+     * 
+     * @return If another execution can't be started inside of this JVM yet.
+     */
+    private static boolean isStranded() {
+        if ( ( strandedExecution != null ) && strandedExecution.isRunning() ) {
+            System.err.println( "[The threads of a stopped run are still running inside of the editor, use Edit > Toggle In-Process Execution to execute in a new process until they finish]" );
+            return true;
+        }
+
+        strandedExecution = null;
+        return false;
+    }
+
+    /**
+     * Closes the last run's spool and creates one for the next run.
+     * 
+     * @return The spool, or null if it couldn't be created, in which case the output is only
+     *         in the console.
+     */
+    private static synchronized OutputSpool openSpool() {
+        try {
+            if ( currentSpool != null ) currentSpool.close();
+        }
+        catch ( IOException e ) {
+            e.printStackTrace();
+        }
+
+        try {
+            currentSpool = OutputSpool.create( JSnippet.RUNS_DIR );
+        }
+        catch ( IOException e ) {
+            System.err.println( "Failed to create the output spool, the output is only in the console" );
+            e.printStackTrace();
+            currentSpool = null;
+        }
+        return currentSpool;
+    }
+
+    //
+    // Getters
+    //
+
+    /**
+     * @return The spool with all of the output of the current or last run, or null if there
+     *         hasn't been a run.
+     */
+    public static synchronized OutputSpool getCurrentSpool() {
+        return currentSpool;
+    }
+
+    /**
+     * @return Samples the resources of every run.
+     */
+    public static ResourceMonitor getResourceMonitor() {
+        return resourceMonitor;
+    }
+
+    /**
+     * @return The pool of JVMs waiting to run snippets.
+     */
+    public static WorkerPool getWorkerPool() {
+        return workerPool;
     }
 
     //
@@ -89,9 +357,24 @@ public class ExecutionService {
         //
         // Fields
         //
+
+        /**
+         * How long the output may keep arriving after the process exits, in milliseconds. A
+         * process the snippet started can hold the pipes open for as long as it lives.
+         */
+        private static final long          OUTPUT_GRACE = 2000;
         
         /** The process that we're listening to. */
-        private final Process process;
+        private final Process              process;
+
+        /** Keeps the process's output, finished once it's all arrived. */
+        private final OutputSpool          spool;
+
+        /** Limits the process's output, which reports what it suppressed at the end. */
+        private final OutputPolicy.Limiter limiter;
+
+        /** The threads copying the process's output, which have to finish first. */
+        private final Thread[]             outputThreads;
 
         //
         // Constructors
@@ -102,9 +385,19 @@ public class ExecutionService {
          * 
          * @param process
          *            The process on which this thread will wait to exit.
+         * @param spool
+         *            Keeps the process's output, or null.
+         * @param limiter
+         *            Limits the process's output.
+         * @param outputThreads
+         *            The threads copying the process's output, the exit is reported after
+         *            they've finished.
          */
-        public ExitListener( Process process ) {
+        public ExitListener( Process process, OutputSpool spool, OutputPolicy.Limiter limiter, Thread... outputThreads ) {
             this.process = process;
+            this.spool = spool;
+            this.limiter = limiter;
+            this.outputThreads = outputThreads;
         }
         
         //
@@ -116,6 +409,19 @@ public class ExecutionService {
             try {
                 int exitCode = process.waitFor(); // wait for the process to exit
                 
+                // let the last of the output through first, but not forever
+                long deadline = System.currentTimeMillis() + OUTPUT_GRACE;
+                boolean drained = true;
+                for ( Thread thread : outputThreads ) {
+                    thread.join( Math.max( 1, deadline - System.currentTimeMillis() ) );
+                    drained &= !thread.isAlive();
+                }
+                if ( !drained ) {
+                    System.err.println( "[The output is still open after the exit, a process started by the snippet may be holding it]" );
+                }
+                if ( spool != null ) spool.finish();
+                limiter.finish();
+                
                 if ( exitCode != 0 ) {
                     System.err.printf( "Exit code: %d%n", exitCode );
                 }
@@ -130,7 +436,8 @@ public class ExecutionService {
     }
 
     /**
-     * Manages output from the process.
+     * Manages output from the process. The output is copied as soon as it arrives, until the
+     * process closes its end of the pipe.
      * 
      * @author Austin
      */
@@ -141,10 +448,22 @@ public class ExecutionService {
         //
         
         /** Output to the console. */
-        private final PrintStream    output;
+        private final PrintStream          output;
         
         /** Output from the program. */
-        private final BufferedReader input;
+        private final InputStream          input;
+
+        /** Keeps all of the output, or null. */
+        private final OutputSpool          spool;
+
+        /** Decides how much of the output reaches the console. */
+        private final OutputPolicy.Limiter limiter;
+
+        /** If the output is from standard error. */
+        private final boolean              error;
+
+        /** Holds the bytes between reading and writing them, reused for every read. */
+        private final byte[]               buffer = new byte[ 8192 ];
         
         //
         // Constructors
@@ -158,38 +477,20 @@ public class ExecutionService {
          *            The print stream to write to (System.out or System.err).
          * @param input
          *            The input to read from.
+         * @param spool
+         *            Keeps all of the output, or null.
+         * @param limiter
+         *            Decides how much of the output reaches the console, it may hold up the
+         *            reading, which holds up the process once the pipe is full.
+         * @param error
+         *            If the input is the process's standard error.
          */
-        public OutputManager( PrintStream output, BufferedReader input ) {
+        public OutputManager( PrintStream output, InputStream input, OutputSpool spool, OutputPolicy.Limiter limiter, boolean error ) {
             this.output = output;
             this.input = input;
-        }
-        
-        //
-        // Actions
-        //
-        
-        /**
-         * Reads all the available characters from the input and returns them as
-         * a
-         * single string.
-         * 
-         * @return All characters that the bufferedReader currently has.
-         * @throws IOException
-         *             If there was a problem when reading characters.
-         */
-        public String readOutput() throws IOException {
-            char[] chars = new char[ 1024 ]; // we'll read 1024 characters at a time
-            
-            StringBuilder sb = new StringBuilder(); // holds all the characters, faster than string concatenation
-            
-            while ( input.ready() ) {
-                
-                int read = input.read( chars ); // reads the characters, keeps track of how many were read
-                sb.append( chars, 0, read ); // adds the read characters to the string
-                
-            }
-            
-            return sb.toString();
+            this.spool = spool;
+            this.limiter = limiter;
+            this.error = error;
         }
 
         //
@@ -200,19 +501,19 @@ public class ExecutionService {
         public void run() {
             try {
 
-                while ( currentProcess.isAlive() || input.ready() ) {
-                    
-                    if ( input.ready() ) {
-                        output.print( readOutput() );
-                    }
-                    else {
-                        Thread.sleep( 20 ); // wait before trying again
-                    }
+                int read;
+                while ( ( read = input.read( buffer ) ) != -1 ) { // blocks until there's output, or the process is gone
+                    if ( spool != null ) spool.write( buffer, 0, read, error );
+                    limiter.write( buffer, 0, read, output );
+                    output.flush();
                 }
 
             }
-            catch ( Exception e ) {
-                e.printStackTrace();
+            catch ( IOException e ) {
+                // the stream was closed from under us when the process was destroyed
+            }
+            catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
             }
             finally {
 
@@ -0,0 +1,326 @@
+package com.github.obsidianarch.jsnippet;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Runs a snippet's main method inside of the editor's JVM. The snippet gets its own class
+ * loader, a thread group for every thread it starts, and its own System.out and System.err.
+ * Snippets that call {@link System#exit(int)} will take the editor down with them, so they
+ * have to be run in a separate process.
+ * <p>
+ * Stopping a run can only interrupt its threads. Threads that don't respond keep running, and
+ * keep the snippet's classes loaded, until they finish on their own.
+ * <p>
+ * What's run is the main method, unless a subclass {@link #invoke(Class, String[]) invokes}
+ * something else.
+ *
+ * @author Austin
+ */
+public class InProcessExecution implements Runnable {
+
+    //
+    // Fields
+    //
+
+    /** How long the snippet's threads get to stop once they're interrupted, in milliseconds. */
+    private static final long          STOP_GRACE = 1000;
+
+    /** The binary name of the class to run. */
+    private final String               className;
+
+    /** The arguments passed to the main method. */
+    private final String[]             arguments;
+
+    /** The threads started by the snippet. */
+    private final ThreadGroup          group;
+
+    /** The stream that System.out was when the run started. */
+    private final PrintStream          out;
+
+    /** The stream that System.err was when the run started. */
+    private final PrintStream          err;
+
+    /** The System.out installed for the run. */
+    private PrintStream                runOut;
+
+    /** The System.err installed for the run. */
+    private PrintStream                runErr;
+
+    /** Keeps all of the run's output, or null. */
+    private final OutputSpool          spool;
+
+    /** Decides how much of the run's output reaches the streams. */
+    private final OutputPolicy.Limiter limiter;
+
+    /** Loads the snippet's classes, dropped once the run is over. */
+    private ClassLoader                loader;
+
+    /** If the run has ended, anything printed after this is thrown away. */
+    private volatile boolean           ended;
+
+    /** What the snippet returned, if it finished normally. */
+    private volatile Object            result;
+
+    //
+    // Constructors
+    //
+
+    /**
+     * Constructs the InProcessExecution for the class.
+     *
+     * @param className
+     *            The binary name of the class to run.
+     * @param loader
+     *            The class loader with the snippet's classes.
+     * @param spool
+     *            Keeps all of the run's output, or null.
+     * @param arguments
+     *            The arguments passed to the main method.
+     */
+    public InProcessExecution( String className, ClassLoader loader, OutputSpool spool, String... arguments ) {
+        this.className = className;
+        this.arguments = arguments.clone();
+        this.loader = loader;
+        this.spool = spool;
+
+        group = new ThreadGroup( "Snippet " + className );
+        out = System.out;
+        err = System.err;
+        limiter = JSnippet.outputPolicy.createLimiter( err );
+    }
+
+    //
+    // Actions
+    //
+
+    /**
+     * Starts the snippet's main thread, the output of every thread in the snippet is
+     * directed to the streams which were in place when the execution was created.
+     */
+    public void start() {
+        runOut = new PrintStream( new RunOutputStream( out, false ), true );
+        runErr = new PrintStream( new RunOutputStream( err, true ), true );
+        System.setOut( runOut );
+        System.setErr( runErr );
+
+        Thread thread = new Thread( group, this );
+        thread.setName( "main" );
+        thread.start();
+    }
+
+    /**
+     * Interrupts every thread that the snippet started and ignores anything they print
+     * afterwards. The threads get a moment to stop, if any of them don't it's reported, see
+     * {@link #isRunning()}.
+     */
+    public void terminate() {
+        if ( ended ) return;
+
+        group.interrupt();
+
+        // threads started while waiting are caught by the count afterwards
+        Thread[] threads = new Thread[ group.activeCount() + 1 ];
+        int count = group.enumerate( threads );
+        long deadline = System.currentTimeMillis() + STOP_GRACE;
+        try {
+            for ( int i = 0; i < count; i++ ) {
+                threads[ i ].join( Math.max( 1, deadline - System.currentTimeMillis() ) );
+            }
+        }
+        catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+
+        int running = group.activeCount();
+        if ( running > 0 ) {
+            err.printf( "[%d of the snippet's threads ignored the interrupt and are still running, nothing else can run inside of the editor until they finish. Execute it in a new process to be able to stop it]%n", running );
+        }
+        end( 143 );
+    }
+
+    /**
+     * Finishes the run, restoring the standard streams and dropping the class loader.
+     *
+     * @param exitCode
+     *            The code the run ended with.
+     */
+    private synchronized void end( int exitCode ) {
+        if ( ended ) return;
+        ended = true;
+
+        // put the streams back, unless somebody has already redirected them elsewhere
+        if ( System.out == runOut ) System.setOut( out );
+        if ( System.err == runErr ) System.setErr( err );
+
+        loader = null;
+        if ( spool != null ) spool.finish();
+        limiter.finish();
+
+        if ( exitCode != 0 ) {
+            err.printf( "Exit code: %d%n", exitCode );
+        }
+
+        JSnippet.printTime( "Process Ended" );
+        notifyAll();
+    }
+
+    /**
+     * Waits for the run to end, however it ends.
+     *
+     * @throws InterruptedException
+     *             If the thread was interrupted while waiting.
+     */
+    public synchronized void await() throws InterruptedException {
+        while ( !ended ) {
+            wait();
+        }
+    }
+
+    /**
+     * Runs the snippet, on its main thread.
+     *
+     * @param snippet
+     *            The snippet's class.
+     * @param arguments
+     *            A copy of the arguments, which the snippet may change.
+     * @return What the run returned, null for the main method.
+     * @throws InvocationTargetException
+     *             If the snippet threw an exception.
+     * @throws Exception
+     *             If the snippet couldn't be run.
+     */
+    protected Object invoke( Class< ? > snippet, String[] arguments ) throws Exception {
+        snippet.getMethod( "main", String[].class ).invoke( null, ( Object ) arguments );
+        return null;
+    }
+
+    /**
+     * @return If the run has ended.
+     */
+    public boolean hasEnded() {
+        return ended;
+    }
+
+    /**
+     * @return If any of the snippet's threads are still running, which they may be after the
+     *         run has been stopped.
+     */
+    public boolean isRunning() {
+        return group.activeCount() > 0;
+    }
+
+    /**
+     * @return What the run returned, null if it hasn't finished normally or it was the main
+     *         method.
+     */
+    public Object getResult() {
+        return result;
+    }
+
+    /**
+     * Checks if the current thread was started by the snippet.
+     *
+     * @return If the current thread belongs to the snippet.
+     */
+    private boolean isSnippetThread() {
+        return group.parentOf( Thread.currentThread().getThreadGroup() );
+    }
+
+    //
+    // Overrides
+    //
+
+    @Override
+    public void run() {
+        int exitCode = 0;
+
+        try {
+            Object returned = invoke( Class.forName( className, true, loader ), arguments.clone() ); // a copy, the snippet may change its array
+
+            // like the JVM, the run isn't over until every thread it started has finished
+            Thread[] threads = new Thread[ group.activeCount() + 1 ];
+            int count = group.enumerate( threads );
+            for ( int i = 0; i < count; i++ ) {
+                if ( threads[ i ] != Thread.currentThread() ) threads[ i ].join();
+            }
+            result = returned;
+        }
+        catch ( InvocationTargetException e ) {
+            System.err.print( "Exception in thread \"main\" " );
+            e.getCause().printStackTrace();
+            exitCode = 1;
+        }
+        catch ( InterruptedException e ) {
+            exitCode = 143;
+        }
+        catch ( Exception e ) {
+            e.printStackTrace();
+            exitCode = 1;
+        }
+        finally {
+            end( exitCode );
+        }
+    }
+
+    //
+    // Nested Classes
+    //
+
+    /**
+     * Sends the run's output to the stream that was in place when it started, anything the
+     * snippet's threads print after the run has ended is dropped.
+     *
+     * @author Austin
+     */
+    private class RunOutputStream extends OutputStream {
+
+        /** Where the output goes. */
+        private final PrintStream target;
+
+        /** If this is the run's standard error. */
+        private final boolean     error;
+
+        /**
+         * Constructs a RunOutputStream that writes to the target.
+         *
+         * @param target
+         *            Where the output goes.
+         * @param error
+         *            If this is the run's standard error.
+         */
+        public RunOutputStream( PrintStream target, boolean error ) {
+            this.target = target;
+            this.error = error;
+        }
+
+        @Override
+        public void write( int b ) throws IOException {
+            write( new byte[ ] { ( byte ) b }, 0, 1 );
+        }
+
+        @Override
+        public void write( byte[] b, int off, int len ) throws IOException {
+            if ( ended && isSnippetThread() ) return;
+            if ( spool != null ) spool.write( b, off, len, error );
+
+            try {
+                limiter.write( b, off, len, target );
+            }
+            catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException( "Interrupted while the output was held up" );
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            target.flush();
+        }
+
+    }
+
+}
@@ -1,20 +1,25 @@
 package com.github.obsidianarch.jsnippet;
 
-import java.io.BufferedReader;
+import java.awt.GraphicsEnvironment;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import javax.swing.JOptionPane;
-import javax.swing.UIManager;
-import javax.tools.JavaCompiler;
-import javax.tools.ToolProvider;
-
-import org.fife.ui.rsyntaxtextarea.Theme;
+import javax.tools.JavaFileObject;
 
 /**
  * @author Austin
@@ -25,35 +30,83 @@ public class JSnippet {
     // Fields
     //
     
-    /** Arguments passed to the main method when run */
-    public static String                  runArguments     = "";
-    
-    /** Maximum number of characters in a text pane. */
-    public static int                     consoleLineLimit = 1000;
+    /** Maximum number of lines in the build log. */
+    public static int                      consoleLineLimit = 1000;
+
+    /** Maximum number of lines in the output log, which keeps them off of the heap. */
+    public static int                      outputLineLimit  = 1000000;
+
+    /** What happens to a run's output when it's printed faster than the output log takes it. */
+    public static OutputPolicy             outputPolicy     = new OutputPolicy( OutputPolicy.Mode.DROP, 1024 * 1024 );
+
+    /** If the compiled classes are kept in memory, rather than written next to the source. */
+    public static boolean                  inMemoryBuild    = true;
+
+    /** If snippets are run inside of the editor's JVM, rather than in a new process. */
+    public static boolean                  runInProcess     = false;
+
+    /** The number of iterations before the measured ones when benchmarking. */
+    public static int                      benchmarkWarmups = 5;
 
-    /** Our compiler for our java source. */
-    private static final JavaCompiler     compiler         = ToolProvider.getSystemJavaCompiler();
+    /** The number of measured iterations when benchmarking. */
+    public static int                      benchmarkRuns    = 20;
+
+    /** The number of JVMs a benchmark is run in, 0 to run it inside of the editor's JVM. */
+    public static int                      benchmarkForks   = 1;
 
     /** The temporary directory where all the program files are. */
-    public static final File              TEMP_DIR         = new File( System.getProperty( "user.home" ), ".jsnippet" );
+    public static final File               TEMP_DIR         = new File( System.getProperty( "user.home" ), ".jsnippet" );
     
     /** The default text for the editor. */
-    public static final File              DEFAULT_TEXT     = new File( TEMP_DIR, "res/DefaultText.txt" );
+    public static final File               DEFAULT_TEXT     = new File( TEMP_DIR, "res/DefaultText.txt" );
     
     /** The code templates for autocompletion. */
-    public static final File              TEMPLATES        = new File( TEMP_DIR, "res/templates.txt" );
+    public static final File               TEMPLATES        = new File( TEMP_DIR, "res/templates.txt" );
     
     /** Keywords for the editor's syntax highlighter. */
-    public static final File              KEYWORDS         = new File( TEMP_DIR, "res/keywords.txt" );
+    public static final File               KEYWORDS         = new File( TEMP_DIR, "res/keywords.txt" );
+
+    /** The index of the JDK's symbols for autocompletion. */
+    public static final File               SYMBOL_INDEX     = new File( TEMP_DIR, "res/symbols.idx" );
+
+    /** Where the output of the last runs is kept. */
+    public static final File               RUNS_DIR         = new File( TEMP_DIR, "runs" );
+
+    /** The JVM options, arguments, properties and environments the snippets can be run with. */
+    public static final RunProfiles        runProfiles      = new RunProfiles( new File( TEMP_DIR, "profiles.properties" ) );
+
+    /** Where the JMH jars are, and how snippets with JMH benchmarks are run. */
+    public static JmhRunner                jmhRunner        = new JmhRunner( new File( TEMP_DIR, "jmh" ), JmhRunner.Mode.AVERAGE_TIME, 1, 3, 5 );
 
     /** The last created .java file. */
-    private static File                   sourceFile;
+    private static File                    sourceFile;
     
-    /** The last created .class file. */
-    private static File                   binaryFile;
+    /** Keeps the compiler warm between builds. */
+    private static final CompilerSession   compilerSession  = new CompilerSession();
+
+    /** The recent builds, so unchanged source doesn't have to be compiled again. */
+    private static final BuildCache        buildCache       = new BuildCache( new File( TEMP_DIR, "cache" ), 32 );
+
+    /** The output of the last successful build. */
+    private static BuildCache.Entry        currentBuild;
+
+    /** The fully qualified name of the class of the last successful build. */
+    private static String                  currentClassName;
+
+    /** If the last successful build has JMH benchmarks. */
+    private static boolean                 currentJmh;
+
+    /** How long the phases of the last build took. */
+    private static BuildTimings            lastBuildTimings;
+
+    /** The compiler's messages from the last build. */
+    private static List< BuildDiagnostic > lastDiagnostics  = Collections.emptyList();
+
+    /** The number of JVMs the last benchmark was actually run in, 0 for the editor's. */
+    private static int                     lastBenchmarkForks;
     
     /** Date format that displays, the hour, minute, second, and millisecond of the time. */
-    private static final SimpleDateFormat dateFormat       = new SimpleDateFormat( "HH:mm:ss:SSSS" );
+    private static final SimpleDateFormat  dateFormat       = new SimpleDateFormat( "HH:mm:ss:SSSS" );
 
     static {
         // make the temporary directory
@@ -63,9 +116,10 @@ public class JSnippet {
 
         // copy the new files into the program directory
         try {
+            unswapResources();
             copyText( "/res/DefaultText.txt", DEFAULT_TEXT );
-            copyText( "/res/keywords.txt", TEMPLATES );
-            copyText( "/res/templates.txt", KEYWORDS );
+            copyText( "/res/keywords.txt", KEYWORDS );
+            copyText( "/res/templates.txt", TEMPLATES );
         }
         catch ( Exception e ) {
             showError( e, "Failed to locate resources!" );
@@ -87,29 +141,10 @@ public class JSnippet {
      */
     public static boolean copyText( String resource, File output ) {
         if ( output.exists() ) return true;
-        else {
-            
-            if ( !output.getParentFile().exists() ) {
-                output.getParentFile().mkdirs();
-            }
-
-            try {
-                output.createNewFile();
-            }
-            catch ( IOException e ) {
-                e.printStackTrace();
-                return false;
-            }
-        }
-
-        try ( BufferedReader br = new BufferedReader( new InputStreamReader( JSnippet.class.getResourceAsStream( resource ) ) );
-            BufferedWriter bw = new BufferedWriter( new FileWriter( output ) ) ) {
-
-            String line;
-            while ( ( line = br.readLine() ) != null ) {
-                bw.write( String.format( "%s%n", line ) );
-            }
+        output.getParentFile().mkdirs();
 
+        try ( InputStream in = JSnippet.class.getResourceAsStream( resource ) ) {
+            Files.copy( in, output.toPath() );
             return true;
         }
         catch ( Exception e ) {
@@ -119,6 +154,54 @@ public class JSnippet {
         }
     }
 
+    /**
+     * Puts back the keywords and templates which older versions copied into each other's
+     * files. Only the first start of a new version copies them, so an existing install would
+     * otherwise keep them swapped. The templates are records of three lines, an alias, the
+     * code and a description, while the keywords are a word a line, so swapped files are
+     * templates without a line that has a space in it, and keywords with one.
+     */
+    private static void unswapResources() {
+        try {
+            if ( !KEYWORDS.isFile() || !TEMPLATES.isFile() ) return;
+
+            List< String > keywords = Files.readAllLines( KEYWORDS.toPath(), StandardCharsets.UTF_8 );
+            List< String > templates = Files.readAllLines( TEMPLATES.toPath(), StandardCharsets.UTF_8 );
+            if ( !hasSpacedLine( keywords ) || hasSpacedLine( templates ) ) return;
+
+            byte[] keywordBytes = Files.readAllBytes( KEYWORDS.toPath() );
+            Files.write( KEYWORDS.toPath(), Files.readAllBytes( TEMPLATES.toPath() ) );
+            Files.write( TEMPLATES.toPath(), keywordBytes );
+            System.out.println( "[Swapped the keywords and templates files back]" );
+        }
+        catch ( IOException e ) {
+            System.err.println( "Failed to check the keywords and templates files" );
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @param lines
+     *            The lines of a file.
+     * @return If any of them has whitespace between its words.
+     */
+    private static boolean hasSpacedLine( List< String > lines ) {
+        for ( String line : lines ) {
+            String trimmed = line.trim();
+            for ( int i = 0; i < trimmed.length(); i++ ) {
+                if ( Character.isWhitespace( trimmed.charAt( i ) ) ) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The session every build is compiled in.
+     */
+    public static CompilerSession getCompilerSession() {
+        return compilerSession;
+    }
+
     /**
      * Shows an error message to the user.
      * 
@@ -129,31 +212,27 @@ public class JSnippet {
      */
     public static void showError( Throwable error, String when ) {
         error.printStackTrace();
+        if ( GraphicsEnvironment.isHeadless() ) return; // the stack trace is all there is in batch mode
+
         String message = String.format( "Encountered a(n) \n\t %s \nWhen %s", error.getClass().getName(), when.toLowerCase() );
         JOptionPane.showMessageDialog( null, message, "Error", JOptionPane.ERROR_MESSAGE );
     }
     
     /**
-     * Extracts the name of the class from the source code.
+     * Finds the class to build and run in the source code.
      * 
      * @param source
      *            The source code.
-     * @return The name of the class.
+     * @return The fully qualified name of the public top level type, or of the first top level
+     *         type if none are public, or null if there aren't any.
+     * @see SourceScanner
      */
     public static String getClassName( String source ) {
-        String name = source.substring( source.indexOf( "class" ) + "class ".length() ); // remove everything up to and including class
-        name = name.substring( 0, name.indexOf( ' ' ) ); // remove everything following the class name
-        
-        // the user can't format and left no spaces between the class name and the curly brace
-        if ( name.contains( "{" ) ) {
-            name = name.substring( 0, name.indexOf( '{' ) ); // remove the remaining curly brace
-        }
-
-        return name;
+        return SourceScanner.scan( source ).getClassName();
     }
     
     /**
-     * Deletes the source and binary files that were created.
+     * Deletes the source file that was created, the binary files are left in the build cache.
      */
     public static void cleanup() {
 
@@ -161,11 +240,10 @@ public class JSnippet {
             sourceFile.delete();
             System.out.println( "Deleted previous source file" );
         }
-        
-        if ( ( binaryFile != null ) && binaryFile.exists() ) {
-            binaryFile.delete();
-            System.out.println( "Deleted previous binary file" );
-        }
+
+        currentBuild = null;
+        currentClassName = null;
+        currentJmh = false;
 
     }
 
@@ -173,62 +251,370 @@ public class JSnippet {
      * Compiles the source code for the file into the memory.
      * 
      * @param className
-     *            The name of the source's class.
+     *            The fully qualified name of the source's class.
      * @param source
      *            The source code.
      * @return If the code successfully compiled.
      */
     public static boolean compileSource( String className, String source ) {
-        long start = System.currentTimeMillis();
+        long start = System.nanoTime();
         System.out.println( "Starting compile of " + className + "" );
         
+        BuildTimings timings = new BuildTimings();
+        lastBuildTimings = timings;
+        
         cleanup();
 
-        sourceFile = new File( TEMP_DIR, className + ".java" );
-        binaryFile = new File( TEMP_DIR, className + ".class" );
+        // in the package's directory, like the compiler expects
+        sourceFile = new File( TEMP_DIR, "src/" + className.replace( '.', '/' ) + ".java" );
         
-        try ( BufferedWriter bw = new BufferedWriter( new FileWriter( sourceFile ) ) ) {
-            bw.write( source );
+        boolean jmh = JmhRunner.isBenchmark( source );
+        List< File > libraries = jmh ? jmhRunner.getLibraries() : Collections.< File > emptyList();
+
+        long phase = System.nanoTime();
+        List< String > keyOptions = new ArrayList<>( compilerSession.getOptions() );
+        keyOptions.add( "-classpath " + CompilerSession.describeClasspath( compilerSession.getResolvedClasspath() ) ); // the builds outlive the editor
+        if ( jmh ) keyOptions.add( "-processorpath " + libraries ); // a different JMH builds something else
+        String key = BuildCache.createKey( source, keyOptions );
+        currentBuild = buildCache.get( key );
+        boolean cached = currentBuild != null;
+        timings.record( "Cache lookup", phase );
+        
+        BuildDiagnostic.Collector diagnostics = new BuildDiagnostic.Collector();
+        if ( !cached && jmh ) {
+            currentBuild = compileJmh( key, source, libraries, diagnostics, timings );
         }
-        catch ( IOException e ) {
-            System.err.println( "Failed to write to temporary file, cancelling build" );
-            e.printStackTrace();
-            return false;
+        else if ( !cached ) {
+            currentBuild = inMemoryBuild ? compileInMemory( key, className, source, diagnostics, timings ) : compileOnDisk( key, source, diagnostics, timings );
         }
+        boolean result = currentBuild != null;
+        currentClassName = result ? className : null;
+        currentJmh = result && jmh;
 
-        int result = compiler.run( null, null, System.err, sourceFile.getAbsolutePath() );
+        lastDiagnostics = diagnostics.getDiagnostics();
+        BuildDiagnostic.print( lastDiagnostics );
 
         System.out.print( "Build " );
         System.out.flush();
-        if ( result == 0 ) {
-            System.out.print( "SUCCESS" );
+        if ( result ) {
+            System.out.print( cached ? "SUCCESS (cached)" : "SUCCESS" );
         }
         else {
             System.err.print( "FAILURE" );
             System.err.flush();
         }
-        System.out.printf( " (%d milliseconds)%n", System.currentTimeMillis() - start );
+        System.out.printf( " (%d milliseconds)%n", TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start ) );
+        System.out.print( timings );
+
+        return result;
+    }
+
+    /**
+     * Compiles the source code without using the disk, the classes are handed to the build
+     * cache which writes them out in the background.
+     * 
+     * @param key
+     *            The build's key in the cache.
+     * @param className
+     *            The fully qualified name of the source's class.
+     * @param source
+     *            The source code.
+     * @param diagnostics
+     *            Collects the compiler's messages.
+     * @param timings
+     *            Records how long the phases of the build take.
+     * @return The cached build, or null if the code didn't compile.
+     */
+    private static BuildCache.Entry compileInMemory( String key, String className, String source, BuildDiagnostic.Collector diagnostics, BuildTimings timings ) {
+        timings.taskCreated();
+
+        try {
+            Map< String, byte[] > classes = new LinkedHashMap<>();
+            JavaFileObject unit = MemoryFileManager.createSource( className, source );
+            if ( !compilerSession.compileInMemory( Collections.singletonList( unit ), classes, diagnostics, timings ) ) return null;
+
+            long phase = System.nanoTime();
+            BuildCache.Entry entry = buildCache.put( key, classes );
+            timings.record( "Cache store", phase );
+            return entry;
+        }
+        catch ( IOException e ) {
+            System.err.println( "Failed to set up the compiler's file manager" );
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Writes the source code to {@link #sourceFile} and compiles it, the compiler writes the
+     * classes into the build's directory in the cache.
+     * 
+     * @param key
+     *            The build's key in the cache.
+     * @param source
+     *            The source code.
+     * @param diagnostics
+     *            Collects the compiler's messages.
+     * @param timings
+     *            Records how long the phases of the build take.
+     * @return The cached build, or null if the code didn't compile.
+     */
+    private static BuildCache.Entry compileOnDisk( String key, String source, BuildDiagnostic.Collector diagnostics, BuildTimings timings ) {
+        long phase = System.nanoTime();
+        sourceFile.getParentFile().mkdirs();
+        try ( BufferedWriter bw = new BufferedWriter( new FileWriter( sourceFile ) ) ) {
+            bw.write( source );
+        }
+        catch ( IOException e ) {
+            System.err.println( "Failed to write to temporary file, cancelling build" );
+            e.printStackTrace();
+            return null;
+        }
+        timings.record( "Write source", phase );
+
+        phase = System.nanoTime();
+        BuildCache.Entry entry = buildCache.reserve( key );
+        timings.record( "Cache store", phase );
+        
+        timings.taskCreated();
 
-        return result == 0;
+        try {
+            if ( !compilerSession.compileToDirectory( Collections.singletonList( sourceFile ), entry.getDirectory(), diagnostics, timings ) ) {
+                buildCache.remove( key );
+                return null;
+            }
+            buildCache.complete( key );
+            return entry;
+        }
+        catch ( IOException e ) {
+            System.err.println( "Failed to set up the compiler's file manager" );
+            e.printStackTrace();
+            buildCache.remove( key );
+            return null;
+        }
     }
     
     /**
-     * Executes the compiled binary file.
+     * Writes the source code to {@link #sourceFile} and compiles it with the JMH jars, whose
+     * annotation processor generates the benchmarks' code and the list of benchmarks the
+     * runner reads. These builds always go through the disk, as the runner needs the list
+     * next to the classes.
+     * 
+     * @param key
+     *            The build's key in the cache.
+     * @param source
+     *            The source code.
+     * @param libraries
+     *            The JMH jars.
+     * @param diagnostics
+     *            Collects the compiler's messages.
+     * @param timings
+     *            Records how long the phases of the build take.
+     * @return The cached build, or null if the code didn't compile.
+     */
+    private static BuildCache.Entry compileJmh( String key, String source, List< File > libraries, BuildDiagnostic.Collector diagnostics, BuildTimings timings ) {
+        if ( libraries.isEmpty() ) {
+            System.err.printf( "The snippet has JMH benchmarks, but there are no jars in %s (Edit > JMH Settings)%n", jmhRunner.getDirectory() );
+            return null;
+        }
+
+        long phase = System.nanoTime();
+        sourceFile.getParentFile().mkdirs();
+        try ( BufferedWriter bw = new BufferedWriter( new FileWriter( sourceFile ) ) ) {
+            bw.write( source );
+        }
+        catch ( IOException e ) {
+            System.err.println( "Failed to write to temporary file, cancelling build" );
+            e.printStackTrace();
+            return null;
+        }
+        timings.record( "Write source", phase );
+
+        phase = System.nanoTime();
+        BuildCache.Entry entry = buildCache.reserve( key );
+        timings.record( "Cache store", phase );
+        
+        timings.taskCreated();
+
+        try {
+            File generated = new File( entry.getDirectory(), "generated-sources" ); // evicted with the build
+            if ( !compilerSession.compileWithLibraries( Collections.singletonList( sourceFile ), entry.getDirectory(), generated, libraries, diagnostics, timings ) ) {
+                buildCache.remove( key );
+                return null;
+            }
+            buildCache.complete( key );
+            return entry;
+        }
+        catch ( IOException e ) {
+            System.err.println( "Failed to set up the compiler's file manager" );
+            e.printStackTrace();
+            buildCache.remove( key );
+            return null;
+        }
+    }
+
+    /**
+     * Runs the JMH benchmarks of the last build with the runner's settings. The runner's JVM
+     * is started with the profile, whose arguments are passed to the runner, and JMH starts
+     * its forks with the same JVM options.
+     * 
+     * @param profile
+     *            The profile the runner is started with.
+     * @return The results, or null if the benchmarks couldn't be run.
+     */
+    public static final JmhResults runJmh( RunProfile profile ) {
+        BuildCache.Entry build = currentBuild;
+        if ( ( build == null ) || !currentJmh ) return null;
+
+        JmhRunner runner = jmhRunner;
+        System.out.printf( "[JMH: %s]%n", runner );
+
+        File results = null;
+        try {
+            results = File.createTempFile( "jmh", ".csv", TEMP_DIR );
+            Process process = ExecutionService.startJmh( build.getDirectory(), runner.getLibraries(), profile, runner.createArguments( results ) );
+            if ( process.waitFor() != 0 ) return null; // the exit listener reports the exit code
+
+            return JmhResults.read( results );
+        }
+        catch ( IOException e ) {
+            System.err.println( "Failed to read the JMH results" );
+            e.printStackTrace();
+            return null;
+        }
+        catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        finally {
+            if ( results != null ) results.delete();
+        }
+    }
+
+    /**
+     * Executes the compiled binary file with the selected run profile.
      * 
      * @param fileName
-     *            The file name.
+     *            The fully qualified name of the class, which is run from the root of the
+     *            build's class directory.
      */
     public static final void executeClass( String fileName ) {
-        if ( ( binaryFile == null ) || !binaryFile.exists() ) return;
+        executeClass( fileName, runProfiles.getSelected() );
+    }
+
+    /**
+     * Executes the compiled binary file.
+     * 
+     * @param fileName
+     *            The fully qualified name of the class, which is run from the root of the
+     *            build's class directory.
+     * @param profile
+     *            The profile the class is run with.
+     */
+    public static final void executeClass( String fileName, RunProfile profile ) {
+        BuildCache.Entry build = currentBuild;
+        if ( build == null ) return;
+
+        // printed before the run starts, the execution service only ever writes the run's own output
+        System.out.printf( "[Run profile: %s]%n", profile );
+
+        if ( runInProcess && profile.canRunInProcess() ) {
+            // in-memory builds don't need to wait for the cache to write them out
+            File directory = build.getClasses().isEmpty() ? build.getDirectory() : null;
+            ExecutionService.startInProcess( fileName, build.getClasses(), directory, profile );
+            return;
+        }
+        else if ( runInProcess ) {
+            System.err.printf( "[The %s profile needs its own JVM, executing in a new process]%n", profile.getName() );
+        }
 
         try {
-            ExecutionService.startProcess( fileName, binaryFile );
+            ExecutionService.startProcess( fileName, build.getDirectory(), profile );
         }
         catch ( IOException e ) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Times the compiled class, either inside of this JVM or in new JVMs started with the
+     * profile, one after the other. Forks are only as fast as a fresh JVM, but aren't skewed
+     * by the editor or by what the runs before them left behind.
+     * 
+     * @param className
+     *            The fully qualified name of the class.
+     * @param profile
+     *            The profile the class is run with.
+     * @param warmups
+     *            The number of iterations before the measured ones, in every fork.
+     * @param iterations
+     *            The number of measured iterations, in every fork.
+     * @param forks
+     *            The number of JVMs the class is timed in, 0 to time it inside of this one.
+     *            A profile which needs its own JVM is timed in one fork instead of none, see
+     *            {@link #getLastBenchmarkForks()}.
+     * @return The times of every measured iteration in nanoseconds, or null if the class
+     *         couldn't be timed.
+     */
+    public static final long[] benchmarkClass( String className, RunProfile profile, int warmups, int iterations, int forks ) {
+        BuildCache.Entry build = currentBuild;
+        if ( build == null ) return null;
+
+        System.out.printf( "[Run profile: %s]%n", profile );
+
+        if ( ( forks == 0 ) && !profile.canRunInProcess() ) {
+            System.err.printf( "[The %s profile needs its own JVM, benchmarking in one fork]%n", profile.getName() );
+            forks = 1;
+        }
+        lastBenchmarkForks = forks;
+
+        if ( forks == 0 ) {
+            // run like any in-process execution, so it can be stopped and its output is limited
+            File directory = build.getClasses().isEmpty() ? build.getDirectory() : null;
+            InProcessExecution execution = ExecutionService.startBenchmarkInProcess( className, build.getClasses(), directory, profile, warmups, iterations );
+            if ( execution == null ) return null;
+
+            try {
+                execution.await();
+            }
+            catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            return ( long[] ) execution.getResult(); // null if it failed or was stopped
+        }
+
+        long[] times = new long[ forks * iterations ];
+        for ( int fork = 0; fork < forks; fork++ ) {
+            System.out.printf( "# Fork %d of %d%n", fork + 1, forks );
+
+            File results = null;
+            try {
+                results = File.createTempFile( "benchmark", ".txt", TEMP_DIR );
+                Process process = ExecutionService.startBenchmarkFork( className, build.getDirectory(), profile, results, warmups, iterations );
+                if ( process.waitFor() != 0 ) return null; // the exit listener reports the exit code
+
+                List< String > lines = Files.readAllLines( results.toPath() );
+                for ( int i = 0; i < iterations; i++ ) {
+                    times[ fork * iterations + i ] = Long.parseLong( lines.get( i ) );
+                }
+            }
+            catch ( IOException | RuntimeException e ) {
+                System.err.println( "Failed to run the benchmark fork" );
+                e.printStackTrace();
+                return null;
+            }
+            catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            finally {
+                if ( results != null ) results.delete();
+            }
+        }
+        return times;
+    }
+
     /**
      * Prints the time with a message along with it.
      * 
@@ -243,6 +629,44 @@ public class JSnippet {
     // Getters
     //
     
+    /**
+     * @return How long the phases of the last build took, or null if nothing has been built.
+     */
+    public static BuildTimings getLastBuildTimings() {
+        return lastBuildTimings;
+    }
+
+    /**
+     * @return The fully qualified name of the class of the last successful build, or null if
+     *         there isn't one.
+     */
+    public static String getBuiltClassName() {
+        return currentClassName;
+    }
+
+    /**
+     * @return If the last successful build has JMH benchmarks, which are run by the JMH
+     *         runner rather than through the main method.
+     */
+    public static boolean isJmhBuild() {
+        return currentJmh;
+    }
+
+    /**
+     * @return The number of JVMs the last benchmark was run in, 0 if it was run inside of the
+     *         editor's.
+     */
+    public static int getLastBenchmarkForks() {
+        return lastBenchmarkForks;
+    }
+
+    /**
+     * @return The compiler's messages from the last build, empty if it was cached.
+     */
+    public static List< BuildDiagnostic > getLastDiagnostics() {
+        return lastDiagnostics;
+    }
+    
     /**
      * @return The current time with hours, minutes, seconds, and milliseconds.
      */
@@ -258,27 +682,16 @@ public class JSnippet {
      * Starts the JSnippet program.
      * 
      * @param args
-     *            Command line arguments (ignored).
+     *            Command line arguments, {@code --batch} followed by the {@link BatchRunner}'s
+     *            arguments runs a directory of snippets without the editor.
      */
     public static void main( String[] args ) {
-        try {
-            UIManager.setLookAndFeel( UIManager.getSystemLookAndFeelClassName() ); // change it to the system default
-        }
-        catch ( Exception e ) {
-            showError( e, "setting the LookAndFeel!" );
-        }
-        
-        Theme theme = null;
-        try {
-            theme = Theme.load( JSnippet.class.getResourceAsStream( "/res/eclipse_theme.xml" ) );
-        }
-        catch ( Exception e ) {
-            showError( e, "When loading the Eclipse theme!" );
-            System.exit( 0 );
+        if ( ( args.length > 0 ) && args[ 0 ].equals( "--batch" ) ) {
+            System.setProperty( "java.awt.headless", "true" );
+            System.exit( BatchRunner.run( Arrays.copyOfRange( args, 1, args.length ) ) );
         }
 
-        JSnippetFrame frame = new JSnippetFrame( theme );
-        frame.setVisible( true );
+        new EditorStartup().start();
     }
     
 }
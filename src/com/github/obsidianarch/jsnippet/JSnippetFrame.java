@@ -3,21 +3,31 @@ package com.github.obsidianarch.jsnippet;
 import static javax.swing.KeyStroke.*;
 
 import java.awt.BorderLayout;
+import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Font;
+import java.awt.event.ActionListener;
 import java.awt.event.WindowEvent;
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import javax.swing.JFrame;
+import javax.swing.JMenuItem;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JSplitPane;
 import javax.swing.JTabbedPane;
+import javax.swing.JTable;
 import javax.swing.JTextPane;
+import javax.swing.SwingUtilities;
 import javax.swing.border.EmptyBorder;
+import javax.swing.table.DefaultTableModel;
+import javax.swing.text.BadLocationException;
 
 import org.fife.ui.autocomplete.AutoCompletion;
+import org.fife.ui.autocomplete.CompletionProvider;
+import org.fife.ui.rsyntaxtextarea.ErrorStrip;
 import org.fife.ui.rsyntaxtextarea.RSyntaxTextArea;
 import org.fife.ui.rsyntaxtextarea.SyntaxConstants;
 import org.fife.ui.rsyntaxtextarea.Theme;
@@ -37,11 +47,23 @@ public class JSnippetFrame extends SimpleFrame {
     // Fields
     //
     
+    /** The highlight of a line with an error. */
+    private static final Color ERROR_HIGHLIGHT = new Color( 255, 220, 220 );
+
+    /** The highlight of a line with a warning. */
+    private static final Color WARNING_HIGHLIGHT = new Color( 255, 245, 200 );
+
+    /** The columns of the benchmark results. */
+    private static final String[] BENCHMARK_COLUMNS = { "Snippet", "Profile", "Forks", "Iterations", "Mean", "Std Dev", "Min", "p50", "p90", "p99", "Max", "Outliers" };
+
     /** The console that displays build messages to the user. */
     private final MessageConsole buildConsole;
     
-    /** The console that displays the output from the program to the user. */
-    private final MessageConsole outputConsole;
+    /** Runs the menu actions off of the Event Dispatch Thread. */
+    private final ActionDispatcher dispatcher = new ActionDispatcher( MenuItemActions.class, this );
+
+    /** The errors from the last build, in the order they were reported. */
+    private List< BuildDiagnostic > errors = Collections.emptyList();
 
     //
     // Components
@@ -57,18 +79,36 @@ public class JSnippetFrame extends SimpleFrame {
     private JTextPane         buildLog;
     
     /** Everything printed to the console during the program's execution. */
-    private JTextPane         outputLog;
+    private OutputViewer      outputLog;
+
+    /** The tabs with the output log, the benchmark results and the resource monitor. */
+    private JTabbedPane       outputTabs;
+
+    /** The statistics of every benchmark, one row each. */
+    private DefaultTableModel benchmarkResults;
+
+    /** The results of the last JMH run, which sort by the clicked column. */
+    private JTable            jmhTable;
+
+    /** Checks the source for errors while it's typed. */
+    private BackgroundChecker checker;
     
     //
     // Constructors
     //
 
     /**
-     * Creates the frame.
+     * Creates the frame, without its theme, default text or autocompletion, which are added
+     * once they've been loaded.
+     * 
+     * @see EditorStartup
      */
-    public JSnippetFrame( Theme theme ) {
+    public JSnippetFrame() {
         super( MenuItemActions.class );
         
+        // these share the last build, so only one of them can run at a time
+        dispatcher.serialize( "build", "execute", "executeWithProfile", "executeAsBenchmark", "buildAndExecute" );
+        
         setTitle( "JSnippet" );
         setDefaultCloseOperation( JFrame.EXIT_ON_CLOSE );
         setBounds( 100, 100, 810, 600 );
@@ -80,37 +120,23 @@ public class JSnippetFrame extends SimpleFrame {
             setContentPane( contentPane );
             
             {
-                textArea = new RSyntaxTextArea();
-
-                StringBuilder sb = new StringBuilder();
-                try ( BufferedReader br = new BufferedReader( new FileReader( JSnippet.DEFAULT_TEXT ) ) ) {
-                    
-                    String line;
-                    while ( ( line = br.readLine() ) != null ) {
-                        sb.append( String.format( "%s%n", line ) );
-                    }
-
-                }
-                catch ( Exception e ) {
-                    JSnippet.showError( e, "Reading default text" );
-                }
-                textArea.setText( sb.toString() );
-                
+                textArea = new RSyntaxTextArea(); // the default text is put in once it's been read
                 textArea.setTabsEmulated( true );
                 textArea.setTabSize( 4 );
                 textArea.setSyntaxEditingStyle( SyntaxConstants.SYNTAX_STYLE_JAVA );
                 textArea.setCodeFoldingEnabled( true );
                 textArea.setAntiAliasingEnabled( true );
                 
-                theme.apply( textArea );
-                
-                AutoCompletion ac = new AutoCompletion( CompletionProviderFactory.createProvider() );
-                ac.setAutoActivationDelay( 50 );
-                ac.setAutoActivationEnabled( true );
-                ac.setAutoCompleteEnabled( true );
-                ac.install( textArea );
-                
-                contentPane.add( new RTextScrollPane( textArea ) );
+                checker = new BackgroundChecker( textArea );
+                textArea.addParser( checker );
+
+                RTextScrollPane scrollPane = new RTextScrollPane( textArea );
+                scrollPane.setIconRowHeaderEnabled( true ); // the checker's notices go in the gutter
+
+                JPanel editorPanel = new JPanel( new BorderLayout() );
+                editorPanel.add( scrollPane );
+                editorPanel.add( new ErrorStrip( textArea ), BorderLayout.EAST );
+                contentPane.add( editorPanel );
             }
             
             /* Unfortunately, we are making an anonymous class for this. */
@@ -139,39 +165,262 @@ public class JSnippetFrame extends SimpleFrame {
                     panel.setLeftComponent( tabbedPane );
                 }
                 
-                outputLog = new JTextPane();
+                outputLog = new OutputViewer();
                 outputLog.setFont( new Font( "Consolas", Font.PLAIN, 10 ) );
-                outputLog.setEditable( false );
-                outputLog.setAutoscrolls( true );
+                outputLog.setLineLimit( JSnippet.outputLineLimit );
+                benchmarkResults = new DefaultTableModel( BENCHMARK_COLUMNS, 0 ) {
+
+                    @Override
+                    public boolean isCellEditable( int row, int column ) {
+                        return false;
+                    }
+
+                };
                 {
-                    JTabbedPane tabbedPane = new JTabbedPane();
-                    tabbedPane.addTab( "Output Log", null, new JScrollPane( outputLog ), null );
-                    panel.setRightComponent( tabbedPane );
+                    outputTabs = new JTabbedPane();
+                    outputTabs.addTab( "Output Log", null, new JScrollPane( outputLog ), null );
+                    outputTabs.addTab( "Benchmarks", null, new JScrollPane( new JTable( benchmarkResults ) ), null );
+                    jmhTable = new JTable();
+                    jmhTable.setAutoCreateRowSorter( true );
+                    outputTabs.addTab( "JMH Results", null, new JScrollPane( jmhTable ), null );
+                    outputTabs.addTab( "Resources", null, new ResourcePanel( ExecutionService.getResourceMonitor() ), null );
+                    panel.setRightComponent( outputTabs );
                 }
 
             }
             
-            addMenuItem( getKeyStroke( "F6" ), "File", "Build" ).setActionCommand( "build" );
-            addMenuItem( getKeyStroke( "control F5" ), "File", "Execute" ).setActionCommand( "execute" );
-            addMenuItem( getKeyStroke( "F5" ), "File", "Build and Execute" ).setActionCommand( "buildAndExecute" );
+            bind( addMenuItem( getKeyStroke( "F6" ), "File", "Build" ), "build" );
+            bind( addMenuItem( getKeyStroke( "control F5" ), "File", "Execute" ), "execute" );
+            bind( addMenuItem( getKeyStroke( "F5" ), "File", "Build and Execute" ), "buildAndExecute" );
+            bind( addMenuItem( getKeyStroke( "control shift F5" ), "File", "Execute with Profile" ), "executeWithProfile" );
+            bind( addMenuItem( getKeyStroke( "control alt F5" ), "File", "Execute as Benchmark" ), "executeAsBenchmark" );
+            bind( addMenuItem( getKeyStroke( "F2" ), "File", "Next Error" ), "nextError" );
+            addSeparator( "File" );
+            bind( addMenuItem( getKeyStroke( "control shift S" ), "File", "Save Output" ), "saveOutput" );
+            bind( addMenuItem( getKeyStroke( "control shift F" ), "File", "Find in Output" ), "findInOutput" );
             addSeparator( "File" );
-            addMenuItem( getKeyStroke( "control B" ), "File", "Stop Tool" ).setActionCommand( "stopTool" );
+            bind( addMenuItem( getKeyStroke( "control B" ), "File", "Stop Tool" ), "stopTool" );
             addSeparator( "File" );
-            addMenuItem( getKeyStroke( "alt F4" ), "File", "Exit" ).setActionCommand( "exit" );
+            bind( addMenuItem( getKeyStroke( "alt F4" ), "File", "Exit" ), "exit" );
             
-            addMenuItem( getKeyStroke( "control shift R" ), "Edit", "Run Arguments" ).setActionCommand( "editRunArgs" );
-            addMenuItem( "Edit", "Console Line Limits" ).setActionCommand( "editLineLimit" );
+            bind( addMenuItem( getKeyStroke( "control shift R" ), "Edit", "Run Arguments" ), "editRunArgs" );
+            bind( addMenuItem( "Edit", "Run Profiles" ), "editRunProfiles" );
+            bind( addMenuItem( "Edit", "Console Line Limits" ), "editLineLimit" );
+            bind( addMenuItem( "Edit", "Compiler Settings" ), "editCompilerSettings" );
+            bind( addMenuItem( "Edit", "Toggle In-Memory Build" ), "toggleInMemoryBuild" );
+            bind( addMenuItem( "Edit", "Toggle In-Process Execution" ), "toggleInProcessExecution" );
+            bind( addMenuItem( "Edit", "Worker Pool" ), "editWorkerPool" );
+            bind( addMenuItem( "Edit", "Output Policy" ), "editOutputPolicy" );
+            bind( addMenuItem( "Edit", "JMH Settings" ), "editJmhSettings" );
             addSeparator( "Edit" );
-            addMenuItem( "Edit", "Reset Default Text" ).setActionCommand( "resetDefaultText" );
-            addMenuItem( "Edit", "Reset Template File" ).setActionCommand( "resetTemplates" );
-            addMenuItem( "Edit", "Reset Keywords File" ).setActionCommand( "resetKeywords" );
+            bind( addMenuItem( "Edit", "Reset Default Text" ), "resetDefaultText" );
+            bind( addMenuItem( "Edit", "Reset Template File" ), "resetTemplates" );
+            bind( addMenuItem( "Edit", "Reset Keywords File" ), "resetKeywords" );
         }
         
         buildConsole = new MessageConsole( buildLog );
         buildConsole.setMessageLines( JSnippet.consoleLineLimit );
+    }
+    
+    //
+    // Actions
+    //
+
+    /**
+     * Has the dispatcher run the action when the menu item is clicked, in place of whatever
+     * was listening to it.
+     * 
+     * @param item
+     *            The menu item.
+     * @param command
+     *            The action command, which is the name of the method in
+     *            {@link MenuItemActions}.
+     */
+    private void bind( JMenuItem item, String command ) {
+        for ( ActionListener listener : item.getActionListeners() ) {
+            item.removeActionListener( listener );
+        }
+
+        item.setActionCommand( command );
+        item.addActionListener( dispatcher );
+    }
+    
+    /**
+     * Applies the theme to the editor, called on the Event Dispatch Thread.
+     * 
+     * @param theme
+     *            The theme.
+     */
+    public void applyTheme( Theme theme ) {
+        theme.apply( textArea );
+    }
+
+    /**
+     * Puts the default text in the editor, unless something has already been typed. Called on
+     * the Event Dispatch Thread.
+     * 
+     * @param text
+     *            The default text.
+     */
+    public void setDefaultText( String text ) {
+        if ( textArea.getDocument().getLength() != 0 ) return;
+
+        textArea.setText( text );
+        textArea.setCaretPosition( 0 );
+        textArea.discardAllEdits(); // so it can't be undone
+    }
+
+    /**
+     * Installs autocompletion in the editor, called on the Event Dispatch Thread.
+     * 
+     * @param provider
+     *            Provides the completions.
+     */
+    public void installCompletion( CompletionProvider provider ) {
+        AutoCompletion ac = new AutoCompletion( provider );
+        ac.setAutoActivationDelay( 50 );
+        ac.setAutoActivationEnabled( true );
+        ac.setAutoCompleteEnabled( true );
+        ac.install( textArea );
+    }
+    
+    /**
+     * Highlights the lines of the build's errors and warnings, and moves the caret to the
+     * first error.
+     * 
+     * @param diagnostics
+     *            The compiler's messages from the build.
+     */
+    public void showDiagnostics( final List< BuildDiagnostic > diagnostics ) {
+        SwingUtilities.invokeLater( new Runnable() {
+
+            @Override
+            public void run() {
+                textArea.removeAllLineHighlights();
+
+                List< BuildDiagnostic > found = new ArrayList<>();
+                for ( BuildDiagnostic diagnostic : diagnostics ) {
+                    if ( diagnostic.getLine() == 0 ) continue;
+                    if ( diagnostic.isError() ) found.add( diagnostic );
+
+                    try {
+                        textArea.addLineHighlight( diagnostic.getLine() - 1, diagnostic.isError() ? ERROR_HIGHLIGHT : WARNING_HIGHLIGHT );
+                    }
+                    catch ( BadLocationException e ) {
+                        // the text has been edited since the build
+                    }
+                }
+
+                errors = found;
+                if ( !errors.isEmpty() ) moveCaretTo( errors.get( 0 ) );
+            }
+
+        } );
+    }
+
+    /**
+     * Adds the statistics of a benchmark to the results, and shows them.
+     * 
+     * @param className
+     *            The class that was timed.
+     * @param profile
+     *            The profile it was run with.
+     * @param forks
+     *            The number of JVMs it was timed in, 0 for the editor's.
+     * @param statistics
+     *            The statistics of the measured iterations.
+     */
+    public void addBenchmarkResult( final String className, final RunProfile profile, final int forks, final BenchmarkStatistics statistics ) {
+        SwingUtilities.invokeLater( new Runnable() {
+
+            @Override
+            public void run() {
+                benchmarkResults.addRow( new Object[ ] {
+                    className,
+                    profile.getName(),
+                    ( forks == 0 ) ? "In-Process" : forks + "",
+                    statistics.getCount(),
+                    BenchmarkStatistics.formatTime( statistics.getMean() ),
+                    BenchmarkStatistics.formatTime( statistics.getStandardDeviation() ),
+                    BenchmarkStatistics.formatTime( statistics.getMin() ),
+                    BenchmarkStatistics.formatTime( statistics.getPercentile( 50 ) ),
+                    BenchmarkStatistics.formatTime( statistics.getPercentile( 90 ) ),
+                    BenchmarkStatistics.formatTime( statistics.getPercentile( 99 ) ),
+                    BenchmarkStatistics.formatTime( statistics.getMax() ),
+                    statistics.getLowOutliers() + " low, " + statistics.getHighOutliers() + " high"
+                } );
+                outputTabs.setSelectedIndex( 1 );
+            }
+
+        } );
+    }
+
+    /**
+     * Shows the results of a JMH run, in place of the last ones.
+     * 
+     * @param results
+     *            The results.
+     */
+    public void showJmhResults( final JmhResults results ) {
+        SwingUtilities.invokeLater( new Runnable() {
+
+            @Override
+            public void run() {
+                jmhTable.setModel( results );
+                outputTabs.setSelectedIndex( 2 );
+            }
 
-        outputConsole = new MessageConsole( outputLog );
-        outputConsole.setMessageLines( JSnippet.consoleLineLimit );
+        } );
+    }
+
+    /**
+     * Moves the caret to the next error from the last build after the caret's line, going
+     * back to the first after the last.
+     */
+    public void nextError() {
+        SwingUtilities.invokeLater( new Runnable() {
+
+            @Override
+            public void run() {
+                if ( errors.isEmpty() ) return;
+
+                int caretLine;
+                try {
+                    caretLine = textArea.getLineOfOffset( textArea.getCaretPosition() ) + 1;
+                }
+                catch ( BadLocationException e ) {
+                    caretLine = 0;
+                }
+
+                for ( BuildDiagnostic error : errors ) {
+                    if ( error.getLine() > caretLine ) {
+                        moveCaretTo( error );
+                        return;
+                    }
+                }
+                moveCaretTo( errors.get( 0 ) );
+            }
+
+        } );
+    }
+
+    /**
+     * Moves the caret to the diagnostic's line and column, called on the Event Dispatch
+     * Thread.
+     * 
+     * @param diagnostic
+     *            The diagnostic.
+     */
+    private void moveCaretTo( BuildDiagnostic diagnostic ) {
+        try {
+            int line = Math.min( diagnostic.getLine() - 1, textArea.getLineCount() - 1 );
+            int offset = textArea.getLineStartOffset( line ) + Math.max( 0, diagnostic.getColumn() - 1 );
+            textArea.setCaretPosition( Math.min( offset, textArea.getLineEndOffset( line ) ) );
+            textArea.requestFocusInWindow();
+        }
+        catch ( BadLocationException e ) {
+            // the text has been edited since the build
+        }
     }
     
     //
@@ -185,6 +434,13 @@ public class JSnippetFrame extends SimpleFrame {
         return textArea;
     }
     
+    /**
+     * @return The checker which finds errors while the source is typed.
+     */
+    public BackgroundChecker getChecker() {
+        return checker;
+    }
+    
     /**
      * @return The MessageConsole used for the build output.
      */
@@ -193,10 +449,10 @@ public class JSnippetFrame extends SimpleFrame {
     }
     
     /**
-     * @return The MessageConsole use for the program output.
+     * @return The viewer of the program output.
      */
-    public MessageConsole getOutputConsole() {
-        return outputConsole;
+    public OutputViewer getOutputViewer() {
+        return outputLog;
     }
     
     //
@@ -0,0 +1,213 @@
+package com.github.obsidianarch.jsnippet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * The results of a JMH run, read from the CSV the runner writes with {@code -rf csv}. Every
+ * column in which every value is a number holds Longs or Doubles, so that a table sorts it by
+ * value rather than as text.
+ *
+ * @author Austin
+ */
+public class JmhResults extends AbstractTableModel {
+
+    //
+    // Fields
+    //
+
+    /** The names of the columns. */
+    private final List< String >   columns;
+
+    /** The rows, with a value for every column. */
+    private final List< Object[] > rows;
+
+    /** The type of each column, String unless every value in it is a number. */
+    private final Class< ? >[]     types;
+
+    //
+    // Constructors
+    //
+
+    /**
+     * Constructs the JmhResults of the parsed CSV.
+     *
+     * @param columns
+     *            The names of the columns.
+     * @param rows
+     *            The values of the rows, as text.
+     */
+    private JmhResults( List< String > columns, List< List< String > > rows ) {
+        this.columns = columns;
+        this.rows = new ArrayList<>();
+        types = new Class< ? >[ columns.size() ];
+
+        for ( int column = 0; column < types.length; column++ ) {
+            types[ column ] = Long.class;
+            for ( List< String > row : rows ) {
+                String value = getValue( row, column );
+                if ( value.isEmpty() || isLong( value ) ) continue;
+
+                if ( !isNumber( value ) ) {
+                    types[ column ] = String.class;
+                    break;
+                }
+                types[ column ] = Double.class;
+            }
+        }
+
+        for ( List< String > row : rows ) {
+            Object[] values = new Object[ types.length ];
+            for ( int column = 0; column < types.length; column++ ) {
+                String value = getValue( row, column );
+                if ( value.isEmpty() || ( types[ column ] == String.class ) ) values[ column ] = value;
+                else values[ column ] = ( types[ column ] == Long.class ) ? ( Object ) Long.valueOf( value ) : ( Object ) Double.valueOf( value );
+            }
+            this.rows.add( values );
+        }
+    }
+
+    //
+    // Overrides
+    //
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.size();
+    }
+
+    @Override
+    public String getColumnName( int column ) {
+        return columns.get( column );
+    }
+
+    @Override
+    public Class< ? > getColumnClass( int column ) {
+        return types[ column ];
+    }
+
+    @Override
+    public Object getValueAt( int row, int column ) {
+        Object value = rows.get( row )[ column ];
+        return "".equals( value ) ? null : value; // an empty number sorts first, not as text
+    }
+
+    //
+    // Static
+    //
+
+    /**
+     * Reads the results the JMH runner wrote.
+     *
+     * @param file
+     *            The CSV file.
+     * @return The results.
+     * @throws IOException
+     *             If the file couldn't be read, or it's empty.
+     */
+    public static JmhResults read( File file ) throws IOException {
+        List< String > lines = Files.readAllLines( file.toPath(), StandardCharsets.UTF_8 );
+        if ( lines.isEmpty() ) throw new IOException( "The JMH results are empty" );
+
+        List< List< String > > rows = new ArrayList<>();
+        for ( String line : lines.subList( 1, lines.size() ) ) {
+            if ( !line.trim().isEmpty() ) rows.add( splitLine( line ) );
+        }
+        return new JmhResults( splitLine( lines.get( 0 ) ), rows );
+    }
+
+    /**
+     * Splits a line of CSV into its values, a value in double quotes can contain commas and
+     * doubled quotes.
+     *
+     * @param line
+     *            The line.
+     * @return The values.
+     */
+    private static List< String > splitLine( String line ) {
+        List< String > values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+
+        for ( int i = 0; i < line.length(); i++ ) {
+            char c = line.charAt( i );
+
+            if ( quoted && ( c == '"' ) && ( i + 1 < line.length() ) && ( line.charAt( i + 1 ) == '"' ) ) {
+                value.append( '"' );
+                i++;
+            }
+            else if ( c == '"' ) {
+                quoted = !quoted;
+            }
+            else if ( ( c == ',' ) && !quoted ) {
+                values.add( value.toString() );
+                value.setLength( 0 );
+            }
+            else {
+                value.append( c );
+            }
+        }
+
+        values.add( value.toString() );
+        return values;
+    }
+
+    /**
+     * Finds a value in a row, the rows of some results are shorter than the header.
+     *
+     * @param row
+     *            The row.
+     * @param column
+     *            The column.
+     * @return The value, or an empty string if the row doesn't have it.
+     */
+    private static String getValue( List< String > row, int column ) {
+        return ( column < row.size() ) ? row.get( column ) : "";
+    }
+
+    /**
+     * Checks if a value is a whole number.
+     *
+     * @param value
+     *            The value.
+     * @return If it's a whole number.
+     */
+    private static boolean isLong( String value ) {
+        try {
+            Long.parseLong( value );
+            return true;
+        }
+        catch ( NumberFormatException e ) {
+            return false;
+        }
+    }
+
+    /**
+     * Checks if a value is a number, JMH writes NaN for an error it couldn't compute.
+     *
+     * @param value
+     *            The value.
+     * @return If it's a number.
+     */
+    private static boolean isNumber( String value ) {
+        try {
+            Double.parseDouble( value );
+            return true;
+        }
+        catch ( NumberFormatException e ) {
+            return false;
+        }
+    }
+
+}
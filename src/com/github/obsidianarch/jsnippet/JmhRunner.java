@@ -0,0 +1,218 @@
+package com.github.obsidianarch.jsnippet;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * How snippets with JMH benchmarks are built and run. The JMH jars, jmh-core, the annotation
+ * processor and their dependencies, are read from a local directory, so nothing is downloaded.
+ * A snippet which uses {@code org.openjdk.jmh.annotations.Benchmark} is built with them on its
+ * classpath and processor path, and executing it runs the JMH runner over its benchmarks,
+ * which writes the results as CSV.
+ *
+ * @author Austin
+ */
+public final class JmhRunner {
+
+    //
+    // Fields
+    //
+
+    /** The main class of the JMH runner. */
+    public static final String   MAIN_CLASS = "org.openjdk.jmh.Main";
+
+    /** The annotation which marks a JMH benchmark method. */
+    private static final String  BENCHMARK  = "org.openjdk.jmh.annotations.Benchmark";
+
+    /** The directory holding the JMH jars. */
+    private final File           directory;
+
+    /** What the benchmarks measure. */
+    private final Mode           mode;
+
+    /** The number of JVMs each benchmark is forked into. */
+    private final int            forks;
+
+    /** The number of warm-up iterations in every fork. */
+    private final int            warmups;
+
+    /** The number of measured iterations in every fork. */
+    private final int            iterations;
+
+    //
+    // Constructors
+    //
+
+    /**
+     * Constructs a JmhRunner.
+     *
+     * @param directory
+     *            The directory holding the JMH jars.
+     * @param mode
+     *            What the benchmarks measure.
+     * @param forks
+     *            The number of JVMs each benchmark is forked into, 0 runs them inside of the
+     *            runner's JVM.
+     * @param warmups
+     *            The number of warm-up iterations in every fork.
+     * @param iterations
+     *            The number of measured iterations in every fork.
+     */
+    public JmhRunner( File directory, Mode mode, int forks, int warmups, int iterations ) {
+        if ( ( forks < 0 ) || ( warmups < 0 ) || ( iterations < 1 ) ) throw new IllegalArgumentException( "There must be at least one measured iteration, and no negative numbers" );
+
+        this.directory = directory;
+        this.mode = mode;
+        this.forks = forks;
+        this.warmups = warmups;
+        this.iterations = iterations;
+    }
+
+    //
+    // Actions
+    //
+
+    /**
+     * Creates the arguments passed to the JMH runner.
+     *
+     * @param results
+     *            The file the results are written to, as CSV.
+     * @return The arguments.
+     */
+    public List< String > createArguments( File results ) {
+        return new ArrayList<>( Arrays.asList( "-bm", mode.getId(), "-f", forks + "", "-wi", warmups + "", "-i", iterations + "", "-rf", "csv", "-rff", results.getAbsolutePath() ) );
+    }
+
+    //
+    // Getters
+    //
+
+    /**
+     * @return The directory holding the JMH jars.
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return Every jar in the directory, by name, empty if there aren't any.
+     */
+    public List< File > getLibraries() {
+        File[] jars = directory.listFiles( new FileFilter() {
+
+            @Override
+            public boolean accept( File file ) {
+                return file.isFile() && file.getName().endsWith( ".jar" );
+            }
+
+        } );
+        if ( jars == null ) return Collections.emptyList();
+
+        Arrays.sort( jars );
+        return Arrays.asList( jars );
+    }
+
+    /**
+     * @return What the benchmarks measure.
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return The number of JVMs each benchmark is forked into.
+     */
+    public int getForks() {
+        return forks;
+    }
+
+    /**
+     * @return The number of warm-up iterations in every fork.
+     */
+    public int getWarmups() {
+        return warmups;
+    }
+
+    /**
+     * @return The number of measured iterations in every fork.
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    //
+    // Overrides
+    //
+
+    @Override
+    public String toString() {
+        return String.format( "%s, %d forks, %d warm-up and %d measured iterations", mode, forks, warmups, iterations );
+    }
+
+    //
+    // Static
+    //
+
+    /**
+     * Checks if the source has JMH benchmarks, which it has if it marks a method with JMH's
+     * {@code @Benchmark}, either imported or by its qualified name. Annotations in comments
+     * and strings don't count.
+     *
+     * @param source
+     *            The source code.
+     * @return If the source has JMH benchmarks.
+     */
+    public static boolean isBenchmark( String source ) {
+        return SourceScanner.scan( source ).isAnnotatedWith( BENCHMARK );
+    }
+
+    //
+    // Nested Classes
+    //
+
+    /**
+     * What the benchmarks measure, with the name JMH knows it by.
+     *
+     * @author Austin
+     */
+    public enum Mode {
+
+        /** Operations per unit of time. */
+        THROUGHPUT( "thrpt" ),
+
+        /** The average time of an operation. */
+        AVERAGE_TIME( "avgt" ),
+
+        /** The distribution of the times of sampled operations, with percentiles. */
+        SAMPLE_TIME( "sample" ),
+
+        /** The time of a single operation, without a warm JVM. */
+        SINGLE_SHOT_TIME( "ss" );
+
+        /** The name JMH knows the mode by. */
+        private final String id;
+
+        /**
+         * Constructs a Mode.
+         *
+         * @param id
+         *            The name JMH knows the mode by.
+         */
+        private Mode( String id ) {
+            this.id = id;
+        }
+
+        /**
+         * @return The name JMH knows the mode by.
+         */
+        public String getId() {
+            return id;
+        }
+
+    }
+
+}
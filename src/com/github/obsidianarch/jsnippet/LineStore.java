@@ -0,0 +1,340 @@
+package com.github.obsidianarch.jsnippet;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Holds the lines of a run's output outside of the Java heap. The bytes are appended to one
+ * direct buffer and the start of every line to another, so the heap only ever holds the lines
+ * that are being drawn, however many there are. Lines come from standard output or standard
+ * error, and a line ends at a new line or wherever the other stream starts printing.
+ * <p>
+ * Only the last lines, up to the line limit, are kept. The buffers grow until they reach their
+ * limits, after which the oldest lines are dropped to make room.
+ *
+ * @author Austin
+ */
+public class LineStore {
+
+    //
+    // Fields
+    //
+
+    /** Marks the index entry of a line from standard error. */
+    private static final long    ERROR_FLAG    = 1L << 63;
+
+    /** The size the buffer of bytes starts at. */
+    private static final int     INITIAL_BYTES = 64 * 1024;
+
+    /** The number of lines the index starts with room for. */
+    private static final int     INITIAL_LINES = 4 * 1024;
+
+    /** The most bytes that are kept. */
+    private final int            byteLimit;
+
+    /** The most lines that are kept in the index, including ones that have been dropped. */
+    private final int            indexLimit;
+
+    /** The charset the output is decoded with. */
+    private final Charset        charset       = Charset.defaultCharset();
+
+    /** The output, written up to its position. */
+    private ByteBuffer           bytes         = ByteBuffer.allocateDirect( INITIAL_BYTES );
+
+    /** The start of every line, with {@link #ERROR_FLAG} set for standard error. */
+    private ByteBuffer           index         = ByteBuffer.allocateDirect( INITIAL_LINES * 8 );
+
+    /** The first line that hasn't been dropped, lines before it are removed when there's no room. */
+    private int                  first;
+
+    /** The most lines that are shown. */
+    private int                  lineLimit     = Integer.MAX_VALUE;
+
+    /** If the next byte starts a line. */
+    private boolean              lineStart     = true;
+
+    /** If the last byte came from standard error. */
+    private boolean              lastError;
+
+    /** The length of the longest line, in bytes, which is never less than the longest kept. */
+    private int                  longestLine;
+
+    /** Counts every change, so a viewer can tell if it's up to date. */
+    private long                 modifications;
+
+    //
+    // Constructors
+    //
+
+    /**
+     * Constructs an empty LineStore.
+     *
+     * @param byteLimit
+     *            The most bytes of output that are kept.
+     * @param indexLimit
+     *            The most lines that are kept.
+     */
+    public LineStore( int byteLimit, int indexLimit ) {
+        this.byteLimit = Math.max( byteLimit, INITIAL_BYTES );
+        this.indexLimit = Math.max( indexLimit, INITIAL_LINES );
+    }
+
+    //
+    // Actions
+    //
+
+    /**
+     * Adds output to the end.
+     *
+     * @param b
+     *            The output.
+     * @param off
+     *            Where the output starts in the array.
+     * @param len
+     *            How much output there is.
+     * @param error
+     *            If it's from standard error.
+     */
+    public synchronized void append( byte[] b, int off, int len, boolean error ) {
+        int most = Math.min( byteLimit, indexLimit ) / 2; // every byte could be a line
+        if ( len > most ) {
+            // more than fits at once, only its end would be kept anyway
+            off += len - most;
+            len = most;
+        }
+
+        int newLines = 1;
+        for ( int i = off; i < off + len; i++ ) {
+            if ( b[ i ] == '\n' ) newLines++;
+        }
+        makeRoom( len, newLines );
+
+        int position = bytes.position();
+        int lineLength = lineStart ? 0 : ( position - getStart( getIndexSize() - 1 ) );
+
+        for ( int i = off; i < off + len; i++ ) {
+            if ( lineStart || ( error != lastError ) ) {
+                index.putLong( ( position + ( i - off ) ) | ( error ? ERROR_FLAG : 0 ) );
+                lineStart = false;
+                lastError = error;
+                lineLength = 0;
+            }
+
+            lineLength++;
+            if ( b[ i ] == '\n' ) lineStart = true;
+            if ( lineLength > longestLine ) longestLine = lineLength;
+        }
+        bytes.put( b, off, len );
+
+        if ( getIndexSize() - first > lineLimit ) first = getIndexSize() - lineLimit;
+        modifications++;
+    }
+
+    /**
+     * Removes every line.
+     */
+    public synchronized void clear() {
+        bytes.clear();
+        index.clear();
+        first = 0;
+        lineStart = true;
+        longestLine = 0;
+        modifications++;
+    }
+
+    /**
+     * Makes room for more output, by dropping the lines that are no longer shown, growing the
+     * buffers, or dropping the oldest lines, in that order.
+     *
+     * @param length
+     *            The number of bytes being added.
+     * @param lines
+     *            The most lines that are being added.
+     */
+    private void makeRoom( int length, int lines ) {
+        if ( fits( length, lines ) ) return;
+
+        // only worth copying the rest if it frees a good part of the buffers
+        if ( ( first > 0 ) && ( ( getStart( first ) >= bytes.capacity() / 4 ) || ( first >= index.capacity() / 32 ) ) ) {
+            compact();
+            if ( fits( length, lines ) ) return;
+        }
+
+        bytes = grow( bytes, bytes.position() + length, byteLimit );
+        index = grow( index, index.position() + lines * 8, indexLimit * 8 );
+        if ( fits( length, lines ) ) return;
+
+        // drop at least a quarter of the buffers, so that this doesn't happen for every append
+        int neededBytes = Math.max( length - bytes.remaining(), bytes.capacity() / 4 );
+        int neededLines = Math.max( lines - index.remaining() / 8, index.capacity() / 32 );
+        int size = getIndexSize();
+
+        first = Math.max( first, Math.min( neededLines, size ) );
+        while ( ( first < size ) && ( getStart( first ) < neededBytes ) ) {
+            first++;
+        }
+        compact();
+    }
+
+    /**
+     * Moves the lines that are kept to the start of the buffers.
+     */
+    private void compact() {
+        int size = getIndexSize();
+        if ( first >= size ) {
+            // nothing is left, not even the line that's still being printed
+            bytes.clear();
+            index.clear();
+            first = 0;
+            lineStart = true;
+            return;
+        }
+
+        int shift = getStart( first );
+        bytes.limit( bytes.position() ).position( shift );
+        bytes.compact();
+
+        index.limit( index.position() ).position( first * 8 );
+        index.compact();
+        for ( int i = 0; i < size - first; i++ ) {
+            index.putLong( i * 8, index.getLong( i * 8 ) - shift ); // the flag is above the offset, so it's untouched
+        }
+        first = 0;
+    }
+
+    /**
+     * Checks if there's room for more output.
+     *
+     * @param length
+     *            The number of bytes being added.
+     * @param lines
+     *            The most lines that are being added.
+     * @return If it fits.
+     */
+    private boolean fits( int length, int lines ) {
+        return ( bytes.remaining() >= length ) && ( index.remaining() >= lines * 8 );
+    }
+
+    //
+    // Setters
+    //
+
+    /**
+     * Sets the most lines that are shown, the oldest lines beyond it are dropped.
+     *
+     * @param lineLimit
+     *            The line limit.
+     */
+    public synchronized void setLineLimit( int lineLimit ) {
+        this.lineLimit = Math.max( 1, lineLimit );
+        if ( getIndexSize() - first > this.lineLimit ) first = getIndexSize() - this.lineLimit;
+        modifications++;
+    }
+
+    //
+    // Getters
+    //
+
+    /**
+     * @return The number of lines that are kept.
+     */
+    public synchronized int getLineCount() {
+        return getIndexSize() - first;
+    }
+
+    /**
+     * Reads a line.
+     *
+     * @param line
+     *            The line, from 0 for the oldest line that's kept.
+     * @return The line, without its line separator, or an empty string if it isn't kept,
+     *         which it may not be anymore when the lines were cleared since they were counted.
+     */
+    public synchronized String getLine( int line ) {
+        if ( ( line < 0 ) || ( line >= getLineCount() ) ) return "";
+
+        int start = getStart( first + line );
+        int end = ( first + line + 1 < getIndexSize() ) ? getStart( first + line + 1 ) : bytes.position();
+
+        byte[] b = new byte[ end - start ];
+        for ( int i = 0; i < b.length; i++ ) {
+            b[ i ] = bytes.get( start + i );
+        }
+
+        int length = b.length;
+        if ( ( length > 0 ) && ( b[ length - 1 ] == '\n' ) ) length--;
+        if ( ( length > 0 ) && ( b[ length - 1 ] == '\r' ) ) length--;
+        return new String( b, 0, length, charset );
+    }
+
+    /**
+     * Checks if a line came from standard error.
+     *
+     * @param line
+     *            The line, from 0 for the oldest line that's kept.
+     * @return If it's from standard error, false if the line isn't kept.
+     */
+    public synchronized boolean isError( int line ) {
+        if ( ( line < 0 ) || ( line >= getLineCount() ) ) return false;
+        return ( index.getLong( ( first + line ) * 8 ) & ERROR_FLAG ) != 0;
+    }
+
+    /**
+     * @return The length of the longest line, in bytes, which may be one that's been dropped.
+     */
+    public synchronized int getLongestLine() {
+        return longestLine;
+    }
+
+    /**
+     * @return Changes every time the lines do.
+     */
+    public synchronized long getModifications() {
+        return modifications;
+    }
+
+    /**
+     * @return The number of entries in the index, including lines that have been dropped but
+     *         not removed yet.
+     */
+    private int getIndexSize() {
+        return index.position() / 8;
+    }
+
+    /**
+     * Finds where a line starts.
+     *
+     * @param entry
+     *            The line's entry in the index.
+     * @return The position of its first byte.
+     */
+    private int getStart( int entry ) {
+        return ( int ) ( index.getLong( entry * 8 ) & ~ERROR_FLAG );
+    }
+
+    //
+    // Static
+    //
+
+    /**
+     * Moves the buffer to a bigger one, if it's too small and isn't at the limit.
+     *
+     * @param buffer
+     *            The buffer, written up to its position.
+     * @param needed
+     *            The capacity that's needed.
+     * @param limit
+     *            The largest the buffer can be.
+     * @return The bigger buffer, or the same one if it's big enough or can't grow.
+     */
+    private static ByteBuffer grow( ByteBuffer buffer, int needed, int limit ) {
+        if ( ( needed <= buffer.capacity() ) || ( buffer.capacity() >= limit ) ) return buffer;
+
+        int capacity = ( int ) Math.min( limit, Math.max( needed, buffer.capacity() * 2L ) );
+        ByteBuffer bigger = ByteBuffer.allocateDirect( capacity );
+        buffer.flip();
+        bigger.put( buffer );
+        return bigger;
+    }
+
+}
@@ -0,0 +1,23 @@
+package com.github.obsidianarch.jsnippet;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the method of a snippet that File &gt; Execute as Benchmark times, in place of its
+ * main method. The method takes no parameters, and is called on a new instance of the snippet
+ * if it isn't static. Whatever it returns is consumed, so the work that produced it can't be
+ * optimized away.
+ *
+ * @author Austin
+ * @see BenchmarkHarness
+ */
+@Documented
+@Retention( RetentionPolicy.RUNTIME )
+@Target( ElementType.METHOD )
+public @interface Measure {
+    // just a marker
+}
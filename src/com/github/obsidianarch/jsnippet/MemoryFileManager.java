@@ -0,0 +1,186 @@
+package com.github.obsidianarch.jsnippet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+
+/**
+ * A JavaFileManager which keeps the compiled classes in memory instead of writing them to
+ * the disk. Everything other than class output is forwarded to the standard file manager.
+ *
+ * @author Austin
+ */
+public final class MemoryFileManager extends ForwardingJavaFileManager< StandardJavaFileManager > {
+
+    //
+    // Fields
+    //
+
+    /** The classes written by the compiler, by binary name. */
+    private final Map< String, ClassObject > classes = new LinkedHashMap<>();
+
+    //
+    // Constructors
+    //
+
+    /**
+     * Creates a MemoryFileManager which forwards to the given file manager.
+     *
+     * @param fileManager
+     *            The standard file manager from the compiler.
+     */
+    public MemoryFileManager( StandardJavaFileManager fileManager ) {
+        super( fileManager );
+    }
+
+    //
+    // Actions
+    //
+
+    /**
+     * Creates a compilation unit for the source code, without touching the disk.
+     *
+     * @param className
+     *            The name of the source's class.
+     * @param source
+     *            The source code.
+     * @return The compilation unit.
+     */
+    public static JavaFileObject createSource( String className, String source ) {
+        return new SourceObject( className, source );
+    }
+
+    /**
+     * Writes every compiled class into the directory, as the compiler would have.
+     *
+     * @param classes
+     *            The bytecode of the classes, by binary name.
+     * @param directory
+     *            The output directory.
+     * @throws IOException
+     *             If a class file could not be written.
+     */
+    public static void writeClasses( Map< String, byte[] > classes, File directory ) throws IOException {
+        for ( Map.Entry< String, byte[] > entry : classes.entrySet() ) {
+            File file = new File( directory, entry.getKey().replace( '.', File.separatorChar ) + Kind.CLASS.extension );
+
+            if ( !file.getParentFile().exists() ) {
+                file.getParentFile().mkdirs();
+            }
+
+            try ( OutputStream out = new FileOutputStream( file ) ) {
+                out.write( entry.getValue() );
+            }
+        }
+    }
+
+    //
+    // Getters
+    //
+
+    /**
+     * @return The bytecode of every class compiled by this file manager, by binary name.
+     */
+    public Map< String, byte[] > getClassBytes() {
+        Map< String, byte[] > bytes = new LinkedHashMap<>();
+        for ( Map.Entry< String, ClassObject > entry : classes.entrySet() ) {
+            bytes.put( entry.getKey(), entry.getValue().getBytes() );
+        }
+        return bytes;
+    }
+
+    //
+    // Overrides
+    //
+
+    @Override
+    public JavaFileObject getJavaFileForOutput( Location location, String className, Kind kind, FileObject sibling ) throws IOException {
+        if ( kind != Kind.CLASS ) return super.getJavaFileForOutput( location, className, kind, sibling );
+
+        ClassObject object = new ClassObject( className );
+        classes.put( className, object );
+        return object;
+    }
+
+    //
+    // Nested Classes
+    //
+
+    /**
+     * Source code held in a string.
+     *
+     * @author Austin
+     */
+    private static class SourceObject extends SimpleJavaFileObject {
+
+        /** The source code. */
+        private final String source;
+
+        /**
+         * Constructs a SourceObject for the class.
+         *
+         * @param className
+         *            The binary name of the class.
+         * @param source
+         *            The source code.
+         */
+        public SourceObject( String className, String source ) {
+            super( URI.create( "string:///" + className.replace( '.', '/' ) + Kind.SOURCE.extension ), Kind.SOURCE );
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent( boolean ignoreEncodingErrors ) {
+            return source;
+        }
+
+    }
+
+    /**
+     * Bytecode written by the compiler into a byte array.
+     *
+     * @author Austin
+     */
+    private static class ClassObject extends SimpleJavaFileObject {
+
+        /** Holds the bytes written by the compiler. */
+        private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        /**
+         * Constructs a ClassObject for the class.
+         *
+         * @param className
+         *            The binary name of the class.
+         */
+        public ClassObject( String className ) {
+            super( URI.create( "bytes:///" + className.replace( '.', '/' ) + Kind.CLASS.extension ), Kind.CLASS );
+        }
+
+        /**
+         * @return The bytecode written by the compiler.
+         */
+        public byte[] getBytes() {
+            return output.toByteArray();
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            output.reset();
+            return output;
+        }
+
+    }
+
+}
@@ -1,8 +1,25 @@
 package com.github.obsidianarch.jsnippet;
 
 import java.awt.Color;
+import java.awt.Font;
+import java.awt.GridLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+import javax.swing.JCheckBox;
+import javax.swing.JComboBox;
+import javax.swing.JFileChooser;
+import javax.swing.JLabel;
 import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextArea;
+import javax.swing.JTextField;
 
 /**
  * Every method in this is named for a JMenuItem which will fire the event in this class
@@ -12,6 +29,13 @@ import javax.swing.JOptionPane;
  */
 public class MenuItemActions {
     
+    //
+    // Fields
+    //
+
+    /** The most lines that {@link #findInOutput(JSnippetFrame)} shows. */
+    private static final int FOUND_LINE_LIMIT = 1000;
+
     //
     //  Menu Items
     //
@@ -25,7 +49,7 @@ public class MenuItemActions {
      * @return If the build was successful or not.
      */
     public static boolean build( JSnippetFrame frame ) {
-        frame.getBuildConsole().getTextComponent().setText( "" );
+        frame.getBuildConsole().clear();
         frame.getBuildConsole().redirectOut();
         frame.getBuildConsole().redirectErr( Color.RED, null );
 
@@ -33,8 +57,14 @@ public class MenuItemActions {
 
         String source = frame.getTextArea().getText();
         String className = JSnippet.getClassName( source );
+        if ( className == null ) {
+            System.err.println( "There isn't a class to build" );
+            JOptionPane.showMessageDialog( frame, "Build failed!" );
+            return false;
+        }
         
         boolean built = JSnippet.compileSource( className, source );
+        frame.showDiagnostics( JSnippet.getLastDiagnostics() );
         
         if ( !built ) {
             JOptionPane.showMessageDialog( frame, "Build failed!" );
@@ -52,14 +82,46 @@ public class MenuItemActions {
      *            The frame.
      */
     public static void execute( JSnippetFrame frame ) {
-        frame.getOutputConsole().getTextComponent().setText( "" );
-        frame.getOutputConsole().redirectOut();
-        frame.getOutputConsole().redirectErr( Color.RED, null );
+        execute( frame, JSnippet.runProfiles.getSelected() );
+    }
+
+    /**
+     * Runs the built source file with a run profile picked for this run only, the selected
+     * profile stays as it is.
+     * 
+     * @param frame
+     *            The frame.
+     */
+    public static void executeWithProfile( JSnippetFrame frame ) {
+        List< RunProfile > profiles = JSnippet.runProfiles.getProfiles();
+        Object profile = JOptionPane.showInputDialog( frame, "Run Profile", "Execute with Profile", JOptionPane.PLAIN_MESSAGE, null, profiles.toArray(), JSnippet.runProfiles.getSelected() );
+        if ( profile == null ) return;
+
+        execute( frame, ( RunProfile ) profile );
+    }
+
+    /**
+     * Runs the built source file with a run profile.
+     * 
+     * @param frame
+     *            The frame.
+     * @param profile
+     *            The profile the class is run with.
+     */
+    private static void execute( JSnippetFrame frame, RunProfile profile ) {
+        frame.getOutputViewer().clear();
+        frame.getOutputViewer().redirectOut();
+        frame.getOutputViewer().redirectErr();
 
         JSnippet.printTime( "Process Start" );
 
+        if ( JSnippet.isJmhBuild() ) {
+            executeJmh( frame, profile );
+            return;
+        }
+
         try {
-            JSnippet.executeClass( JSnippet.getClassName( frame.getTextArea().getText() ) );
+            JSnippet.executeClass( JSnippet.getBuiltClassName(), profile ); // the class that was built, even if it's been renamed since
         }
         catch ( Exception e ) {
             e.printStackTrace();
@@ -68,6 +130,76 @@ public class MenuItemActions {
         // process ended message displayed when the process is ended
     }
 
+    /**
+     * Runs the JMH benchmarks of the last build, and shows the results once they're done.
+     * 
+     * @param frame
+     *            The frame.
+     * @param profile
+     *            The profile the runner is started with.
+     */
+    private static void executeJmh( JSnippetFrame frame, RunProfile profile ) {
+        if ( JSnippet.runInProcess ) System.err.println( "[JMH benchmarks always run in a new process]" );
+
+        JmhResults results = JSnippet.runJmh( profile );
+        if ( results != null ) frame.showJmhResults( results );
+    }
+
+    /**
+     * Times the built source file, with the selected run profile, for a number of warm-up and
+     * measured iterations, and adds the statistics to the benchmark results.
+     * 
+     * @param frame
+     *            The frame.
+     */
+    public static void executeAsBenchmark( JSnippetFrame frame ) {
+        JTextField warmups = new JTextField( JSnippet.benchmarkWarmups + "" );
+        JTextField iterations = new JTextField( JSnippet.benchmarkRuns + "" );
+        JTextField forks = new JTextField( JSnippet.benchmarkForks + "" );
+
+        JPanel panel = new JPanel( new GridLayout( 0, 2, 5, 5 ) );
+        panel.add( new JLabel( "Warm-up Iterations" ) );
+        panel.add( warmups );
+        panel.add( new JLabel( "Measured Iterations" ) );
+        panel.add( iterations );
+        panel.add( new JLabel( "Forks (0 for in-process)" ) );
+        panel.add( forks );
+
+        if ( JOptionPane.showConfirmDialog( frame, panel, "Execute as Benchmark", JOptionPane.OK_CANCEL_OPTION ) != JOptionPane.OK_OPTION ) return;
+
+        try {
+            int newWarmups = Integer.parseInt( warmups.getText().trim() );
+            int newIterations = Integer.parseInt( iterations.getText().trim() );
+            int newForks = Integer.parseInt( forks.getText().trim() );
+            if ( ( newWarmups < 0 ) || ( newIterations < 1 ) || ( newForks < 0 ) ) throw new NumberFormatException();
+
+            JSnippet.benchmarkWarmups = newWarmups;
+            JSnippet.benchmarkRuns = newIterations;
+            JSnippet.benchmarkForks = newForks;
+        }
+        catch ( NumberFormatException e ) {
+            JOptionPane.showMessageDialog( frame, "There must be at least one measured iteration, and no negative numbers." );
+            return;
+        }
+
+        frame.getOutputViewer().clear();
+        frame.getOutputViewer().redirectOut();
+        frame.getOutputViewer().redirectErr();
+
+        JSnippet.printTime( "Benchmark Start" );
+
+        String className = JSnippet.getBuiltClassName();
+        RunProfile profile = JSnippet.runProfiles.getSelected();
+        long[] times = JSnippet.benchmarkClass( className, profile, JSnippet.benchmarkWarmups, JSnippet.benchmarkRuns, JSnippet.benchmarkForks );
+        if ( times != null ) {
+            BenchmarkStatistics statistics = new BenchmarkStatistics( times );
+            System.out.println( statistics );
+            frame.addBenchmarkResult( className, profile, JSnippet.getLastBenchmarkForks(), statistics );
+        }
+
+        JSnippet.printTime( "Benchmark Ended" );
+    }
+
     /**
      * Builds the file, then executes it.
      * 
@@ -81,6 +213,80 @@ public class MenuItemActions {
         }
     }
     
+    /**
+     * Moves the caret to the next error from the last build.
+     * 
+     * @param frame
+     *            The frame.
+     */
+    public static void nextError( JSnippetFrame frame ) {
+        frame.nextError();
+    }
+    
+    /**
+     * Saves all of the output of the current or last run to a file.
+     * 
+     * @param frame
+     *            The frame.
+     */
+    public static void saveOutput( JSnippetFrame frame ) {
+        OutputSpool spool = ExecutionService.getCurrentSpool();
+        if ( spool == null ) {
+            JOptionPane.showMessageDialog( frame, "Nothing has been run yet." );
+            return;
+        }
+
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile( new File( spool.getFile().getName().replace( ".out", ".txt" ) ) );
+        if ( chooser.showSaveDialog( frame ) != JFileChooser.APPROVE_OPTION ) return;
+
+        try {
+            spool.saveTo( chooser.getSelectedFile() );
+        }
+        catch ( IOException e ) {
+            JSnippet.showError( e, "Saving the output" );
+        }
+    }
+
+    /**
+     * Finds the lines of the current or last run's output which contain some text, including
+     * the ones that are no longer in the console.
+     * 
+     * @param frame
+     *            The frame.
+     */
+    public static void findInOutput( JSnippetFrame frame ) {
+        OutputSpool spool = ExecutionService.getCurrentSpool();
+        if ( spool == null ) {
+            JOptionPane.showMessageDialog( frame, "Nothing has been run yet." );
+            return;
+        }
+
+        String text = JOptionPane.showInputDialog( frame, "Find in Output" );
+        if ( ( text == null ) || text.isEmpty() ) return;
+
+        StringBuilder sb = new StringBuilder();
+        try {
+            List< Long > lines = spool.find( text, FOUND_LINE_LIMIT );
+            for ( long line : lines ) {
+                sb.append( String.format( "%,d: %s%n", line + 1, spool.getLine( line ) ) );
+            }
+
+            String title = String.format( "%d line(s) of %,d found", lines.size(), spool.getLineCount() );
+            if ( lines.size() == FOUND_LINE_LIMIT ) title += ", only the first " + FOUND_LINE_LIMIT + " are shown";
+            sb.insert( 0, title + System.lineSeparator() + System.lineSeparator() );
+        }
+        catch ( IOException e ) {
+            JSnippet.showError( e, "Searching the output" );
+            return;
+        }
+
+        JTextArea results = new JTextArea( sb.toString(), 20, 80 );
+        results.setEditable( false );
+        results.setFont( new Font( "Consolas", Font.PLAIN, 10 ) );
+        JOptionPane.showMessageDialog( frame, new JScrollPane( results ), "Find in Output", JOptionPane.PLAIN_MESSAGE );
+    }
+    
     /**
      * Forces the current process to close.
      */
@@ -93,22 +299,260 @@ public class MenuItemActions {
      */
     public static void exit() {
         JSnippet.cleanup();
+        ExecutionService.getWorkerPool().shutdown();
         System.exit( 0 );
     }
     
     /**
-     * Edits the run arguments passed by the executor.
+     * Edits the arguments the selected run profile passes to the main method.
      * 
      * @param frame
      *            The frame.
      */
     public static void editRunArgs( JSnippetFrame frame ) {
-        JSnippet.runArguments = JOptionPane.showInputDialog( frame, "Edit Run Arguments", JSnippet.runArguments );
-        if ( JSnippet.runArguments == null ) JSnippet.runArguments = ""; // prevent it from being null!
+        RunProfile profile = JSnippet.runProfiles.getSelected();
+        String arguments = JOptionPane.showInputDialog( frame, "Edit Run Arguments (" + profile.getName() + ")", RunProfile.join( profile.getArguments() ) );
+        if ( arguments == null ) return;
+
+        JSnippet.runProfiles.put( new RunProfile( profile.getName(), profile.getJvmOptions(), RunProfile.split( arguments ), profile.getSystemProperties(), profile.getEnvironment() ) );
+    }
+
+    /**
+     * Edits the run profiles, and selects the one the runs use. Typing a new name creates a
+     * profile.
+     * 
+     * @param frame
+     *            The frame.
+     */
+    public static void editRunProfiles( JSnippetFrame frame ) {
+        final RunProfiles profiles = JSnippet.runProfiles;
+
+        final JComboBox< String > name = new JComboBox<>();
+        for ( RunProfile profile : profiles.getProfiles() ) {
+            name.addItem( profile.getName() );
+        }
+        name.setEditable( true );
+
+        final JTextField jvmOptions = new JTextField( 30 );
+        final JTextField arguments = new JTextField();
+        final JTextField properties = new JTextField();
+        final JTextField environment = new JTextField();
+        JCheckBox delete = new JCheckBox( "Delete" );
+
+        name.addActionListener( new ActionListener() {
+
+            @Override
+            public void actionPerformed( ActionEvent e ) {
+                RunProfile profile = profiles.get( ( String ) name.getSelectedItem() );
+                if ( profile == null ) return; // a new profile keeps what was typed
+
+                jvmOptions.setText( RunProfile.join( profile.getJvmOptions() ) );
+                arguments.setText( RunProfile.join( profile.getArguments() ) );
+                properties.setText( RunProfile.joinPairs( profile.getSystemProperties() ) );
+                environment.setText( RunProfile.joinPairs( profile.getEnvironment() ) );
+            }
+
+        } );
+        name.setSelectedItem( profiles.getSelected().getName() );
+
+        JPanel panel = new JPanel( new GridLayout( 0, 2, 5, 5 ) );
+        panel.add( new JLabel( "Profile" ) );
+        panel.add( name );
+        panel.add( new JLabel( "JVM Options" ) );
+        panel.add( jvmOptions );
+        panel.add( new JLabel( "Arguments" ) );
+        panel.add( arguments );
+        panel.add( new JLabel( "System Properties (key=value)" ) );
+        panel.add( properties );
+        panel.add( new JLabel( "Environment (key=value)" ) );
+        panel.add( environment );
+        panel.add( new JLabel() );
+        panel.add( delete );
+
+        if ( JOptionPane.showConfirmDialog( frame, panel, "Edit Run Profiles", JOptionPane.OK_CANCEL_OPTION ) != JOptionPane.OK_OPTION ) return;
+
+        String profileName = ( ( String ) name.getSelectedItem() ).trim();
+        if ( profileName.isEmpty() ) return;
+
+        if ( delete.isSelected() ) {
+            profiles.remove( profileName );
+            return;
+        }
+
+        try {
+            profiles.put( new RunProfile( profileName, RunProfile.split( jvmOptions.getText() ), RunProfile.split( arguments.getText() ), RunProfile.splitPairs( properties.getText() ), RunProfile.splitPairs( environment.getText() ) ) );
+            profiles.select( profileName );
+        }
+        catch ( IllegalArgumentException e ) {
+            JOptionPane.showMessageDialog( frame, e.getMessage() );
+        }
     }
     
     /**
-     * Edits the maximum number of lines the consoles will display.
+     * Edits the options and classpath the snippets are compiled with. The compiler's file
+     * manager is only replaced if either of them changed.
+     * 
+     * @param frame
+     *            The frame.
+     */
+    public static void editCompilerSettings( JSnippetFrame frame ) {
+        CompilerSession session = JSnippet.getCompilerSession();
+
+        StringBuilder path = new StringBuilder();
+        if ( session.getClasspath() != null ) {
+            for ( File entry : session.getClasspath() ) {
+                if ( path.length() > 0 ) path.append( File.pathSeparator );
+                path.append( entry.getPath() );
+            }
+        }
+
+        JTextField options = new JTextField( RunProfile.join( session.getOptions() ), 30 );
+        JTextField classpath = new JTextField( path.toString(), 30 );
+
+        JPanel panel = new JPanel( new GridLayout( 0, 2, 5, 5 ) );
+        panel.add( new JLabel( "Compiler Options" ) );
+        panel.add( options );
+        panel.add( new JLabel( "Classpath (empty for the editor's)" ) );
+        panel.add( classpath );
+
+        if ( JOptionPane.showConfirmDialog( frame, panel, "Edit Compiler Settings", JOptionPane.OK_CANCEL_OPTION ) != JOptionPane.OK_OPTION ) return;
+
+        List< File > entries = null;
+        if ( !classpath.getText().trim().isEmpty() ) {
+            entries = new ArrayList<>();
+            for ( String entry : classpath.getText().trim().split( File.pathSeparator ) ) {
+                if ( !entry.trim().isEmpty() ) entries.add( new File( entry.trim() ) );
+            }
+        }
+
+        session.configure( RunProfile.split( options.getText() ), entries );
+    }
+
+    /**
+     * Switches between building in memory and building through files on the disk.
+     * 
+     * @param frame
+     *            The frame.
+     */
+    public static void toggleInMemoryBuild( JSnippetFrame frame ) {
+        JSnippet.inMemoryBuild = !JSnippet.inMemoryBuild;
+        JOptionPane.showMessageDialog( frame, JSnippet.inMemoryBuild ? "Building in memory" : "Building on disk" );
+    }
+    
+    /**
+     * Switches between executing snippets in a new process and inside of the editor.
+     * 
+     * @param frame
+     *            The frame.
+     */
+    public static void toggleInProcessExecution( JSnippetFrame frame ) {
+        JSnippet.runInProcess = !JSnippet.runInProcess;
+        JOptionPane.showMessageDialog( frame, JSnippet.runInProcess ? "Executing inside the editor" : "Executing in a new process" );
+    }
+    
+    /**
+     * Edits the size, JVM options, and idle timeout of the pool of JVMs waiting to run
+     * snippets.
+     * 
+     * @param frame
+     *            The frame.
+     */
+    public static void editWorkerPool( JSnippetFrame frame ) {
+        WorkerPool pool = ExecutionService.getWorkerPool();
+        
+        JTextField size = new JTextField( pool.getSize() + "" );
+        JTextField options = new JTextField( String.join( " ", pool.getJvmOptions() ) );
+        JTextField timeout = new JTextField( TimeUnit.MILLISECONDS.toMinutes( pool.getIdleTimeout() ) + "" );
+        
+        JPanel panel = new JPanel( new GridLayout( 0, 2, 5, 5 ) );
+        panel.add( new JLabel( "Pooled JVMs (0 to disable)" ) );
+        panel.add( size );
+        panel.add( new JLabel( "JVM Options" ) );
+        panel.add( options );
+        panel.add( new JLabel( "Idle Timeout (minutes)" ) );
+        panel.add( timeout );
+        
+        if ( JOptionPane.showConfirmDialog( frame, panel, "Edit Worker Pool", JOptionPane.OK_CANCEL_OPTION ) != JOptionPane.OK_OPTION ) return;
+        
+        try {
+            pool.configure( Integer.parseInt( size.getText().trim() ), WorkerPool.splitOptions( options.getText() ), TimeUnit.MINUTES.toMillis( Long.parseLong( timeout.getText().trim() ) ) );
+        }
+        catch ( NumberFormatException e ) {
+            JOptionPane.showMessageDialog( frame, "The pool size and idle timeout must be whole numbers." );
+        }
+    }
+    
+    /**
+     * Edits what happens to a run's output when it's printed faster than the output log
+     * should take it, and the byte rate it's limited to.
+     * 
+     * @param frame
+     *            The frame.
+     */
+    public static void editOutputPolicy( JSnippetFrame frame ) {
+        OutputPolicy policy = JSnippet.outputPolicy;
+        
+        JComboBox< OutputPolicy.Mode > mode = new JComboBox<>( OutputPolicy.Mode.values() );
+        mode.setSelectedItem( policy.getMode() );
+        JTextField rate = new JTextField( policy.getBytesPerSecond() / 1024 + "" );
+        
+        JPanel panel = new JPanel( new GridLayout( 0, 2, 5, 5 ) );
+        panel.add( new JLabel( "Beyond the Rate" ) );
+        panel.add( mode );
+        panel.add( new JLabel( "Rate (KB/s)" ) );
+        panel.add( rate );
+        
+        if ( JOptionPane.showConfirmDialog( frame, panel, "Edit Output Policy", JOptionPane.OK_CANCEL_OPTION ) != JOptionPane.OK_OPTION ) return;
+        
+        try {
+            JSnippet.outputPolicy = new OutputPolicy( ( OutputPolicy.Mode ) mode.getSelectedItem(), Math.multiplyExact( Long.parseLong( rate.getText().trim() ), 1024 ) );
+        }
+        catch ( IllegalArgumentException | ArithmeticException e ) {
+            JOptionPane.showMessageDialog( frame, "The rate must be a positive whole number, and not too large to count in bytes." );
+        }
+    }
+    
+    /**
+     * Edits where the JMH jars are, and how snippets with JMH benchmarks are run.
+     * 
+     * @param frame
+     *            The frame.
+     */
+    public static void editJmhSettings( JSnippetFrame frame ) {
+        JmhRunner runner = JSnippet.jmhRunner;
+
+        JTextField directory = new JTextField( runner.getDirectory().getPath(), 30 );
+        JComboBox< JmhRunner.Mode > mode = new JComboBox<>( JmhRunner.Mode.values() );
+        mode.setSelectedItem( runner.getMode() );
+        JTextField forks = new JTextField( runner.getForks() + "" );
+        JTextField warmups = new JTextField( runner.getWarmups() + "" );
+        JTextField iterations = new JTextField( runner.getIterations() + "" );
+
+        JPanel panel = new JPanel( new GridLayout( 0, 2, 5, 5 ) );
+        panel.add( new JLabel( "JMH Jar Directory" ) );
+        panel.add( directory );
+        panel.add( new JLabel( "Mode" ) );
+        panel.add( mode );
+        panel.add( new JLabel( "Forks" ) );
+        panel.add( forks );
+        panel.add( new JLabel( "Warm-up Iterations" ) );
+        panel.add( warmups );
+        panel.add( new JLabel( "Measured Iterations" ) );
+        panel.add( iterations );
+
+        if ( JOptionPane.showConfirmDialog( frame, panel, "Edit JMH Settings", JOptionPane.OK_CANCEL_OPTION ) != JOptionPane.OK_OPTION ) return;
+
+        try {
+            JSnippet.jmhRunner = new JmhRunner( new File( directory.getText().trim() ), ( JmhRunner.Mode ) mode.getSelectedItem(), Integer.parseInt( forks.getText().trim() ), Integer.parseInt( warmups.getText().trim() ), Integer.parseInt( iterations.getText().trim() ) );
+        }
+        catch ( IllegalArgumentException e ) {
+            JOptionPane.showMessageDialog( frame, "There must be at least one measured iteration, and no negative numbers." );
+        }
+    }
+
+    /**
+     * Edits the maximum number of lines the build log will display, the output log keeps
+     * {@link JSnippet#outputLineLimit} lines.
      * 
      * @param frame
      *            The frame.
@@ -140,7 +584,6 @@ public class MenuItemActions {
         }
         
         frame.getBuildConsole().setMessageLines( JSnippet.consoleLineLimit );
-        frame.getOutputConsole().setMessageLines( JSnippet.consoleLineLimit );
     }
 
     /**
@@ -0,0 +1,310 @@
+package com.github.obsidianarch.jsnippet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides what happens to a run's output when it's printed faster than the output log should
+ * take it. Output up to the byte rate passes straight through, with a second's worth of burst,
+ * and beyond it the policy's {@link Mode} applies. Whatever the mode, the log never receives
+ * more than the byte rate, so a snippet printing in a loop can't bury the Event Dispatch
+ * Thread. Everything is still written to the run's {@link OutputSpool}.
+ *
+ * @author Austin
+ */
+public final class OutputPolicy {
+
+    //
+    // Fields
+    //
+
+    /** The smallest burst, so a full read from a pipe always fits. */
+    private static final int  MIN_BURST       = 16 * 1024;
+
+    /** How often a suppressed output notice is printed at most, in nanoseconds. */
+    private static final long NOTICE_INTERVAL = TimeUnit.SECONDS.toNanos( 1 );
+
+    /** What happens to output beyond the byte rate. */
+    private final Mode        mode;
+
+    /** The most bytes per second that reach the output log. */
+    private final long        bytesPerSecond;
+
+    //
+    // Constructors
+    //
+
+    /**
+     * Constructs an OutputPolicy.
+     *
+     * @param mode
+     *            What happens to output beyond the byte rate.
+     * @param bytesPerSecond
+     *            The most bytes per second that reach the output log.
+     */
+    public OutputPolicy( Mode mode, long bytesPerSecond ) {
+        if ( bytesPerSecond <= 0 ) throw new IllegalArgumentException( "The byte rate must be positive" );
+
+        this.mode = mode;
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    //
+    // Actions
+    //
+
+    /**
+     * Creates the limiter for a run, which both of its streams share.
+     *
+     * @param notices
+     *            Where the suppressed output notices are printed.
+     * @return The limiter.
+     */
+    public Limiter createLimiter( PrintStream notices ) {
+        return new Limiter( notices );
+    }
+
+    //
+    // Getters
+    //
+
+    /**
+     * @return What happens to output beyond the byte rate.
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return The most bytes per second that reach the output log.
+     */
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    //
+    // Overrides
+    //
+
+    @Override
+    public String toString() {
+        return String.format( "%s at %,d KB/s", mode, bytesPerSecond / 1024 );
+    }
+
+    //
+    // Nested Classes
+    //
+
+    /**
+     * What happens to output beyond the byte rate.
+     *
+     * @author Austin
+     */
+    public enum Mode {
+
+        /**
+         * The output isn't read until it can be passed on, so the pipe fills up and the
+         * snippet waits in its print calls. Nothing is lost.
+         */
+        BLOCK,
+
+        /** Output is dropped until the rate allows it again, and the dropped bytes are counted. */
+        DROP,
+
+        /** Whole lines spread evenly through the output are kept, and the rest is counted. */
+        SAMPLE
+
+    }
+
+    /**
+     * Applies the policy to a run's output, with a token bucket holding the bytes that may be
+     * passed on.
+     *
+     * @author Austin
+     */
+    public class Limiter {
+
+        /** Where the suppressed output notices are printed. */
+        private final PrintStream notices;
+
+        /** The most tokens the bucket holds. */
+        private final long        burst;
+
+        /** The bytes that may be passed on right now. */
+        private long              tokens;
+
+        /** When the tokens were last added, from {@link System#nanoTime()}. */
+        private long              refilled;
+
+        /** The bytes suppressed since the last notice. */
+        private long              suppressed;
+
+        /** When the last notice was printed, from {@link System#nanoTime()}. */
+        private long              lastNotice;
+
+        /**
+         * Constructs a Limiter with a full bucket.
+         *
+         * @param notices
+         *            Where the suppressed output notices are printed.
+         */
+        private Limiter( PrintStream notices ) {
+            this.notices = notices;
+            burst = Math.max( bytesPerSecond, MIN_BURST );
+            tokens = burst;
+            refilled = System.nanoTime();
+            lastNotice = refilled;
+        }
+
+        /**
+         * Passes output on to the target, as far as the policy allows.
+         *
+         * @param b
+         *            The output.
+         * @param off
+         *            Where the output starts in the array.
+         * @param len
+         *            How much output there is.
+         * @param target
+         *            Where the output goes.
+         * @throws IOException
+         *             If the target couldn't be written to.
+         * @throws InterruptedException
+         *             If the thread was interrupted while blocked.
+         */
+        public void write( byte[] b, int off, int len, OutputStream target ) throws IOException, InterruptedException {
+            if ( mode == Mode.BLOCK ) {
+                block( b, off, len, target );
+                return;
+            }
+
+            synchronized ( this ) {
+                refill();
+
+                if ( tokens >= len ) {
+                    tokens -= len;
+                    target.write( b, off, len );
+                }
+                else if ( mode == Mode.SAMPLE ) {
+                    sample( b, off, len, target );
+                }
+                else {
+                    suppressed += len;
+                }
+
+                if ( ( suppressed > 0 ) && ( System.nanoTime() - lastNotice >= NOTICE_INTERVAL ) ) notice();
+            }
+        }
+
+        /**
+         * Prints the notice of anything suppressed since the last one, called once the run is
+         * over.
+         */
+        public synchronized void finish() {
+            if ( suppressed > 0 ) notice();
+        }
+
+        /**
+         * Passes all of the output on, waiting for the tokens to do so.
+         *
+         * @param b
+         *            The output.
+         * @param off
+         *            Where the output starts in the array.
+         * @param len
+         *            How much output there is.
+         * @param target
+         *            Where the output goes.
+         * @throws IOException
+         *             If the target couldn't be written to.
+         * @throws InterruptedException
+         *             If the thread was interrupted while waiting.
+         */
+        private void block( byte[] b, int off, int len, OutputStream target ) throws IOException, InterruptedException {
+            while ( len > 0 ) {
+                int count;
+                synchronized ( this ) {
+                    refill();
+                    count = ( int ) Math.min( len, tokens );
+                    tokens -= count;
+                }
+
+                if ( count == 0 ) {
+                    // wait outside of the lock, for about as many tokens as are needed
+                    long needed = Math.min( len, MIN_BURST );
+                    Thread.sleep( Math.max( 1, needed * 1000 / bytesPerSecond ) );
+                    continue;
+                }
+
+                target.write( b, off, count );
+                off += count;
+                len -= count;
+            }
+        }
+
+        /**
+         * Passes on every so many whole lines of the output, as many as the tokens allow, so
+         * the lines that are kept are spread through all of it.
+         *
+         * @param b
+         *            The output.
+         * @param off
+         *            Where the output starts in the array.
+         * @param len
+         *            How much output there is.
+         * @param target
+         *            Where the output goes.
+         * @throws IOException
+         *             If the target couldn't be written to.
+         */
+        private void sample( byte[] b, int off, int len, OutputStream target ) throws IOException {
+            long step = ( tokens == 0 ) ? Long.MAX_VALUE : ( ( len + tokens - 1 ) / tokens ); // keep one line in every step
+            long kept = 0;
+            int line = 0;
+            int start = off;
+
+            for ( int i = off; i < off + len; i++ ) {
+                if ( ( b[ i ] != '\n' ) && ( i != off + len - 1 ) ) continue;
+
+                int length = i + 1 - start;
+                if ( ( line % step == 0 ) && ( length <= tokens ) ) {
+                    target.write( b, start, length );
+                    tokens -= length;
+                    kept += length;
+                }
+                line++;
+                start = i + 1;
+            }
+
+            suppressed += len - kept;
+        }
+
+        /**
+         * Adds the tokens for the time since they were last added.
+         */
+        private void refill() {
+            long now = System.nanoTime();
+            long elapsed = Math.min( now - refilled, TimeUnit.SECONDS.toNanos( 10 ) ); // the bucket is long full by then
+
+            // in floating point, the product of the two overflows a long at high enough rates
+            long earned = ( long ) ( elapsed * ( double ) bytesPerSecond / TimeUnit.SECONDS.toNanos( 1 ) );
+            if ( earned <= 0 ) return;
+
+            tokens = Math.max( 0, tokens + Math.min( earned, burst - tokens ) );
+            refilled = now;
+        }
+
+        /**
+         * Prints how many bytes have been suppressed since the last notice.
+         */
+        private void notice() {
+            notices.printf( "%n[%,d bytes of output suppressed, File > Save Output has all of it]%n", suppressed );
+            suppressed = 0;
+            lastNotice = System.nanoTime();
+        }
+
+    }
+
+}
@@ -0,0 +1,612 @@
+package com.github.obsidianarch.jsnippet;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Keeps all of a run's output in a file, however much there is of it, while the console only
+ * shows the last lines. Standard output and standard error are written to the file in the
+ * order they arrive, and a second file holds where every line starts, so any line can be read
+ * back without scanning the output.
+ * <p>
+ * Both files are written through memory mapped regions, so the output never passes through
+ * the heap, and the operating system writes it out when it suits it. Only the last
+ * {@link #KEPT_RUNS} runs are kept on the disk.
+ *
+ * @author Austin
+ */
+public class OutputSpool implements Closeable {
+
+    //
+    // Fields
+    //
+
+    /** How many runs are kept in the spool directory. */
+    public static final int          KEPT_RUNS     = 10;
+
+    /**
+     * The size of the mapped regions of the output. The file grows a region at a time, and
+     * the end of the last one stays in the file where it can't be cut off.
+     */
+    private static final int         DATA_REGION   = 4 * 1024 * 1024;
+
+    /** The size of the mapped regions of the line index, a multiple of an entry's size. */
+    private static final int         INDEX_REGION  = 512 * 1024;
+
+    /** Marks the index entry of a line from standard error. */
+    private static final long        ERROR_FLAG    = 1L << 63;
+
+    /** How much of the output is searched at a time. */
+    private static final int         SEARCH_BUFFER = 1024 * 1024;
+
+    /** Names the spool files after when the run started. */
+    private static final String      DATE_PATTERN  = "yyyyMMdd-HHmmss-SSS";
+
+    /** The file which holds the output. */
+    private final File               file;
+
+    /** The output, both streams together. */
+    private final MappedFile         data;
+
+    /** The start of every line in the output, with {@link #ERROR_FLAG} set for standard error. */
+    private final MappedFile         index;
+
+    /** If the next byte starts a line. */
+    private boolean                  lineStart     = true;
+
+    /** If the last byte came from standard error. */
+    private boolean                  lastError;
+
+    /** If the run is over, or the output can't be written. */
+    private boolean                  finished;
+
+    //
+    // Constructors
+    //
+
+    /**
+     * Creates the spool files.
+     *
+     * @param file
+     *            The file which holds the output, the line index is put next to it.
+     * @throws IOException
+     *             If the files couldn't be created.
+     */
+    private OutputSpool( File file ) throws IOException {
+        this.file = file;
+        data = new MappedFile( file, DATA_REGION );
+        index = new MappedFile( getIndexFile( file ), INDEX_REGION );
+    }
+
+    //
+    // Actions
+    //
+
+    /**
+     * Adds output from the run. Nothing is written once the run is over.
+     *
+     * @param b
+     *            The output.
+     * @param off
+     *            Where the output starts in the array.
+     * @param len
+     *            How much output there is.
+     * @param error
+     *            If it's from standard error.
+     */
+    public synchronized void write( byte[] b, int off, int len, boolean error ) {
+        if ( finished ) return;
+
+        try {
+            long position = data.getLength();
+
+            for ( int i = off; i < off + len; i++ ) {
+                // a line ends with a new line, or when the other stream starts printing
+                if ( lineStart || ( error != lastError ) ) {
+                    index.appendLong( ( position + ( i - off ) ) | ( error ? ERROR_FLAG : 0 ) );
+                    lineStart = false;
+                    lastError = error;
+                }
+                if ( b[ i ] == '\n' ) lineStart = true;
+            }
+
+            data.append( b, off, len );
+        }
+        catch ( IOException e ) {
+            System.err.println( "Failed to spool the output, the rest of it is only in the console" );
+            e.printStackTrace();
+            finish();
+        }
+    }
+
+    /**
+     * Ends the run, writing out everything that's still only in memory and cutting the files
+     * down to what was written. The output can still be read afterwards.
+     */
+    public synchronized void finish() {
+        if ( finished ) return;
+        finished = true;
+
+        try {
+            data.finish();
+            index.finish();
+        }
+        catch ( IOException e ) {
+            System.err.println( "Failed to finish the output spool" );
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Reads a line of the output.
+     *
+     * @param line
+     *            The line, from 0.
+     * @return The line, without its line separator.
+     * @throws IOException
+     *             If the output couldn't be read.
+     */
+    public synchronized String getLine( long line ) throws IOException {
+        long start = getLineStart( line );
+        long end = ( line + 1 < getLineCount() ) ? getLineStart( line + 1 ) : data.getLength();
+
+        byte[] bytes = new byte[ ( int ) Math.min( end - start, Integer.MAX_VALUE - 8 ) ];
+        data.read( start, bytes, 0, bytes.length );
+
+        int length = bytes.length;
+        if ( ( length > 0 ) && ( bytes[ length - 1 ] == '\n' ) ) length--;
+        if ( ( length > 0 ) && ( bytes[ length - 1 ] == '\r' ) ) length--;
+        return new String( bytes, 0, length, StandardCharsets.UTF_8 );
+    }
+
+    /**
+     * Finds the lines which contain the text, from the start of the output. The output that's
+     * there when the search starts is searched without holding the spool's lock, as it never
+     * changes, so the run's output keeps arriving while a large spool is searched.
+     *
+     * @param text
+     *            The text to look for.
+     * @param limit
+     *            The most lines to find.
+     * @return The lines which contain the text, in order.
+     * @throws IOException
+     *             If the output couldn't be read.
+     */
+    public List< Long > find( String text, int limit ) throws IOException {
+        List< Long > lines = new ArrayList<>();
+        byte[] needle = text.getBytes( StandardCharsets.UTF_8 );
+        if ( needle.length == 0 ) return lines;
+
+        byte[] buffer = new byte[ Math.max( SEARCH_BUFFER, needle.length * 2 ) ];
+        long length = getLength();
+        long lastLine = -1;
+
+        // each read overlaps the last one by the length of the text, so matches aren't split
+        for ( long position = 0; position < length; position += buffer.length - needle.length + 1 ) {
+            int read = ( int ) Math.min( buffer.length, length - position );
+            data.readFromChannel( position, buffer, 0, read ); // the regions are only safe to use under the lock
+
+            for ( int i = 0; i + needle.length <= read; i++ ) {
+                if ( !matches( buffer, i, needle ) ) continue;
+
+                long line;
+                synchronized ( this ) {
+                    line = findLine( position + i );
+                }
+                if ( line == lastLine ) continue;
+
+                lines.add( line );
+                lastLine = line;
+                if ( lines.size() == limit ) return lines;
+            }
+
+            if ( position + read == length ) break;
+        }
+        return lines;
+    }
+
+    /**
+     * Copies the output to a file.
+     *
+     * @param destination
+     *            The file.
+     * @throws IOException
+     *             If the output couldn't be copied.
+     */
+    public synchronized void saveTo( File destination ) throws IOException {
+        data.copyTo( destination );
+    }
+
+    /**
+     * Finds the line that a position in the output is in.
+     *
+     * @param position
+     *            The position.
+     * @return The line.
+     * @throws IOException
+     *             If the index couldn't be read.
+     */
+    private long findLine( long position ) throws IOException {
+        long low = 0;
+        long high = getLineCount() - 1;
+        while ( low < high ) {
+            long middle = ( low + high + 1 ) >>> 1;
+            if ( getLineStart( middle ) <= position ) low = middle;
+            else high = middle - 1;
+        }
+        return low;
+    }
+
+    //
+    // Getters
+    //
+
+    /**
+     * @return The file which holds the output.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return The number of bytes of output.
+     */
+    public synchronized long getLength() {
+        return data.getLength();
+    }
+
+    /**
+     * @return The number of lines of output.
+     */
+    public synchronized long getLineCount() {
+        return index.getLength() / 8;
+    }
+
+    /**
+     * Checks if a line came from standard error.
+     *
+     * @param line
+     *            The line, from 0.
+     * @return If it's from standard error.
+     * @throws IOException
+     *             If the index couldn't be read.
+     */
+    public synchronized boolean isError( long line ) throws IOException {
+        return ( index.readLong( line * 8 ) & ERROR_FLAG ) != 0;
+    }
+
+    /**
+     * Finds where a line starts in the output.
+     *
+     * @param line
+     *            The line, from 0.
+     * @return The position of its first byte.
+     * @throws IOException
+     *             If the index couldn't be read.
+     */
+    private long getLineStart( long line ) throws IOException {
+        return index.readLong( line * 8 ) & ~ERROR_FLAG;
+    }
+
+    //
+    // Overrides
+    //
+
+    @Override
+    public synchronized void close() throws IOException {
+        finish();
+        data.close();
+        index.close();
+    }
+
+    //
+    // Static
+    //
+
+    /**
+     * Creates the spool for a new run, deleting the oldest runs so only {@link #KEPT_RUNS}
+     * are left.
+     *
+     * @param directory
+     *            The directory which holds the spools.
+     * @return The spool.
+     * @throws IOException
+     *             If the spool couldn't be created.
+     */
+    public static OutputSpool create( File directory ) throws IOException {
+        directory.mkdirs();
+
+        File[] runs = directory.listFiles( new FileFilter() {
+
+            @Override
+            public boolean accept( File file ) {
+                return file.getName().startsWith( "run-" ) && file.getName().endsWith( ".out" );
+            }
+
+        } );
+
+        if ( ( runs != null ) && ( runs.length >= KEPT_RUNS ) ) {
+            Arrays.sort( runs ); // the names sort by date
+            for ( int i = 0; i <= runs.length - KEPT_RUNS; i++ ) {
+                runs[ i ].delete();
+                getIndexFile( runs[ i ] ).delete();
+            }
+        }
+
+        String name = "run-" + new SimpleDateFormat( DATE_PATTERN ).format( new Date() );
+        File file = new File( directory, name + ".out" );
+        for ( int i = 1; file.exists(); i++ ) {
+            file = new File( directory, name + "-" + i + ".out" );
+        }
+        return new OutputSpool( file );
+    }
+
+    /**
+     * Checks if the bytes at the offset are the text.
+     *
+     * @param buffer
+     *            The bytes.
+     * @param offset
+     *            Where to look.
+     * @param needle
+     *            The text.
+     * @return If they match.
+     */
+    private static boolean matches( byte[] buffer, int offset, byte[] needle ) {
+        for ( int i = 0; i < needle.length; i++ ) {
+            if ( buffer[ offset + i ] != needle[ i ] ) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param file
+     *            The file which holds the output.
+     * @return The file which holds its line index.
+     */
+    private static File getIndexFile( File file ) {
+        String name = file.getName();
+        return new File( file.getParentFile(), name.substring( 0, name.length() - ".out".length() ) + ".lines" );
+    }
+
+    //
+    // Nested Classes
+    //
+
+    /**
+     * A file that's appended to through memory mapped regions, which are mapped as the file
+     * grows. Once it's finished it's read through its channel instead.
+     *
+     * @author Austin
+     */
+    private static class MappedFile implements Closeable {
+
+        /** The open file. */
+        private final FileChannel              channel;
+
+        /** The size of each region. */
+        private final int                      region;
+
+        /** The regions mapped so far, in order, empty once the file is finished. */
+        private final List< MappedByteBuffer > regions = new ArrayList<>();
+
+        /** How much has been written. */
+        private long                           length;
+
+        /**
+         * Creates the file, replacing whatever was there.
+         *
+         * @param file
+         *            The file.
+         * @param region
+         *            The size of each mapped region.
+         * @throws IOException
+         *             If the file couldn't be created.
+         */
+        public MappedFile( File file, int region ) throws IOException {
+            this.region = region;
+            channel = FileChannel.open( file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE );
+        }
+
+        /**
+         * Adds the bytes to the end of the file.
+         *
+         * @param b
+         *            The bytes.
+         * @param off
+         *            Where they start in the array.
+         * @param len
+         *            How many there are.
+         * @throws IOException
+         *             If the next region couldn't be mapped.
+         */
+        public void append( byte[] b, int off, int len ) throws IOException {
+            while ( len > 0 ) {
+                MappedByteBuffer buffer = current();
+                int count = Math.min( len, buffer.remaining() );
+                buffer.put( b, off, count );
+
+                off += count;
+                len -= count;
+                length += count;
+            }
+        }
+
+        /**
+         * Adds a long to the end of the file, the region size has to be a multiple of 8.
+         *
+         * @param value
+         *            The long.
+         * @throws IOException
+         *             If the next region couldn't be mapped.
+         */
+        public void appendLong( long value ) throws IOException {
+            current().putLong( value );
+            length += 8;
+        }
+
+        /**
+         * Reads bytes from the file.
+         *
+         * @param position
+         *            Where to read from.
+         * @param b
+         *            Receives the bytes.
+         * @param off
+         *            Where to put them in the array.
+         * @param len
+         *            How many to read, which have to have been written.
+         * @throws IOException
+         *             If the file couldn't be read.
+         */
+        public void read( long position, byte[] b, int off, int len ) throws IOException {
+            if ( regions.isEmpty() ) {
+                readFromChannel( position, b, off, len );
+                return;
+            }
+
+            while ( len > 0 ) {
+                ByteBuffer buffer = regions.get( ( int ) ( position / region ) ).duplicate();
+                buffer.position( ( int ) ( position % region ) );
+
+                int count = Math.min( len, buffer.remaining() );
+                buffer.get( b, off, count );
+
+                position += count;
+                off += count;
+                len -= count;
+            }
+        }
+
+        /**
+         * Reads bytes from the file through its channel, which sees what was written through
+         * the regions. Unlike {@link #read(long, byte[], int, int)} it can be called while the
+         * file is being appended to.
+         *
+         * @param position
+         *            Where to read from.
+         * @param b
+         *            Receives the bytes.
+         * @param off
+         *            Where to put them in the array.
+         * @param len
+         *            How many to read, which have to have been written.
+         * @throws IOException
+         *             If the file couldn't be read.
+         */
+        public void readFromChannel( long position, byte[] b, int off, int len ) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap( b, off, len );
+            while ( buffer.hasRemaining() ) {
+                if ( channel.read( buffer, position + ( buffer.position() - off ) ) < 0 ) throw new IOException( "The spool file is shorter than its index" );
+            }
+        }
+
+        /**
+         * Reads a long from the file.
+         *
+         * @param position
+         *            Where to read from, a multiple of 8.
+         * @return The long.
+         * @throws IOException
+         *             If the file couldn't be read.
+         */
+        public long readLong( long position ) throws IOException {
+            if ( !regions.isEmpty() ) return regions.get( ( int ) ( position / region ) ).getLong( ( int ) ( position % region ) );
+
+            byte[] bytes = new byte[ 8 ];
+            read( position, bytes, 0, 8 );
+            return ByteBuffer.wrap( bytes ).getLong();
+        }
+
+        /**
+         * Copies what's been written to another file.
+         *
+         * @param destination
+         *            The file.
+         * @throws IOException
+         *             If the file couldn't be copied.
+         */
+        public void copyTo( File destination ) throws IOException {
+            try ( FileChannel out = FileChannel.open( destination.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE ) ) {
+                long position = 0;
+                while ( position < length ) {
+                    position += channel.transferTo( position, length - position, out );
+                }
+            }
+        }
+
+        /**
+         * Writes the mapped regions out and cuts the file down to what was written.
+         *
+         * @throws IOException
+         *             If the file couldn't be cut down.
+         */
+        public void finish() throws IOException {
+            for ( MappedByteBuffer buffer : regions ) {
+                buffer.force();
+            }
+            regions.clear();
+            truncate();
+        }
+
+        /**
+         * Cuts the file down to what was written, if it can be.
+         *
+         * @return If the file was cut down.
+         */
+        private boolean truncate() {
+            try {
+                channel.truncate( length );
+                return true;
+            }
+            catch ( IOException e ) {
+                // Windows won't shrink a file until its mappings are collected, which leaves
+                // the end of the last region in the file until it's closed
+                return false;
+            }
+        }
+
+        /**
+         * @return How much has been written.
+         */
+        public long getLength() {
+            return length;
+        }
+
+        /**
+         * @return The region that the next write goes in, mapped if it hasn't been yet.
+         * @throws IOException
+         *             If it couldn't be mapped.
+         */
+        private MappedByteBuffer current() throws IOException {
+            int next = ( int ) ( length / region );
+            if ( next == regions.size() ) {
+                regions.add( channel.map( FileChannel.MapMode.READ_WRITE, ( long ) next * region, region ) );
+            }
+            return regions.get( next );
+        }
+
+        @Override
+        public void close() throws IOException {
+            if ( ( channel.size() > length ) && !truncate() ) {
+                System.gc(); // the only way to let go of the regions' mappings
+                truncate();
+            }
+            channel.close();
+        }
+
+    }
+
+}
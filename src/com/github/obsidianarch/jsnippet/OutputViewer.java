@@ -0,0 +1,453 @@
+package com.github.obsidianarch.jsnippet;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Toolkit;
+import java.awt.datatransfer.StringSelection;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.swing.AbstractAction;
+import javax.swing.JComponent;
+import javax.swing.JViewport;
+import javax.swing.KeyStroke;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.UIManager;
+
+/**
+ * Shows a run's output, which is kept in a {@link LineStore} outside of the heap. Only the
+ * lines inside of the viewport are read and drawn, so millions of lines take no more memory or
+ * time to show than a screenful. Standard error is drawn in its own color, and whole lines can
+ * be selected with the mouse and copied.
+ * <p>
+ * Output is added from any thread through the streams set by {@link #redirectOut()} and
+ * {@link #redirectErr()}, and the viewer catches up at most once per frame.
+ *
+ * @author Austin
+ */
+public class OutputViewer extends JComponent implements Scrollable {
+
+    //
+    // Fields
+    //
+
+    /** How long the viewer waits for more output before catching up, in milliseconds. */
+    private static final int     FRAME_DELAY    = 25;
+
+    /** The most bytes of output that are kept. */
+    private static final int     BYTE_LIMIT     = 256 * 1024 * 1024;
+
+    /** The most lines that are kept. */
+    private static final int     LINE_LIMIT     = 8 * 1024 * 1024;
+
+    /** The most lines that are copied at once. */
+    private static final int     COPY_LIMIT     = 100000;
+
+    /** The space around the text. */
+    private static final int     MARGIN         = 2;
+
+    /** The output. */
+    private final LineStore      store          = new LineStore( BYTE_LIMIT, LINE_LIMIT );
+
+    /** If the viewer is waiting to catch up with the output. */
+    private final AtomicBoolean  scheduled      = new AtomicBoolean();
+
+    /** Catches up with the output. */
+    private final Timer          refreshTimer;
+
+    /** The color of standard error. */
+    private Color                errorColor     = Color.RED;
+
+    /** The color behind the selected lines. */
+    private Color                selectionColor = UIManager.getColor( "TextArea.selectionBackground" );
+
+    /** The line the selection started at, or -1 if nothing is selected. */
+    private int                  anchorLine     = -1;
+
+    /** The line the selection ends at. */
+    private int                  leadLine       = -1;
+
+    /** The number of lines the last time the viewer caught up. */
+    private int                  shownLines;
+
+    /** The modification count of the store the last time the viewer caught up. */
+    private long                 shownModifications;
+
+    //
+    // Constructors
+    //
+
+    /**
+     * Constructs an empty OutputViewer.
+     */
+    public OutputViewer() {
+        setOpaque( true );
+        setBackground( Color.WHITE );
+        setForeground( Color.BLACK );
+        setFocusable( true );
+        if ( selectionColor == null ) selectionColor = new Color( 184, 207, 229 );
+
+        refreshTimer = new Timer( FRAME_DELAY, new ActionListener() {
+
+            @Override
+            public void actionPerformed( ActionEvent e ) {
+                refresh();
+            }
+
+        } );
+        refreshTimer.setRepeats( false );
+
+        MouseAdapter selector = new MouseAdapter() {
+
+            @Override
+            public void mousePressed( MouseEvent e ) {
+                requestFocusInWindow();
+                anchorLine = leadLine = getLineAt( e.getY() );
+                repaint();
+            }
+
+            @Override
+            public void mouseDragged( MouseEvent e ) {
+                if ( anchorLine < 0 ) return;
+
+                leadLine = getLineAt( e.getY() );
+                scrollRectToVisible( new Rectangle( 0, e.getY(), 1, 1 ) );
+                repaint();
+            }
+
+        };
+        addMouseListener( selector );
+        addMouseMotionListener( selector );
+
+        getInputMap().put( KeyStroke.getKeyStroke( "control C" ), "copy" );
+        getActionMap().put( "copy", new AbstractAction() {
+
+            @Override
+            public void actionPerformed( ActionEvent e ) {
+                copySelection();
+            }
+
+        } );
+
+        getInputMap().put( KeyStroke.getKeyStroke( "control A" ), "selectAll" );
+        getActionMap().put( "selectAll", new AbstractAction() {
+
+            @Override
+            public void actionPerformed( ActionEvent e ) {
+                anchorLine = 0;
+                leadLine = store.getLineCount() - 1;
+                repaint();
+            }
+
+        } );
+    }
+
+    //
+    // Actions
+    //
+
+    /**
+     * Adds output to the viewer, from any thread.
+     *
+     * @param b
+     *            The output.
+     * @param off
+     *            Where the output starts in the array.
+     * @param len
+     *            How much output there is.
+     * @param error
+     *            If it's from standard error.
+     */
+    public void append( byte[] b, int off, int len, boolean error ) {
+        store.append( b, off, len, error );
+        schedule();
+    }
+
+    /**
+     * Removes all of the output, from any thread.
+     */
+    public void clear() {
+        store.clear();
+        schedule();
+    }
+
+    /**
+     * Redirects the standard output to the viewer.
+     */
+    public void redirectOut() {
+        System.setOut( new PrintStream( new ViewerOutputStream( false ), true ) );
+    }
+
+    /**
+     * Redirects the standard error to the viewer, where it's drawn in the error color.
+     */
+    public void redirectErr() {
+        System.setErr( new PrintStream( new ViewerOutputStream( true ), true ) );
+    }
+
+    /**
+     * Copies the selected lines to the clipboard.
+     */
+    private void copySelection() {
+        if ( anchorLine < 0 ) return;
+
+        StringBuilder sb = new StringBuilder();
+        synchronized ( store ) { // nothing can be cleared or dropped between counting and reading
+            int count = store.getLineCount();
+            int start = Math.min( Math.min( anchorLine, leadLine ), count );
+            int end = Math.min( Math.max( anchorLine, leadLine ) + 1, Math.min( count, start + COPY_LIMIT ) );
+
+            for ( int line = start; line < end; line++ ) {
+                sb.append( store.getLine( line ) ).append( System.lineSeparator() );
+            }
+        }
+        Toolkit.getDefaultToolkit().getSystemClipboard().setContents( new StringSelection( sb.toString() ), null );
+    }
+
+    /**
+     * Makes sure the viewer catches up with the output. Only one catch up is pending at a
+     * time, so the viewer is updated at most once per frame no matter how fast the output
+     * arrives.
+     */
+    private void schedule() {
+        if ( scheduled.compareAndSet( false, true ) ) {
+            SwingUtilities.invokeLater( new Runnable() {
+
+                @Override
+                public void run() {
+                    refreshTimer.restart();
+                }
+
+            } );
+        }
+    }
+
+    /**
+     * Catches up with the output on the Event Dispatch Thread, following the end of the
+     * output if the viewport was already at the end.
+     */
+    private void refresh() {
+        scheduled.set( false );
+
+        long modifications = store.getModifications();
+        if ( modifications == shownModifications ) return;
+        shownModifications = modifications;
+
+        Rectangle visible = getVisibleRect();
+        boolean following = ( visible.y + visible.height ) >= ( shownLines * getLineHeight() );
+
+        int lines = store.getLineCount();
+        if ( lines < shownLines ) anchorLine = leadLine = -1; // cleared, or the selection was dropped
+        shownLines = lines;
+
+        revalidate();
+        repaint();
+
+        if ( following ) {
+            // after the layout, when the viewer has its new size
+            SwingUtilities.invokeLater( new Runnable() {
+
+                @Override
+                public void run() {
+                    scrollRectToVisible( new Rectangle( 0, getHeight() - 1, 1, 1 ) );
+                }
+
+            } );
+        }
+    }
+
+    //
+    // Setters
+    //
+
+    /**
+     * Sets the most lines that are shown, the oldest lines beyond it are dropped. The whole
+     * output is still in the run's {@link OutputSpool}.
+     *
+     * @param lines
+     *            The line limit.
+     */
+    public void setLineLimit( int lines ) {
+        store.setLineLimit( lines );
+        schedule();
+    }
+
+    /**
+     * @param errorColor
+     *            The color standard error is drawn in.
+     */
+    public void setErrorColor( Color errorColor ) {
+        this.errorColor = errorColor;
+        repaint();
+    }
+
+    //
+    // Getters
+    //
+
+    /**
+     * @return The number of lines that are shown.
+     */
+    public int getLineCount() {
+        return store.getLineCount();
+    }
+
+    /**
+     * @return The height of a line, in pixels.
+     */
+    private int getLineHeight() {
+        return getFontMetrics( getFont() ).getHeight();
+    }
+
+    /**
+     * Finds the line at a height in the viewer.
+     *
+     * @param y
+     *            The height, in pixels.
+     * @return The line, which is within the lines that are shown.
+     */
+    private int getLineAt( int y ) {
+        int line = Math.max( 0, ( y - MARGIN ) / getLineHeight() );
+        return Math.max( 0, Math.min( line, store.getLineCount() - 1 ) );
+    }
+
+    //
+    // Overrides
+    //
+
+    @Override
+    protected void paintComponent( Graphics g ) {
+        Rectangle clip = g.getClipBounds();
+        g.setColor( getBackground() );
+        g.fillRect( clip.x, clip.y, clip.width, clip.height );
+
+        Graphics2D g2 = ( Graphics2D ) g;
+        g2.setRenderingHint( RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON );
+        g.setFont( getFont() );
+
+        FontMetrics metrics = g.getFontMetrics();
+        int lineHeight = metrics.getHeight();
+        int firstLine = Math.max( 0, ( clip.y - MARGIN ) / lineHeight );
+
+        // only the lines inside of the clip are read, all at once so that they're the same lines
+        // the count was taken from, and drawn after the store is free again
+        String[] lines;
+        boolean[] errors;
+        synchronized ( store ) {
+            int lastLine = Math.min( store.getLineCount() - 1, ( clip.y + clip.height - MARGIN ) / lineHeight );
+            lines = new String[ Math.max( 0, lastLine - firstLine + 1 ) ];
+            errors = new boolean[ lines.length ];
+            for ( int i = 0; i < lines.length; i++ ) {
+                lines[ i ] = store.getLine( firstLine + i );
+                errors[ i ] = store.isError( firstLine + i );
+            }
+        }
+
+        int selectionStart = Math.min( anchorLine, leadLine );
+        int selectionEnd = Math.max( anchorLine, leadLine );
+
+        for ( int i = 0; i < lines.length; i++ ) {
+            int line = firstLine + i;
+            int top = MARGIN + line * lineHeight;
+
+            if ( ( anchorLine >= 0 ) && ( line >= selectionStart ) && ( line <= selectionEnd ) ) {
+                g.setColor( selectionColor );
+                g.fillRect( clip.x, top, clip.width, lineHeight );
+            }
+
+            g.setColor( errors[ i ] ? errorColor : getForeground() );
+            g.drawString( lines[ i ].replace( "\t", "    " ), MARGIN, top + metrics.getAscent() );
+        }
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        FontMetrics metrics = getFontMetrics( getFont() );
+        int width = Math.min( store.getLongestLine(), 10000 ) * metrics.charWidth( 'm' ); // monospaced, and too long lines are cut off
+        return new Dimension( width + MARGIN * 2, store.getLineCount() * metrics.getHeight() + MARGIN * 2 );
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement( Rectangle visibleRect, int orientation, int direction ) {
+        return ( orientation == SwingConstants.VERTICAL ) ? getLineHeight() : getFontMetrics( getFont() ).charWidth( 'm' );
+    }
+
+    @Override
+    public int getScrollableBlockIncrement( Rectangle visibleRect, int orientation, int direction ) {
+        return ( orientation == SwingConstants.VERTICAL ) ? visibleRect.height : visibleRect.width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        // fill the viewport when the lines are shorter than it
+        return ( getParent() instanceof JViewport ) && ( getParent().getWidth() > getPreferredSize().width );
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return ( getParent() instanceof JViewport ) && ( getParent().getHeight() > getPreferredSize().height );
+    }
+
+    @Override
+    public void setFont( Font font ) {
+        super.setFont( font );
+        revalidate();
+        repaint();
+    }
+
+    //
+    // Nested Classes
+    //
+
+    /**
+     * Adds everything written to it to the viewer.
+     *
+     * @author Austin
+     */
+    private class ViewerOutputStream extends OutputStream {
+
+        /** If this is standard error. */
+        private final boolean error;
+
+        /**
+         * Constructs a ViewerOutputStream.
+         *
+         * @param error
+         *            If this is standard error.
+         */
+        public ViewerOutputStream( boolean error ) {
+            this.error = error;
+        }
+
+        @Override
+        public void write( int b ) {
+            append( new byte[ ] { ( byte ) b }, 0, 1, error );
+        }
+
+        @Override
+        public void write( byte[] b, int off, int len ) {
+            append( b, off, len, error );
+        }
+
+    }
+
+}
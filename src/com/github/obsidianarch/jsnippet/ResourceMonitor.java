@@ -0,0 +1,809 @@
+package com.github.obsidianarch.jsnippet;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServerConnection;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+import com.sun.tools.attach.VirtualMachine;
+
+/**
+ * Samples the resources of the running snippet a few times a second: its CPU use, resident
+ * memory, heap, garbage collections, threads and loaded classes. The CPU time comes from the
+ * operating system and the resident memory from {@code /proc/<pid>/status}, where there is
+ * one. The rest comes from the snippet's JVM through JMX, by attaching to it, or from this
+ * JVM's own MXBeans when the snippet runs inside of the editor. Whatever can't be read is
+ * left out of the sample.
+ * <p>
+ * A process which does its work in processes of its own, like the JMH runner in its forks,
+ * can be sampled together with them. The CPU use, resident memory and threads are then those
+ * of all of them together, and the JVM that's attached to, if any, is the newest of them.
+ * <p>
+ * A process that's being measured, like a benchmark fork or the JMH runner, isn't attached to,
+ * since the management agent would run inside of it and skew what it measures. Only the
+ * numbers from the operating system are sampled for it.
+ * <p>
+ * The samples of the last runs are kept, so a run can be compared with the ones before it.
+ *
+ * @author Austin
+ */
+public class ResourceMonitor {
+
+    //
+    // Fields
+    //
+
+    /** How many times attaching to a JVM is tried, it may not be listening yet. */
+    private static final int               ATTACH_ATTEMPTS = 4;
+
+    /** The time between samples, in milliseconds. */
+    private final long                     interval;
+
+    /** The most runs that are kept. */
+    private final int                      keptRuns;
+
+    /** Takes the samples. */
+    private final ScheduledExecutorService sampler;
+
+    /** The runs that are kept, the current one last. */
+    private final List< Run >              runs            = new ArrayList<>();
+
+    /** Told about every new run and sample, on the sampler's thread. */
+    private final List< ChangeListener >   listeners       = new CopyOnWriteArrayList<>();
+
+    /** The run being sampled, or null. */
+    private Run                            current;
+
+    /** The sampling of the current run. */
+    private ScheduledFuture< ? >           task;
+
+    /** If any process's JVM may be attached to. */
+    private volatile boolean               attaching       = true;
+
+    //
+    // Constructors
+    //
+
+    /**
+     * Constructs a ResourceMonitor.
+     *
+     * @param interval
+     *            The time between samples, in milliseconds.
+     * @param keptRuns
+     *            The most runs that are kept.
+     */
+    public ResourceMonitor( long interval, int keptRuns ) {
+        this.interval = interval;
+        this.keptRuns = keptRuns;
+
+        sampler = Executors.newSingleThreadScheduledExecutor( new ThreadFactory() {
+
+            @Override
+            public Thread newThread( Runnable r ) {
+                Thread thread = new Thread( r, "Resource Monitor" );
+                thread.setDaemon( true );
+                return thread;
+            }
+
+        } );
+    }
+
+    //
+    // Actions
+    //
+
+    /**
+     * Starts sampling a snippet running in its own process, until it exits.
+     *
+     * @param process
+     *            The process.
+     * @param label
+     *            What the run is listed as.
+     */
+    public void watch( Process process, String label ) {
+        watch( process, label, false, true );
+    }
+
+    /**
+     * Starts sampling a snippet running in its own process, until it exits.
+     *
+     * @param process
+     *            The process.
+     * @param label
+     *            What the run is listed as.
+     * @param descendants
+     *            If the processes it starts are sampled with it.
+     * @param attach
+     *            If its JVM is attached to for the heap, garbage collections and classes.
+     */
+    public void watch( final Process process, String label, boolean descendants, boolean attach ) {
+        attach &= attaching;
+        if ( descendants ) label += " (with its child processes)";
+        if ( !attach ) label += " (not attached to)";
+
+        start( new Sampler( new Run( label ), process.pid(), false, descendants, attach ) {
+
+            @Override
+            protected boolean isRunning() {
+                return process.isAlive();
+            }
+
+        } );
+    }
+
+    /**
+     * Starts sampling a snippet running inside of this JVM, until its run has ended. The
+     * heap, threads and classes are those of the whole editor.
+     *
+     * @param execution
+     *            The execution.
+     * @param label
+     *            What the run is listed as.
+     */
+    public void watch( final InProcessExecution execution, String label ) {
+        start( new Sampler( new Run( label + " (in the editor)" ), ProcessHandle.current().pid(), true, false, true ) {
+
+            @Override
+            protected boolean isRunning() {
+                return !execution.hasEnded();
+            }
+
+        } );
+    }
+
+    /**
+     * Stops sampling the current run.
+     */
+    public synchronized void stop() {
+        if ( task != null ) task.cancel( false );
+        task = null;
+        current = null;
+    }
+
+    /**
+     * Adds a listener which is told about every new run and sample, on the sampler's thread.
+     *
+     * @param listener
+     *            The listener.
+     */
+    public void addChangeListener( ChangeListener listener ) {
+        listeners.add( listener );
+    }
+
+    /**
+     * Stops sampling the last run and starts sampling a new one.
+     *
+     * @param runSampler
+     *            Samples the new run.
+     */
+    private synchronized void start( Sampler runSampler ) {
+        stop();
+
+        current = runSampler.run;
+        runs.add( current );
+        while ( runs.size() > keptRuns ) {
+            runs.remove( 0 );
+        }
+
+        task = sampler.scheduleWithFixedDelay( runSampler, 0, interval, TimeUnit.MILLISECONDS );
+        fireChanged();
+    }
+
+    /**
+     * Tells the listeners that something changed.
+     */
+    private void fireChanged() {
+        ChangeEvent event = new ChangeEvent( this );
+        for ( ChangeListener listener : listeners ) {
+            listener.stateChanged( event );
+        }
+    }
+
+    //
+    // Setters
+    //
+
+    /**
+     * Sets if the JVMs of the processes that are watched from now on may be attached to. Only
+     * the numbers from the operating system are sampled for them if they can't.
+     *
+     * @param attaching
+     *            If JVMs are attached to.
+     */
+    public void setAttaching( boolean attaching ) {
+        this.attaching = attaching;
+    }
+
+    //
+    // Getters
+    //
+
+    /**
+     * @return The runs that are kept, oldest first.
+     */
+    public synchronized List< Run > getRuns() {
+        return Collections.unmodifiableList( new ArrayList<>( runs ) );
+    }
+
+    /**
+     * @return The run being sampled, or null if nothing is.
+     */
+    public synchronized Run getCurrent() {
+        return current;
+    }
+
+    //
+    // Nested Classes
+    //
+
+    /**
+     * What is sampled, and how it's shown.
+     *
+     * @author Austin
+     */
+    public enum Metric {
+
+        /** The CPU time used per second, in percent of one core. */
+        CPU( "CPU" ),
+
+        /** The resident memory, in bytes. */
+        RSS( "RSS" ),
+
+        /** The used heap, in bytes. */
+        HEAP_USED( "Heap Used" ),
+
+        /** The committed heap, in bytes. */
+        HEAP_COMMITTED( "Heap Committed" ),
+
+        /** The number of garbage collections since the JVM started. */
+        GC_COUNT( "GC Count" ),
+
+        /** The time spent in garbage collections since the JVM started, in milliseconds. */
+        GC_TIME( "GC Time" ),
+
+        /** The number of live threads. */
+        THREADS( "Threads" ),
+
+        /** The number of loaded classes. */
+        CLASSES( "Classes" );
+
+        /** The name the metric is shown with. */
+        private final String name;
+
+        /**
+         * Constructs a Metric.
+         *
+         * @param name
+         *            The name the metric is shown with.
+         */
+        private Metric( String name ) {
+            this.name = name;
+        }
+
+        /**
+         * Formats a value of the metric.
+         *
+         * @param value
+         *            The value.
+         * @return The formatted value.
+         */
+        public String format( double value ) {
+            if ( Double.isNaN( value ) ) return "-";
+
+            switch ( this ) {
+                case CPU:
+                    return String.format( "%.0f%%", value );
+                case RSS:
+                case HEAP_USED:
+                case HEAP_COMMITTED:
+                    return String.format( "%.1f MB", value / ( 1024 * 1024 ) );
+                case GC_TIME:
+                    return String.format( "%,.0f ms", value );
+                default:
+                    return String.format( "%,.0f", value );
+            }
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+
+    }
+
+    /**
+     * The samples of one run.
+     *
+     * @author Austin
+     */
+    public static class Run {
+
+        /** What the run is listed as. */
+        private final String           label;
+
+        /** When the run started, in milliseconds since the epoch. */
+        private final long             started  = System.currentTimeMillis();
+
+        /** The time of each sample, in milliseconds since the run started. */
+        private final List< Long >     times    = new ArrayList<>();
+
+        /** The values of each sample, by {@link Metric#ordinal()}, NaN where it couldn't be read. */
+        private final List< double[] > samples  = new ArrayList<>();
+
+        /** The largest value of each metric. */
+        private final double[]         maximums = new double[ Metric.values().length ];
+
+        /**
+         * Constructs an empty Run.
+         *
+         * @param label
+         *            What the run is listed as.
+         */
+        private Run( String label ) {
+            this.label = label;
+        }
+
+        /**
+         * Adds a sample.
+         *
+         * @param time
+         *            The time of the sample, in milliseconds since the run started.
+         * @param values
+         *            The values, by {@link Metric#ordinal()}.
+         */
+        private synchronized void add( long time, double[] values ) {
+            times.add( time );
+            samples.add( values );
+            for ( int i = 0; i < values.length; i++ ) {
+                if ( values[ i ] > maximums[ i ] ) maximums[ i ] = values[ i ];
+            }
+        }
+
+        /**
+         * @return The number of samples.
+         */
+        public synchronized int getSampleCount() {
+            return samples.size();
+        }
+
+        /**
+         * @param sample
+         *            The sample.
+         * @return The time of the sample, in milliseconds since the run started.
+         */
+        public synchronized long getTime( int sample ) {
+            return times.get( sample );
+        }
+
+        /**
+         * @param sample
+         *            The sample.
+         * @param metric
+         *            The metric.
+         * @return The value of the metric in the sample, NaN if it couldn't be read.
+         */
+        public synchronized double getValue( int sample, Metric metric ) {
+            return samples.get( sample )[ metric.ordinal() ];
+        }
+
+        /**
+         * @param metric
+         *            The metric.
+         * @return The value of the metric in the last sample, NaN if there isn't one.
+         */
+        public synchronized double getLast( Metric metric ) {
+            return samples.isEmpty() ? Double.NaN : samples.get( samples.size() - 1 )[ metric.ordinal() ];
+        }
+
+        /**
+         * @param metric
+         *            The metric.
+         * @return The largest value of the metric, 0 if there isn't one.
+         */
+        public synchronized double getMax( Metric metric ) {
+            return maximums[ metric.ordinal() ];
+        }
+
+        /**
+         * @return How long the run was sampled for, in milliseconds.
+         */
+        public synchronized long getDuration() {
+            return times.isEmpty() ? 0 : times.get( times.size() - 1 );
+        }
+
+        @Override
+        public String toString() {
+            return new SimpleDateFormat( "HH:mm:ss" ).format( new Date( started ) ) + " " + label;
+        }
+
+    }
+
+    /**
+     * Takes the samples of a run, until the run is over.
+     *
+     * @author Austin
+     */
+    private abstract class Sampler implements Runnable {
+
+        /** The run the samples are added to. */
+        private final Run                               run;
+
+        /** The process being sampled. */
+        private final long                              pid;
+
+        /** If the process is this JVM, whose MXBeans are read directly. */
+        private final boolean                           local;
+
+        /** If the processes the process starts are sampled with it. */
+        private final boolean                           descendants;
+
+        /** If the JVM is attached to, or only the operating system's numbers are read. */
+        private final boolean                           attach;
+
+        /** The CPU time of every process at the last sample, in nanoseconds, by pid. */
+        private final Map< Long, Long >                 lastCpus    = new HashMap<>();
+
+        /** The process whose JVM is attached to, or being attached to. */
+        private volatile long                           jvmPid;
+
+        /** The connection to the process's JVM, or null. */
+        private volatile JMXConnector                   connector;
+
+        /** The JVM's memory, or null until it's been attached to. */
+        private volatile MemoryMXBean                   memory;
+
+        /** The JVM's garbage collectors. */
+        private volatile List< GarbageCollectorMXBean > collectors  = Collections.emptyList();
+
+        /** The JVM's threads. */
+        private volatile ThreadMXBean                   threads;
+
+        /** The JVM's class loading. */
+        private volatile ClassLoadingMXBean             classes;
+
+        /** If the JVM is being attached to. */
+        private volatile boolean                        connecting;
+
+        /** The number of failed attempts to attach. */
+        private volatile int                            attempts;
+
+        /** When the last sample was taken, from {@link System#nanoTime()}. */
+        private long                                    lastSample;
+
+        /** When the first sample was taken, from {@link System#nanoTime()}, or -1. */
+        private long                                    firstSample = -1;
+
+        /**
+         * Constructs a Sampler.
+         *
+         * @param run
+         *            The run the samples are added to.
+         * @param pid
+         *            The process being sampled.
+         * @param local
+         *            If the process is this JVM.
+         * @param descendants
+         *            If the processes the process starts are sampled with it.
+         * @param attach
+         *            If the JVM is attached to.
+         */
+        public Sampler( Run run, long pid, boolean local, boolean descendants, boolean attach ) {
+            this.run = run;
+            this.pid = pid;
+            this.local = local;
+            this.descendants = descendants;
+            this.attach = attach;
+            jvmPid = pid;
+        }
+
+        /**
+         * @return If the run is still going.
+         */
+        protected abstract boolean isRunning();
+
+        @Override
+        public void run() {
+            if ( !isRunning() ) {
+                finish();
+                return;
+            }
+
+            try {
+                sample();
+            }
+            catch ( RuntimeException e ) {
+                // the process exited while it was being sampled, or the connection broke
+                disconnect();
+            }
+            fireChanged();
+        }
+
+        /**
+         * Takes a sample.
+         */
+        private void sample() {
+            long now = System.nanoTime();
+            if ( firstSample < 0 ) firstSample = now;
+
+            double[] values = new double[ Metric.values().length ];
+            Arrays.fill( values, Double.NaN );
+
+            List< ProcessHandle > processes = getProcesses();
+
+            long cpu = getCpuTime( processes, !lastCpus.isEmpty() );
+            if ( ( cpu >= 0 ) && ( now > lastSample ) && ( lastSample > 0 ) ) {
+                values[ Metric.CPU.ordinal() ] = cpu * 100.0 / ( now - lastSample );
+            }
+            lastSample = now;
+
+            for ( ProcessHandle process : processes ) {
+                readStatus( process.pid(), values );
+            }
+
+            if ( attach ) {
+                // follows the newest of the processes, a JMH fork ends and the next one starts
+                long newest = processes.get( processes.size() - 1 ).pid();
+                if ( ( newest != jvmPid ) && !connecting ) {
+                    disconnect();
+                    jvmPid = newest;
+                    attempts = 0;
+                }
+                if ( ( memory == null ) && !connecting && ( attempts < ATTACH_ATTEMPTS ) ) startConnecting();
+            }
+
+            MemoryMXBean memory = this.memory;
+            if ( memory != null ) {
+                MemoryUsage heap = memory.getHeapMemoryUsage();
+                values[ Metric.HEAP_USED.ordinal() ] = heap.getUsed();
+                values[ Metric.HEAP_COMMITTED.ordinal() ] = heap.getCommitted();
+
+                long count = 0;
+                long time = 0;
+                for ( GarbageCollectorMXBean collector : collectors ) {
+                    count += Math.max( 0, collector.getCollectionCount() );
+                    time += Math.max( 0, collector.getCollectionTime() );
+                }
+                values[ Metric.GC_COUNT.ordinal() ] = count;
+                values[ Metric.GC_TIME.ordinal() ] = time;
+                if ( !descendants ) values[ Metric.THREADS.ordinal() ] = threads.getThreadCount(); // with its children, the total stays
+                values[ Metric.CLASSES.ordinal() ] = classes.getLoadedClassCount();
+            }
+
+            run.add( TimeUnit.NANOSECONDS.toMillis( now - firstSample ), values );
+        }
+
+        /**
+         * @return The process, and the processes it started if they're sampled with it, the
+         *         newest last. Empty if the process has exited.
+         */
+        private List< ProcessHandle > getProcesses() {
+            List< ProcessHandle > processes = new ArrayList<>();
+            Optional< ProcessHandle > handle = ProcessHandle.of( pid );
+            if ( !handle.isPresent() ) throw new IllegalStateException( "The process has exited" ); // ends the sample
+
+            processes.add( handle.get() );
+            if ( descendants ) {
+                List< ProcessHandle > children = new ArrayList<>();
+                for ( Iterator< ProcessHandle > i = handle.get().descendants().iterator(); i.hasNext(); ) {
+                    children.add( i.next() );
+                }
+                Collections.sort( children, new Comparator< ProcessHandle >() {
+
+                    @Override
+                    public int compare( ProcessHandle a, ProcessHandle b ) {
+                        return getStart( a ).compareTo( getStart( b ) );
+                    }
+
+                } );
+                processes.addAll( children );
+            }
+            return processes;
+        }
+
+        /**
+         * @param process
+         *            A process.
+         * @return When it started, or the epoch if that's unknown.
+         */
+        private Instant getStart( ProcessHandle process ) {
+            return process.info().startInstant().orElse( Instant.EPOCH );
+        }
+
+        /**
+         * Finds the CPU time the processes used since the last sample. A process that wasn't
+         * there at the last sample has used all of its time since.
+         *
+         * @param processes
+         *            The processes.
+         * @param sampled
+         *            If there was a sample before this one.
+         * @return The CPU time, in nanoseconds, or -1 if it's unknown.
+         */
+        private long getCpuTime( List< ProcessHandle > processes, boolean sampled ) {
+            Map< Long, Long > cpus = new HashMap<>();
+            long used = 0;
+            for ( ProcessHandle process : processes ) {
+                Optional< Duration > cpu = process.info().totalCpuDuration();
+                if ( !cpu.isPresent() ) continue;
+
+                long nanos = cpu.get().toNanos();
+                Long last = lastCpus.get( process.pid() );
+                used += nanos - ( ( last == null ) ? 0 : last );
+                cpus.put( process.pid(), nanos );
+            }
+
+            lastCpus.clear();
+            lastCpus.putAll( cpus );
+            return ( sampled && !cpus.isEmpty() ) ? used : -1;
+        }
+
+        /**
+         * Adds the resident memory and thread count from a process's status to the sample's.
+         * For a single process the thread count is replaced by the JVM's if it can be read.
+         *
+         * @param process
+         *            The process.
+         * @param values
+         *            The sample's values.
+         */
+        private void readStatus( long process, double[] values ) {
+            File status = new File( "/proc/" + process + "/status" );
+            if ( !status.exists() ) return;
+
+            try {
+                for ( String line : Files.readAllLines( status.toPath(), StandardCharsets.UTF_8 ) ) {
+                    if ( line.startsWith( "VmRSS:" ) ) {
+                        add( values, Metric.RSS, Long.parseLong( line.substring( 6 ).replace( "kB", "" ).trim() ) * 1024 );
+                    }
+                    else if ( line.startsWith( "Threads:" ) ) {
+                        add( values, Metric.THREADS, Long.parseLong( line.substring( 8 ).trim() ) );
+                    }
+                }
+            }
+            catch ( IOException | NumberFormatException e ) {
+                // the process has exited
+            }
+        }
+
+        /**
+         * Adds to a sample's value, which may not have one yet.
+         *
+         * @param values
+         *            The sample's values.
+         * @param metric
+         *            The metric.
+         * @param value
+         *            What's added.
+         */
+        private void add( double[] values, Metric metric, double value ) {
+            double old = values[ metric.ordinal() ];
+            values[ metric.ordinal() ] = Double.isNaN( old ) ? value : ( old + value );
+        }
+
+        /**
+         * Connects to the JVM on a thread of its own, attaching takes a few seconds which
+         * would otherwise be a gap in the samples.
+         */
+        private void startConnecting() {
+            connecting = true;
+            final long target = jvmPid;
+
+            Thread thread = new Thread( new Runnable() {
+
+                @Override
+                public void run() {
+                    connect( target );
+                    if ( !isRunning() ) disconnect(); // it's over already
+                    connecting = false;
+                }
+
+            } );
+            thread.setName( "Resource Monitor Attach" );
+            thread.setDaemon( true );
+            thread.start();
+        }
+
+        /**
+         * Finds the JVM's MXBeans, by attaching to it and starting its local management agent
+         * unless it's this JVM.
+         *
+         * @param target
+         *            The process of the JVM.
+         */
+        private void connect( long target ) {
+            if ( local ) {
+                memory = ManagementFactory.getMemoryMXBean();
+                collectors = ManagementFactory.getGarbageCollectorMXBeans();
+                threads = ManagementFactory.getThreadMXBean();
+                classes = ManagementFactory.getClassLoadingMXBean();
+                return;
+            }
+
+            try {
+                VirtualMachine vm = VirtualMachine.attach( Long.toString( target ) );
+                String address;
+                try {
+                    address = vm.startLocalManagementAgent();
+                }
+                finally {
+                    vm.detach();
+                }
+
+                connector = JMXConnectorFactory.connect( new JMXServiceURL( address ) );
+                MBeanServerConnection connection = connector.getMBeanServerConnection();
+                collectors = ManagementFactory.getPlatformMXBeans( connection, GarbageCollectorMXBean.class );
+                threads = ManagementFactory.newPlatformMXBeanProxy( connection, ManagementFactory.THREAD_MXBEAN_NAME, ThreadMXBean.class );
+                classes = ManagementFactory.newPlatformMXBeanProxy( connection, ManagementFactory.CLASS_LOADING_MXBEAN_NAME, ClassLoadingMXBean.class );
+                memory = ManagementFactory.newPlatformMXBeanProxy( connection, ManagementFactory.MEMORY_MXBEAN_NAME, MemoryMXBean.class ); // last, it marks the connection as usable
+            }
+            catch ( Exception e ) {
+                // not attachable yet, or at all, such as with -XX:+DisableAttachMechanism
+                attempts++;
+                disconnect();
+            }
+        }
+
+        /**
+         * Closes the connection to the JVM, if there is one.
+         */
+        private void disconnect() {
+            memory = null;
+
+            if ( connector == null ) return;
+            try {
+                connector.close();
+            }
+            catch ( IOException e ) {
+                // it's gone anyway
+            }
+            connector = null;
+        }
+
+        /**
+         * Stops sampling, once the run is over. A run that isn't the current one has already
+         * been stopped.
+         */
+        private void finish() {
+            disconnect();
+
+            synchronized ( ResourceMonitor.this ) {
+                if ( current == run ) stop();
+            }
+            fireChanged();
+        }
+
+    }
+
+}
@@ -0,0 +1,310 @@
+package com.github.obsidianarch.jsnippet;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.swing.DefaultComboBoxModel;
+import javax.swing.JComboBox;
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+/**
+ * Shows the samples of a {@link ResourceMonitor} as a sparkline for every metric, following
+ * the current run unless an older one is picked. Another run can be drawn behind it in gray,
+ * on the same scale, to compare the two.
+ *
+ * @author Austin
+ */
+public class ResourcePanel extends JPanel {
+
+    //
+    // Fields
+    //
+
+    /** Picks the latest run, rather than a particular one. */
+    private static final String         LATEST      = "Latest";
+
+    /** Picks no run to compare with. */
+    private static final String         NOTHING     = "Nothing";
+
+    /** The height of the sparkline of a metric. */
+    private static final int            ROW_HEIGHT  = 36;
+
+    /** The width of the names and values to the left of the sparklines. */
+    private static final int            LABEL_WIDTH = 190;
+
+    /** The space around the sparklines. */
+    private static final int            MARGIN      = 4;
+
+    /** The color of the run that's shown. */
+    private static final Color          RUN_COLOR   = new Color( 40, 90, 200 );
+
+    /** The color of the run it's compared with. */
+    private static final Color          OTHER_COLOR = new Color( 160, 160, 160 );
+
+    /** The samples. */
+    private final ResourceMonitor       monitor;
+
+    /** Picks the run that's shown. */
+    private final JComboBox< Object >   runChooser;
+
+    /** Picks the run it's compared with. */
+    private final JComboBox< Object >   otherChooser;
+
+    /** Draws the sparklines. */
+    private final Sparklines            sparklines  = new Sparklines();
+
+    /** If the panel is waiting to catch up with the monitor. */
+    private final AtomicBoolean         scheduled   = new AtomicBoolean();
+
+    /** The runs the choosers list. */
+    private List< ResourceMonitor.Run > listedRuns;
+
+    //
+    // Constructors
+    //
+
+    /**
+     * Constructs a ResourcePanel showing the runs of the monitor.
+     *
+     * @param monitor
+     *            The samples.
+     */
+    public ResourcePanel( ResourceMonitor monitor ) {
+        super( new BorderLayout() );
+        this.monitor = monitor;
+
+        runChooser = new JComboBox<>( new DefaultComboBoxModel< Object >( new Object[ ] { LATEST } ) );
+        otherChooser = new JComboBox<>( new DefaultComboBoxModel< Object >( new Object[ ] { NOTHING } ) );
+
+        ActionListener repainter = new ActionListener() {
+
+            @Override
+            public void actionPerformed( ActionEvent e ) {
+                sparklines.repaint();
+            }
+
+        };
+        runChooser.addActionListener( repainter );
+        otherChooser.addActionListener( repainter );
+
+        JPanel choosers = new JPanel( new FlowLayout( FlowLayout.LEFT ) );
+        choosers.add( new JLabel( "Run" ) );
+        choosers.add( runChooser );
+        choosers.add( new JLabel( "Compare with" ) );
+        choosers.add( otherChooser );
+        add( choosers, BorderLayout.NORTH );
+        add( new JScrollPane( sparklines ), BorderLayout.CENTER );
+
+        monitor.addChangeListener( new ChangeListener() {
+
+            @Override
+            public void stateChanged( ChangeEvent e ) {
+                schedule();
+            }
+
+        } );
+    }
+
+    //
+    // Actions
+    //
+
+    /**
+     * Makes sure the panel catches up with the monitor, at most once per sample however long
+     * the Event Dispatch Thread takes to get to it.
+     */
+    private void schedule() {
+        if ( scheduled.compareAndSet( false, true ) ) {
+            SwingUtilities.invokeLater( new Runnable() {
+
+                @Override
+                public void run() {
+                    scheduled.set( false );
+                    refresh();
+                }
+
+            } );
+        }
+    }
+
+    /**
+     * Lists the runs in the choosers if they've changed, keeping what was picked if it's
+     * still there, and redraws the sparklines.
+     */
+    private void refresh() {
+        List< ResourceMonitor.Run > runs = monitor.getRuns();
+        if ( !runs.equals( listedRuns ) ) {
+            listedRuns = runs;
+            relist( runChooser, LATEST, runs );
+            relist( otherChooser, NOTHING, runs );
+        }
+        sparklines.repaint();
+    }
+
+    /**
+     * Lists the runs in a chooser, newest first.
+     *
+     * @param chooser
+     *            The chooser.
+     * @param first
+     *            The item listed before the runs.
+     * @param runs
+     *            The runs, oldest first.
+     */
+    private static void relist( JComboBox< Object > chooser, Object first, List< ResourceMonitor.Run > runs ) {
+        Object selected = chooser.getSelectedItem();
+
+        DefaultComboBoxModel< Object > model = new DefaultComboBoxModel<>();
+        model.addElement( first );
+        for ( int i = runs.size() - 1; i >= 0; i-- ) {
+            model.addElement( runs.get( i ) );
+        }
+        model.setSelectedItem( runs.contains( selected ) ? selected : first );
+        chooser.setModel( model );
+    }
+
+    //
+    // Getters
+    //
+
+    /**
+     * @return The run that's shown, or null if there hasn't been one.
+     */
+    private ResourceMonitor.Run getShownRun() {
+        Object selected = runChooser.getSelectedItem();
+        if ( selected instanceof ResourceMonitor.Run ) return ( ResourceMonitor.Run ) selected;
+
+        List< ResourceMonitor.Run > runs = monitor.getRuns();
+        return runs.isEmpty() ? null : runs.get( runs.size() - 1 );
+    }
+
+    /**
+     * @return The run it's compared with, or null.
+     */
+    private ResourceMonitor.Run getOtherRun() {
+        Object selected = otherChooser.getSelectedItem();
+        return ( selected instanceof ResourceMonitor.Run ) ? ( ResourceMonitor.Run ) selected : null;
+    }
+
+    //
+    // Nested Classes
+    //
+
+    /**
+     * Draws a sparkline for every metric, with its name and the last values to the left.
+     *
+     * @author Austin
+     */
+    private class Sparklines extends JComponent {
+
+        @Override
+        protected void paintComponent( Graphics g ) {
+            g.setColor( getBackground() == null ? Color.WHITE : getBackground() );
+            g.fillRect( 0, 0, getWidth(), getHeight() );
+            ( ( Graphics2D ) g ).setRenderingHint( RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON );
+
+            ResourceMonitor.Run run = getShownRun();
+            ResourceMonitor.Run other = getOtherRun();
+            if ( run == null ) {
+                g.setColor( Color.GRAY );
+                g.drawString( "Nothing has been run yet.", MARGIN, g.getFontMetrics().getAscent() + MARGIN );
+                return;
+            }
+
+            long duration = Math.max( 1000, Math.max( run.getDuration(), ( other == null ) ? 0 : other.getDuration() ) );
+            FontMetrics metrics = g.getFontMetrics();
+
+            ResourceMonitor.Metric[] all = ResourceMonitor.Metric.values();
+            for ( int i = 0; i < all.length; i++ ) {
+                ResourceMonitor.Metric metric = all[ i ];
+                int top = MARGIN + i * ROW_HEIGHT;
+
+                double max = Math.max( run.getMax( metric ), ( other == null ) ? 0 : other.getMax( metric ) );
+                if ( metric == ResourceMonitor.Metric.CPU ) max = Math.max( max, 100 ); // a full core is the least the scale shows
+                if ( max <= 0 ) max = 1;
+
+                g.setColor( getForeground() );
+                g.drawString( metric.toString(), MARGIN, top + metrics.getAscent() );
+                g.setColor( RUN_COLOR );
+                g.drawString( metric.format( run.getLast( metric ) ), MARGIN + 100, top + metrics.getAscent() );
+                if ( other != null ) {
+                    g.setColor( OTHER_COLOR );
+                    g.drawString( metric.format( other.getLast( metric ) ), MARGIN + 100, top + metrics.getAscent() + metrics.getHeight() );
+                }
+
+                g.setColor( new Color( 235, 235, 235 ) );
+                g.drawLine( LABEL_WIDTH, top + ROW_HEIGHT - MARGIN, getWidth() - MARGIN, top + ROW_HEIGHT - MARGIN );
+
+                if ( other != null ) drawLine( g, other, metric, OTHER_COLOR, top, max, duration );
+                drawLine( g, run, metric, RUN_COLOR, top, max, duration );
+            }
+        }
+
+        /**
+         * Draws the sparkline of a metric in a run, at most one point per pixel.
+         *
+         * @param g
+         *            The graphics.
+         * @param run
+         *            The run.
+         * @param metric
+         *            The metric.
+         * @param color
+         *            The color of the line.
+         * @param top
+         *            The top of the metric's row.
+         * @param max
+         *            The value at the top of the row.
+         * @param duration
+         *            The time at the right of the row, in milliseconds.
+         */
+        private void drawLine( Graphics g, ResourceMonitor.Run run, ResourceMonitor.Metric metric, Color color, int top, double max, long duration ) {
+            int width = getWidth() - MARGIN - LABEL_WIDTH;
+            int height = ROW_HEIGHT - MARGIN * 2;
+            int count = run.getSampleCount();
+            int step = Math.max( 1, count / Math.max( 1, width ) );
+
+            g.setColor( color );
+            int lastX = -1;
+            int lastY = -1;
+            for ( int sample = 0; sample < count; sample += step ) {
+                double value = run.getValue( sample, metric );
+                if ( Double.isNaN( value ) ) {
+                    lastX = -1; // a gap where it couldn't be read
+                    continue;
+                }
+
+                int x = LABEL_WIDTH + ( int ) ( run.getTime( sample ) * width / duration );
+                int y = top + MARGIN + height - ( int ) ( value * height / max );
+                if ( lastX >= 0 ) g.drawLine( lastX, lastY, x, y );
+                else g.fillRect( x, y, 1, 1 );
+
+                lastX = x;
+                lastY = y;
+            }
+        }
+
+        @Override
+        public Dimension getPreferredSize() {
+            return new Dimension( LABEL_WIDTH + 200, MARGIN * 2 + ResourceMonitor.Metric.values().length * ROW_HEIGHT );
+        }
+
+    }
+
+}
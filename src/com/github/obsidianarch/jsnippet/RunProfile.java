@@ -0,0 +1,317 @@
+package com.github.obsidianarch.jsnippet;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * How a snippet is run: the options of the JVM it runs in, the arguments passed to its main
+ * method, and the system properties and environment variables it sees. Profiles are kept by
+ * {@link RunProfiles}, so the same snippet can be run under several garbage collectors or JIT
+ * settings by picking another profile.
+ *
+ * @author Austin
+ */
+public final class RunProfile {
+
+    //
+    // Fields
+    //
+
+    /** The name the profile is picked by. */
+    private final String                name;
+
+    /** The options passed to the JVM, such as -Xmx or -XX flags. */
+    private final List< String >        jvmOptions;
+
+    /** The arguments passed to the main method. */
+    private final List< String >        arguments;
+
+    /** The system properties, passed to the JVM as -D options. */
+    private final Map< String, String > systemProperties;
+
+    /** The environment variables added to the editor's environment. */
+    private final Map< String, String > environment;
+
+    //
+    // Constructors
+    //
+
+    /**
+     * Constructs a RunProfile.
+     *
+     * @param name
+     *            The name the profile is picked by.
+     * @param jvmOptions
+     *            The options passed to the JVM.
+     * @param arguments
+     *            The arguments passed to the main method.
+     * @param systemProperties
+     *            The system properties.
+     * @param environment
+     *            The environment variables added to the editor's environment.
+     */
+    public RunProfile( String name, List< String > jvmOptions, List< String > arguments, Map< String, String > systemProperties, Map< String, String > environment ) {
+        this.name = name;
+        this.jvmOptions = Collections.unmodifiableList( new ArrayList<>( jvmOptions ) );
+        this.arguments = Collections.unmodifiableList( new ArrayList<>( arguments ) );
+        this.systemProperties = Collections.unmodifiableMap( new LinkedHashMap<>( systemProperties ) );
+        this.environment = Collections.unmodifiableMap( new LinkedHashMap<>( environment ) );
+    }
+
+    /**
+     * Constructs a RunProfile with only JVM options.
+     *
+     * @param name
+     *            The name the profile is picked by.
+     * @param jvmOptions
+     *            The options passed to the JVM.
+     */
+    public RunProfile( String name, String... jvmOptions ) {
+        this( name, Arrays.asList( jvmOptions ), Collections.< String > emptyList(), Collections.< String, String > emptyMap(), Collections.< String, String > emptyMap() );
+    }
+
+    //
+    // Actions
+    //
+
+    /**
+     * Creates the command which runs the class in a new JVM with this profile.
+     *
+     * @param className
+     *            The binary name of the class to run.
+     * @param classpath
+     *            Where to find the class.
+     * @return The command.
+     */
+    public List< String > createCommand( String className, String classpath ) {
+        return createCommand( className, classpath, Collections.< String > emptyList() );
+    }
+
+    /**
+     * Creates the command which runs a main class in a new JVM with this profile, passing it
+     * some arguments ahead of the profile's.
+     *
+     * @param className
+     *            The binary name of the class to run.
+     * @param classpath
+     *            Where to find the class.
+     * @param leadingArguments
+     *            The arguments passed before the profile's.
+     * @return The command.
+     */
+    public List< String > createCommand( String className, String classpath, List< String > leadingArguments ) {
+        List< String > command = new ArrayList<>();
+        command.add( new File( System.getProperty( "java.home" ), "bin/java" ).getAbsolutePath() ); // the editor's JDK, not whatever is on the path
+        command.addAll( jvmOptions );
+        for ( Map.Entry< String, String > property : systemProperties.entrySet() ) {
+            command.add( "-D" + property.getKey() + "=" + property.getValue() );
+        }
+        command.add( "-cp" );
+        command.add( classpath );
+        command.add( className );
+        command.addAll( leadingArguments );
+        command.addAll( arguments );
+        return command;
+    }
+
+    /**
+     * Checks if a worker from the pool can run a snippet with this profile, which it can if
+     * the profile asks for nothing the worker's JVM doesn't already have.
+     *
+     * @param poolOptions
+     *            The options the pool's workers were started with.
+     * @return If a pooled worker can be used.
+     */
+    public boolean canUseWorker( List< String > poolOptions ) {
+        return ( jvmOptions.isEmpty() || jvmOptions.equals( poolOptions ) ) && systemProperties.isEmpty() && environment.isEmpty();
+    }
+
+    /**
+     * @return If the profile can be applied to a run inside of the editor's JVM, which only
+     *         the arguments can.
+     */
+    public boolean canRunInProcess() {
+        return jvmOptions.isEmpty() && systemProperties.isEmpty() && environment.isEmpty();
+    }
+
+    //
+    // Getters
+    //
+
+    /**
+     * @return The name the profile is picked by.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The options passed to the JVM.
+     */
+    public List< String > getJvmOptions() {
+        return jvmOptions;
+    }
+
+    /**
+     * @return The arguments passed to the main method.
+     */
+    public List< String > getArguments() {
+        return arguments;
+    }
+
+    /**
+     * @return The system properties, passed to the JVM as -D options.
+     */
+    public Map< String, String > getSystemProperties() {
+        return systemProperties;
+    }
+
+    /**
+     * @return The environment variables added to the editor's environment.
+     */
+    public Map< String, String > getEnvironment() {
+        return environment;
+    }
+
+    //
+    // Overrides
+    //
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder( name );
+        if ( !jvmOptions.isEmpty() ) sb.append( " " ).append( join( jvmOptions ) );
+        if ( !systemProperties.isEmpty() ) sb.append( " " ).append( joinPairs( systemProperties ) );
+        if ( !environment.isEmpty() ) sb.append( " env " ).append( joinPairs( environment ) );
+        if ( !arguments.isEmpty() ) sb.append( " args " ).append( join( arguments ) );
+        return sb.toString();
+    }
+
+    //
+    // Static
+    //
+
+    /**
+     * Splits what was typed into words, separated by whitespace. A word can contain
+     * whitespace if it's in double quotes. A backslash escapes a double quote or another
+     * backslash, and is kept as it is anywhere else, so Windows paths can be typed as they are.
+     *
+     * @param text
+     *            The text.
+     * @return The words.
+     */
+    public static List< String > split( String text ) {
+        List< String > words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        boolean inWord = false;
+        boolean quoted = false;
+
+        for ( int i = 0; i < text.length(); i++ ) {
+            char c = text.charAt( i );
+
+            if ( ( c == '\\' ) && ( i + 1 < text.length() ) && isEscaped( text.charAt( i + 1 ) ) ) {
+                word.append( text.charAt( ++i ) );
+                inWord = true;
+            }
+            else if ( c == '"' ) {
+                quoted = !quoted;
+                inWord = true; // "" is an empty word
+            }
+            else if ( Character.isWhitespace( c ) && !quoted ) {
+                if ( inWord ) words.add( word.toString() );
+                word.setLength( 0 );
+                inWord = false;
+            }
+            else {
+                word.append( c );
+                inWord = true;
+            }
+        }
+
+        if ( inWord ) words.add( word.toString() );
+        return words;
+    }
+
+    /**
+     * Joins words so that {@link #split(String)} gives them back.
+     *
+     * @param words
+     *            The words.
+     * @return The text.
+     */
+    public static String join( List< String > words ) {
+        StringBuilder sb = new StringBuilder();
+        for ( String word : words ) {
+            if ( sb.length() > 0 ) sb.append( ' ' );
+
+            boolean quote = word.isEmpty();
+            for ( int i = 0; i < word.length(); i++ ) {
+                if ( Character.isWhitespace( word.charAt( i ) ) ) quote = true;
+            }
+
+            StringBuilder escaped = new StringBuilder();
+            for ( int i = 0; i < word.length(); i++ ) {
+                char c = word.charAt( i );
+
+                // a backslash is only doubled where it would escape what follows it
+                boolean last = i + 1 == word.length();
+                if ( c == '"' ) escaped.append( '\\' );
+                else if ( ( c == '\\' ) && ( last || isEscaped( word.charAt( i + 1 ) ) ) ) escaped.append( '\\' );
+                escaped.append( c );
+            }
+            sb.append( quote ? ( "\"" + escaped + "\"" ) : escaped );
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Checks if a backslash before the character escapes it.
+     *
+     * @param c
+     *            The character.
+     * @return If it's a double quote or a backslash.
+     */
+    private static boolean isEscaped( char c ) {
+        return ( c == '"' ) || ( c == '\\' );
+    }
+
+    /**
+     * Splits what was typed into key=value pairs, separated like {@link #split(String)}.
+     *
+     * @param text
+     *            The text.
+     * @return The pairs, in order.
+     * @throws IllegalArgumentException
+     *             If a word isn't a key=value pair.
+     */
+    public static Map< String, String > splitPairs( String text ) {
+        Map< String, String > pairs = new LinkedHashMap<>();
+        for ( String word : split( text ) ) {
+            int equals = word.indexOf( '=' );
+            if ( equals <= 0 ) throw new IllegalArgumentException( "Not a key=value pair: " + word );
+            pairs.put( word.substring( 0, equals ), word.substring( equals + 1 ) );
+        }
+        return pairs;
+    }
+
+    /**
+     * Joins pairs so that {@link #splitPairs(String)} gives them back.
+     *
+     * @param pairs
+     *            The pairs.
+     * @return The text.
+     */
+    public static String joinPairs( Map< String, String > pairs ) {
+        List< String > words = new ArrayList<>();
+        for ( Map.Entry< String, String > pair : pairs.entrySet() ) {
+            words.add( pair.getKey() + "=" + pair.getValue() );
+        }
+        return join( words );
+    }
+
+}
@@ -0,0 +1,220 @@
+package com.github.obsidianarch.jsnippet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * The run profiles, one of which is selected for the runs. The profiles are kept in a
+ * properties file, which is written every time they change, and the first time the editor is
+ * started there's a profile for each of the common garbage collectors and JIT settings.
+ *
+ * @author Austin
+ */
+public class RunProfiles {
+
+    //
+    // Fields
+    //
+
+    /** The file the profiles are kept in. */
+    private final File               file;
+
+    /** The profiles, in the order they're listed. */
+    private final List< RunProfile > profiles = new ArrayList<>();
+
+    /** The profile the runs use. */
+    private RunProfile               selected;
+
+    //
+    // Constructors
+    //
+
+    /**
+     * Constructs the RunProfiles kept in a file, reading them if it exists.
+     *
+     * @param file
+     *            The file the profiles are kept in.
+     */
+    public RunProfiles( File file ) {
+        this.file = file;
+
+        try {
+            if ( file.exists() ) load();
+        }
+        catch ( IOException | IllegalArgumentException e ) {
+            System.err.println( "Failed to read the run profiles, using the defaults" );
+            e.printStackTrace();
+            profiles.clear();
+        }
+
+        if ( profiles.isEmpty() ) {
+            profiles.add( new RunProfile( "Default" ) );
+            profiles.add( new RunProfile( "G1", "-XX:+UseG1GC" ) );
+            profiles.add( new RunProfile( "Parallel", "-XX:+UseParallelGC" ) );
+            profiles.add( new RunProfile( "ZGC", "-XX:+UseZGC" ) );
+            profiles.add( new RunProfile( "Interpreter", "-Xint" ) );
+            profiles.add( new RunProfile( "C1 Only", "-XX:TieredStopAtLevel=1" ) );
+        }
+        if ( selected == null ) selected = profiles.get( 0 );
+    }
+
+    //
+    // Actions
+    //
+
+    /**
+     * Adds a profile, or replaces the one with the same name, and saves the profiles.
+     *
+     * @param profile
+     *            The profile.
+     */
+    public synchronized void put( RunProfile profile ) {
+        int index = indexOf( profile.getName() );
+        if ( index < 0 ) {
+            profiles.add( profile );
+        }
+        else {
+            if ( profiles.get( index ) == selected ) selected = profile;
+            profiles.set( index, profile );
+        }
+        save();
+    }
+
+    /**
+     * Removes a profile and saves the profiles, the last profile is never removed.
+     *
+     * @param name
+     *            The name of the profile.
+     */
+    public synchronized void remove( String name ) {
+        int index = indexOf( name );
+        if ( ( index < 0 ) || ( profiles.size() == 1 ) ) return;
+
+        if ( profiles.remove( index ) == selected ) selected = profiles.get( 0 );
+        save();
+    }
+
+    /**
+     * Writes the profiles to their file, a failure is reported but otherwise ignored, as the
+     * profiles still work until the editor is closed.
+     */
+    public synchronized void save() {
+        Properties properties = new Properties();
+        for ( int i = 0; i < profiles.size(); i++ ) {
+            RunProfile profile = profiles.get( i );
+            String prefix = "profile." + i + ".";
+            properties.setProperty( prefix + "name", profile.getName() );
+            properties.setProperty( prefix + "jvm", RunProfile.join( profile.getJvmOptions() ) );
+            properties.setProperty( prefix + "args", RunProfile.join( profile.getArguments() ) );
+            properties.setProperty( prefix + "properties", RunProfile.joinPairs( profile.getSystemProperties() ) );
+            properties.setProperty( prefix + "environment", RunProfile.joinPairs( profile.getEnvironment() ) );
+        }
+        properties.setProperty( "selected", selected.getName() );
+
+        try {
+            file.getParentFile().mkdirs();
+            try ( OutputStream out = Files.newOutputStream( file.toPath() ) ) {
+                properties.store( out, "JSnippet run profiles" );
+            }
+        }
+        catch ( IOException e ) {
+            System.err.println( "Failed to save the run profiles" );
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Reads the profiles from their file.
+     *
+     * @throws IOException
+     *             If the file couldn't be read.
+     */
+    private void load() throws IOException {
+        Properties properties = new Properties();
+        try ( InputStream in = Files.newInputStream( file.toPath() ) ) {
+            properties.load( in );
+        }
+
+        for ( int i = 0; properties.containsKey( "profile." + i + ".name" ); i++ ) {
+            String prefix = "profile." + i + ".";
+            profiles.add( new RunProfile( properties.getProperty( prefix + "name" ),
+                RunProfile.split( properties.getProperty( prefix + "jvm", "" ) ),
+                RunProfile.split( properties.getProperty( prefix + "args", "" ) ),
+                RunProfile.splitPairs( properties.getProperty( prefix + "properties", "" ) ),
+                RunProfile.splitPairs( properties.getProperty( prefix + "environment", "" ) ) ) );
+        }
+
+        int index = indexOf( properties.getProperty( "selected", "" ) );
+        if ( index >= 0 ) selected = profiles.get( index );
+    }
+
+    //
+    // Setters
+    //
+
+    /**
+     * Selects the profile the runs use and saves the profiles.
+     *
+     * @param name
+     *            The name of the profile, nothing changes if there's no such profile.
+     */
+    public synchronized void select( String name ) {
+        int index = indexOf( name );
+        if ( index < 0 ) return;
+
+        selected = profiles.get( index );
+        save();
+    }
+
+    //
+    // Getters
+    //
+
+    /**
+     * @return The profile the runs use.
+     */
+    public synchronized RunProfile getSelected() {
+        return selected;
+    }
+
+    /**
+     * Finds a profile.
+     *
+     * @param name
+     *            The name of the profile.
+     * @return The profile, or null if there's no such profile.
+     */
+    public synchronized RunProfile get( String name ) {
+        int index = indexOf( name );
+        return ( index < 0 ) ? null : profiles.get( index );
+    }
+
+    /**
+     * @return Every profile, in the order they're listed.
+     */
+    public synchronized List< RunProfile > getProfiles() {
+        return Collections.unmodifiableList( new ArrayList<>( profiles ) );
+    }
+
+    /**
+     * Finds where a profile is in the list.
+     *
+     * @param name
+     *            The name of the profile.
+     * @return The index of the profile, or -1 if there's no such profile.
+     */
+    private int indexOf( String name ) {
+        for ( int i = 0; i < profiles.size(); i++ ) {
+            if ( profiles.get( i ).getName().equals( name ) ) return i;
+        }
+        return -1;
+    }
+
+}
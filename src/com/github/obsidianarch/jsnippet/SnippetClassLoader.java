@@ -0,0 +1,70 @@
+package com.github.obsidianarch.jsnippet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+
+/**
+ * Loads the classes of a single snippet run. The loader is thrown away once the run ends, so
+ * the snippet's classes can be unloaded along with it.
+ *
+ * @author Austin
+ */
+public class SnippetClassLoader extends ClassLoader {
+
+    //
+    // Fields
+    //
+
+    /** The classes from an in-memory build, by binary name. */
+    private final Map< String, byte[] > classes;
+
+    /** The directory that the classes were compiled into, if they weren't built in memory. */
+    private final File                  directory;
+
+    //
+    // Constructors
+    //
+
+    /**
+     * Creates a SnippetClassLoader for the compiled classes. The parent is the platform class
+     * loader, so the snippet can't see the editor's classes.
+     *
+     * @param classes
+     *            The classes from an in-memory build.
+     * @param directory
+     *            The directory to look in for classes that aren't in memory, may be null.
+     */
+    public SnippetClassLoader( Map< String, byte[] > classes, File directory ) {
+        super( ClassLoader.getSystemClassLoader().getParent() );
+        this.classes = classes;
+        this.directory = directory;
+    }
+
+    //
+    // Overrides
+    //
+
+    @Override
+    protected Class< ? > findClass( String name ) throws ClassNotFoundException {
+        byte[] bytes = classes.get( name );
+
+        if ( bytes == null ) {
+            if ( directory == null ) throw new ClassNotFoundException( name );
+
+            File file = new File( directory, name.replace( '.', File.separatorChar ) + ".class" );
+            if ( !file.exists() ) throw new ClassNotFoundException( name );
+
+            try {
+                bytes = Files.readAllBytes( file.toPath() );
+            }
+            catch ( IOException e ) {
+                throw new ClassNotFoundException( name, e );
+            }
+        }
+
+        return defineClass( name, bytes, 0, bytes.length );
+    }
+
+}
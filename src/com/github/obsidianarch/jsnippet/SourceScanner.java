@@ -0,0 +1,452 @@
+package com.github.obsidianarch.jsnippet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Finds the package, the imports, the top level types and the annotations of a compilation
+ * unit in one pass over the source, without running the compiler. Comments, string, text
+ * block and character literals are skipped, and only declarations outside of every brace and
+ * parenthesis count, so a {@code .class} literal or the word class in a comment is never
+ * mistaken for a type.
+ *
+ * @author Austin
+ */
+public final class SourceScanner {
+
+    //
+    // Fields
+    //
+
+    /** The source being scanned. */
+    private final CharSequence source;
+
+    /** The length of the source. */
+    private final int          length;
+
+    /** The position of the next character. */
+    private int                position;
+
+    //
+    // Constructors
+    //
+
+    /**
+     * Constructs a SourceScanner for the source.
+     *
+     * @param source
+     *            The source code.
+     */
+    private SourceScanner( CharSequence source ) {
+        this.source = source;
+        length = source.length();
+    }
+
+    //
+    // Actions
+    //
+
+    /**
+     * Scans the whole source.
+     *
+     * @return What was found.
+     */
+    private SourceInfo scan() {
+        StringBuilder packageName = new StringBuilder();
+        List< String > imports = new ArrayList<>();
+        List< String > types = new ArrayList<>();
+        Set< String > annotations = new LinkedHashSet<>();
+        String publicType = null;
+
+        int depth = 0; // of braces and parentheses together
+        boolean modifiedPublic = false; // if the declaration being read is public
+        boolean readingPackage = false;
+        boolean expectName = false; // if the next identifier names a type
+        char previous = 0; // the last significant character that wasn't part of a word
+
+        while ( skipTrivia() ) {
+            char c = source.charAt( position );
+
+            if ( Character.isJavaIdentifierStart( c ) ) {
+                int start = position;
+                while ( ( position < length ) && Character.isJavaIdentifierPart( source.charAt( position ) ) ) {
+                    position++;
+                }
+
+                if ( depth != 0 ) continue;
+
+                if ( readingPackage ) {
+                    packageName.append( source, start, position );
+                }
+                else if ( expectName ) {
+                    String name = source.subSequence( start, position ).toString();
+                    types.add( name );
+                    if ( modifiedPublic && ( publicType == null ) ) publicType = name;
+
+                    expectName = false;
+                    modifiedPublic = false;
+                }
+                else if ( previous == '.' ) {
+                    // a member of something, such as Foo.class in an annotation
+                }
+                else if ( matches( start, "package" ) ) {
+                    readingPackage = true;
+                }
+                else if ( matches( start, "import" ) ) {
+                    imports.add( readQualifiedName() ); // static imports keep the word static
+                }
+                else if ( matches( start, "public" ) ) {
+                    modifiedPublic = true;
+                }
+                else if ( matches( start, "class" ) || matches( start, "interface" ) || matches( start, "enum" ) ) {
+                    expectName = true;
+                }
+                else if ( matches( start, "record" ) && nextIsIdentifier() ) {
+                    expectName = true; // record is only a keyword in front of a name
+                }
+
+                previous = 0;
+                continue;
+            }
+
+            position++;
+            switch ( c ) {
+                case '"':
+                    skipString();
+                    break;
+                case '\'':
+                    skipQuoted( '\'' );
+                    break;
+                case '{':
+                case '(':
+                    depth++;
+                    break;
+                case '}':
+                    depth = Math.max( 0, depth - 1 );
+                    if ( depth == 0 ) modifiedPublic = false;
+                    break;
+                case ')':
+                    depth = Math.max( 0, depth - 1 ); // the end of an annotation's arguments, the declaration goes on
+                    break;
+                case ';':
+                    if ( depth == 0 ) {
+                        readingPackage = false;
+                        modifiedPublic = false;
+                    }
+                    break;
+                case '.':
+                    if ( readingPackage && ( depth == 0 ) ) packageName.append( '.' );
+                    break;
+                case '@':
+                    String annotation = readQualifiedName();
+                    if ( annotation.equals( "interface" ) ) expectName = ( depth == 0 ); // declares an annotation type
+                    else if ( !annotation.isEmpty() ) annotations.add( annotation );
+                    break;
+                default:
+            }
+            previous = c;
+        }
+
+        return new SourceInfo( packageName.toString(), publicType, types, imports, annotations );
+    }
+
+    /**
+     * Moves past whitespace and comments.
+     *
+     * @return If there's anything left in the source.
+     */
+    private boolean skipTrivia() {
+        while ( position < length ) {
+            char c = source.charAt( position );
+
+            if ( Character.isWhitespace( c ) ) {
+                position++;
+            }
+            else if ( ( c == '/' ) && ( position + 1 < length ) && ( source.charAt( position + 1 ) == '/' ) ) {
+                while ( ( position < length ) && ( source.charAt( position ) != '\n' ) ) {
+                    position++;
+                }
+            }
+            else if ( ( c == '/' ) && ( position + 1 < length ) && ( source.charAt( position + 1 ) == '*' ) ) {
+                position += 2;
+                while ( ( position < length ) && !( ( source.charAt( position - 1 ) == '*' ) && ( source.charAt( position ) == '/' ) ) ) {
+                    position++;
+                }
+                position++;
+            }
+            else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Moves past a string literal or text block, whose opening quote has been read.
+     */
+    private void skipString() {
+        if ( ( position + 1 < length ) && ( source.charAt( position ) == '"' ) && ( source.charAt( position + 1 ) == '"' ) ) {
+            // a text block, which ends at the next unescaped """
+            position += 2;
+            while ( position + 2 < length ) {
+                char c = source.charAt( position );
+                if ( c == '\\' ) {
+                    position += 2;
+                }
+                else if ( ( c == '"' ) && ( source.charAt( position + 1 ) == '"' ) && ( source.charAt( position + 2 ) == '"' ) ) {
+                    position += 3;
+                    return;
+                }
+                else {
+                    position++;
+                }
+            }
+            position = length;
+            return;
+        }
+
+        skipQuoted( '"' );
+    }
+
+    /**
+     * Moves past a quoted literal whose opening quote has been read. An unterminated literal
+     * ends at the end of its line, as it does for the compiler.
+     *
+     * @param quote
+     *            The quote which closes the literal.
+     */
+    private void skipQuoted( char quote ) {
+        while ( position < length ) {
+            char c = source.charAt( position++ );
+            if ( c == '\\' ) {
+                position++;
+            }
+            else if ( ( c == quote ) || ( c == '\n' ) ) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reads a name made of identifiers and dots, which may be split by whitespace and
+     * comments, and may end in a star.
+     *
+     * @return The name, without the whitespace and comments, empty if there isn't one.
+     */
+    private String readQualifiedName() {
+        StringBuilder name = new StringBuilder();
+        boolean expectIdentifier = true;
+
+        while ( skipTrivia() ) {
+            char c = source.charAt( position );
+
+            if ( Character.isJavaIdentifierStart( c ) && expectIdentifier ) {
+                int start = position;
+                while ( ( position < length ) && Character.isJavaIdentifierPart( source.charAt( position ) ) ) {
+                    position++;
+                }
+
+                // the static of a static import is followed by the name
+                boolean isStatic = ( name.length() == 0 ) && matches( start, "static" );
+                name.append( source, start, position ).append( isStatic ? " " : "" );
+                expectIdentifier = isStatic;
+            }
+            else if ( ( c == '.' ) && !expectIdentifier ) {
+                name.append( c );
+                position++;
+                expectIdentifier = true;
+            }
+            else if ( ( c == '*' ) && expectIdentifier && ( name.length() > 0 ) ) {
+                name.append( c );
+                position++;
+                break;
+            }
+            else {
+                break;
+            }
+        }
+        return name.toString();
+    }
+
+    /**
+     * Checks if the word at the start is the keyword, without copying it.
+     *
+     * @param start
+     *            The start of the word, which ends at the current position.
+     * @param keyword
+     *            The keyword.
+     * @return If the word is the keyword.
+     */
+    private boolean matches( int start, String keyword ) {
+        if ( ( position - start ) != keyword.length() ) return false;
+
+        for ( int i = 0; i < keyword.length(); i++ ) {
+            if ( source.charAt( start + i ) != keyword.charAt( i ) ) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the next thing after whitespace and comments is an identifier, without
+     * moving past it.
+     *
+     * @return If it's an identifier.
+     */
+    private boolean nextIsIdentifier() {
+        int saved = position;
+        boolean identifier = skipTrivia() && Character.isJavaIdentifierStart( source.charAt( position ) );
+        position = saved;
+        return identifier;
+    }
+
+    //
+    // Static
+    //
+
+    /**
+     * Scans the source for its package and top level types.
+     *
+     * @param source
+     *            The source code.
+     * @return What was found.
+     */
+    public static SourceInfo scan( CharSequence source ) {
+        return new SourceScanner( source ).scan();
+    }
+
+    //
+    // Nested Classes
+    //
+
+    /**
+     * The package and top level types of a compilation unit.
+     *
+     * @author Austin
+     */
+    public static final class SourceInfo {
+
+        /** The package, empty for the default package. */
+        private final String         packageName;
+
+        /** The public top level type, or null if there isn't one. */
+        private final String         publicType;
+
+        /** Every top level type, in the order they're declared. */
+        private final List< String > typeNames;
+
+        /** What's imported, in order, with static imports starting with the word static. */
+        private final List< String > imports;
+
+        /** The name of every annotation that's used, as it's written. */
+        private final Set< String >  annotations;
+
+        /**
+         * Constructs a SourceInfo.
+         *
+         * @param packageName
+         *            The package, empty for the default package.
+         * @param publicType
+         *            The public top level type, or null if there isn't one.
+         * @param typeNames
+         *            Every top level type, in the order they're declared.
+         * @param imports
+         *            What's imported, in order.
+         * @param annotations
+         *            The name of every annotation that's used, as it's written.
+         */
+        private SourceInfo( String packageName, String publicType, List< String > typeNames, List< String > imports, Set< String > annotations ) {
+            this.packageName = packageName;
+            this.publicType = publicType;
+            this.typeNames = Collections.unmodifiableList( typeNames );
+            this.imports = Collections.unmodifiableList( imports );
+            this.annotations = Collections.unmodifiableSet( annotations );
+        }
+
+        /**
+         * @return The package, empty for the default package.
+         */
+        public String getPackageName() {
+            return packageName;
+        }
+
+        /**
+         * @return The public top level type, or null if there isn't one.
+         */
+        public String getPublicType() {
+            return publicType;
+        }
+
+        /**
+         * @return Every top level type, in the order they're declared.
+         */
+        public List< String > getTypeNames() {
+            return typeNames;
+        }
+
+        /**
+         * @return What's imported, in order, such as {@code java.util.*} or
+         *         {@code static java.lang.Math.max}.
+         */
+        public List< String > getImports() {
+            return imports;
+        }
+
+        /**
+         * @return The name of every annotation that's used, as it's written, so either simple
+         *         or qualified.
+         */
+        public Set< String > getAnnotations() {
+            return annotations;
+        }
+
+        /**
+         * Checks if an annotation is used, whether it's written with its qualified name or
+         * with its simple name and imported.
+         *
+         * @param qualifiedName
+         *            The qualified name of the annotation type.
+         * @return If it's used.
+         */
+        public boolean isAnnotatedWith( String qualifiedName ) {
+            if ( annotations.contains( qualifiedName ) ) return true;
+
+            int dot = qualifiedName.lastIndexOf( '.' );
+            if ( !annotations.contains( qualifiedName.substring( dot + 1 ) ) ) return false;
+            return imports.contains( qualifiedName ) || imports.contains( qualifiedName.substring( 0, dot + 1 ) + "*" );
+        }
+
+        /**
+         * @return The type the file is named after and which is run: the public type, or the
+         *         first type if none are public, or null if there aren't any types.
+         */
+        public String getMainType() {
+            if ( publicType != null ) return publicType;
+            return typeNames.isEmpty() ? null : typeNames.get( 0 );
+        }
+
+        /**
+         * Qualifies the name of a type with the package.
+         *
+         * @param typeName
+         *            The simple name of a top level type.
+         * @return The fully qualified name.
+         */
+        public String qualify( String typeName ) {
+            return packageName.isEmpty() ? typeName : ( packageName + "." + typeName );
+        }
+
+        /**
+         * @return The fully qualified name of the {@link #getMainType() main type}, or null if
+         *         there aren't any types.
+         */
+        public String getClassName() {
+            String main = getMainType();
+            return ( main == null ) ? null : qualify( main );
+        }
+
+    }
+
+}
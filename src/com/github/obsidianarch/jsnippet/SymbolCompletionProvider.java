@@ -0,0 +1,69 @@
+package com.github.obsidianarch.jsnippet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.text.JTextComponent;
+
+import org.fife.ui.autocomplete.BasicCompletion;
+import org.fife.ui.autocomplete.Completion;
+import org.fife.ui.autocomplete.DefaultCompletionProvider;
+
+/**
+ * Completes the keywords and templates, along with the classes, methods and fields of the
+ * JDK from a {@link SymbolIndex}. The index is handed over once it has been built in the
+ * background, until then only the keywords and templates are offered.
+ *
+ * @author Austin
+ */
+public class SymbolCompletionProvider extends DefaultCompletionProvider {
+
+    //
+    // Fields
+    //
+
+    /** The fewest characters that have to be typed before the index is searched. */
+    private static final int     MIN_PREFIX = 2;
+
+    /** The most symbols offered at once. */
+    private static final int     LIMIT      = 200;
+
+    /** The symbols, null until the index is ready. */
+    private volatile SymbolIndex index;
+
+    //
+    // Setters
+    //
+
+    /**
+     * Starts offering the index's symbols.
+     *
+     * @param index
+     *            The index.
+     */
+    public void setIndex( SymbolIndex index ) {
+        this.index = index;
+    }
+
+    //
+    // Overrides
+    //
+
+    @Override
+    protected List< Completion > getCompletionsImpl( JTextComponent comp ) {
+        List< Completion > completions = super.getCompletionsImpl( comp );
+
+        SymbolIndex index = this.index;
+        if ( index == null ) return completions;
+
+        String prefix = getAlreadyEnteredText( comp );
+        if ( ( prefix == null ) || ( prefix.length() < MIN_PREFIX ) ) return completions;
+
+        List< Completion > all = new ArrayList<>( completions );
+        for ( SymbolIndex.Symbol symbol : index.find( prefix, LIMIT ) ) {
+            all.add( new BasicCompletion( this, symbol.getName(), symbol.getDetail() ) );
+        }
+        return all;
+    }
+
+}
@@ -0,0 +1,725 @@
+package com.github.obsidianarch.jsnippet;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.module.ModuleDescriptor;
+import java.lang.module.ModuleFinder;
+import java.lang.module.ModuleReference;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * The public classes, methods and fields of the JDK and the classpath, searchable by the start
+ * of their names.
+ * <p>
+ * The symbols are kept in a single buffer as a table of offsets, sorted by name ignoring
+ * case, followed by the records the offsets point to. A search is a binary search over the
+ * table, and only the records that match are turned into objects, so finding the symbols for
+ * a prefix takes microseconds however many there are.
+ *
+ * @author Austin
+ */
+public final class SymbolIndex {
+
+    //
+    // Fields
+    //
+
+    /** Identifies an index buffer. */
+    private static final int MAGIC   = 0x4A534958; // JSIX
+
+    /** The layout of the buffer, changed whenever the layout does. */
+    public static final int  VERSION = 1;
+
+    /** The index, starting with its header. */
+    private final ByteBuffer buffer;
+
+    /** The number of symbols. */
+    private final int        count;
+
+    //
+    // Constructors
+    //
+
+    /**
+     * Constructs a SymbolIndex over a buffer written by {@link #write(List)}.
+     *
+     * @param buffer
+     *            The buffer, which is used as it is rather than copied.
+     * @throws IOException
+     *             If the buffer isn't an index of this version.
+     */
+    public SymbolIndex( ByteBuffer buffer ) throws IOException {
+        this.buffer = buffer.slice();
+
+        if ( ( this.buffer.remaining() < 12 ) || ( this.buffer.getInt( 0 ) != MAGIC ) || ( this.buffer.getInt( 4 ) != VERSION ) ) {
+            throw new IOException( "Not a symbol index of version " + VERSION );
+        }
+        count = this.buffer.getInt( 8 );
+    }
+
+    //
+    // Actions
+    //
+
+    /**
+     * Finds the symbols whose names start with the prefix, ignoring case.
+     *
+     * @param prefix
+     *            The start of the name.
+     * @param limit
+     *            The most symbols to return.
+     * @return The symbols, in order of their names.
+     */
+    public List< Symbol > find( String prefix, int limit ) {
+        byte[] key = prefix.getBytes( StandardCharsets.UTF_8 );
+
+        // the first symbol that isn't before the prefix
+        int low = 0;
+        int high = count;
+        while ( low < high ) {
+            int middle = ( low + high ) >>> 1;
+            if ( comparePrefix( recordAt( middle ), key ) < 0 ) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+
+        List< Symbol > symbols = new ArrayList<>();
+        for ( int i = low; ( i < count ) && ( symbols.size() < limit ); i++ ) {
+            int record = recordAt( i );
+            if ( comparePrefix( record, key ) != 0 ) break;
+            symbols.add( readSymbol( record ) );
+        }
+        return symbols;
+    }
+
+    /**
+     * Compares the start of a symbol's name with the prefix, ignoring the case of ASCII
+     * letters.
+     *
+     * @param record
+     *            The position of the symbol's record.
+     * @param key
+     *            The prefix, in UTF-8.
+     * @return Less than 0 if the name comes before the prefix, 0 if it starts with it, and
+     *         more than 0 if it comes after it.
+     */
+    private int comparePrefix( int record, byte[] key ) {
+        int length = buffer.getShort( record ) & 0xFFFF;
+        int start = record + 2;
+
+        for ( int i = 0; i < key.length; i++ ) {
+            if ( i == length ) return -1; // the name is shorter than the prefix
+
+            int difference = lower( buffer.get( start + i ) ) - lower( key[ i ] );
+            if ( difference != 0 ) return difference;
+        }
+        return 0;
+    }
+
+    /**
+     * @param index
+     *            The index of the symbol in name order.
+     * @return The position of the symbol's record.
+     */
+    private int recordAt( int index ) {
+        return buffer.getInt( 12 + ( index * 4 ) );
+    }
+
+    /**
+     * Reads the symbol out of its record.
+     *
+     * @param record
+     *            The position of the record.
+     * @return The symbol.
+     */
+    private Symbol readSymbol( int record ) {
+        int nameLength = buffer.getShort( record ) & 0xFFFF;
+        String name = readString( record + 2, nameLength );
+
+        int position = record + 2 + nameLength;
+        Symbol.Kind kind = Symbol.Kind.values()[ buffer.get( position ) ];
+
+        int detailLength = buffer.getShort( position + 1 ) & 0xFFFF;
+        String detail = readString( position + 3, detailLength );
+
+        return new Symbol( name, kind, detail );
+    }
+
+    /**
+     * Reads a UTF-8 string from the buffer.
+     *
+     * @param position
+     *            The position of the first byte.
+     * @param length
+     *            The number of bytes.
+     * @return The string.
+     */
+    private String readString( int position, int length ) {
+        byte[] bytes = new byte[ length ];
+        for ( int i = 0; i < length; i++ ) {
+            bytes[ i ] = buffer.get( position + i );
+        }
+        return new String( bytes, StandardCharsets.UTF_8 );
+    }
+
+    //
+    // Getters
+    //
+
+    /**
+     * @return The number of symbols.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return A read only view of the whole index, as written by {@link #write(List)}.
+     */
+    public ByteBuffer getBuffer() {
+        return buffer.asReadOnlyBuffer();
+    }
+
+    //
+    // Static
+    //
+
+    /**
+     * Creates an index of every public class, method and field in the packages the JDK's
+     * modules export, and in the classpath.
+     *
+     * @param classpath
+     *            The jars and directories of classes which are indexed along with the JDK.
+     * @return The index.
+     * @throws IOException
+     *             If the JDK's classes couldn't be read.
+     */
+    public static SymbolIndex build( List< File > classpath ) throws IOException {
+        List< Symbol > symbols = new ArrayList<>();
+        FileSystem jrt = FileSystems.getFileSystem( URI.create( "jrt:/" ) );
+
+        for ( ModuleReference module : ModuleFinder.ofSystem().findAll() ) {
+            ModuleDescriptor descriptor = module.descriptor();
+
+            for ( ModuleDescriptor.Exports exports : descriptor.exports() ) {
+                if ( exports.isQualified() ) continue; // only exported to other JDK modules
+
+                Path directory = jrt.getPath( "/modules", descriptor.name(), exports.source().replace( '.', '/' ) );
+                if ( !Files.isDirectory( directory ) ) continue;
+
+                try ( DirectoryStream< Path > classes = Files.newDirectoryStream( directory, "*.class" ) ) {
+                    for ( Path path : classes ) {
+                        ClassFileReader.read( Files.readAllBytes( path ), exports.source(), symbols );
+                    }
+                }
+            }
+        }
+
+        for ( File entry : classpath ) {
+            try {
+                indexClasspathEntry( entry, symbols );
+            }
+            catch ( IOException e ) {
+                System.err.println( "Failed to index " + entry );
+                e.printStackTrace();
+            }
+        }
+
+        return new SymbolIndex( write( symbols ) );
+    }
+
+    /**
+     * Adds the classes of a jar or directory on the classpath to the symbols.
+     *
+     * @param entry
+     *            The jar or directory.
+     * @param symbols
+     *            Receives the symbols.
+     * @throws IOException
+     *             If the classes couldn't be read.
+     */
+    private static void indexClasspathEntry( File entry, List< Symbol > symbols ) throws IOException {
+        if ( entry.isFile() ) {
+            try ( ZipFile jar = new ZipFile( entry ) ) {
+                Enumeration< ? extends ZipEntry > entries = jar.entries();
+                while ( entries.hasMoreElements() ) {
+                    ZipEntry zipEntry = entries.nextElement();
+                    String name = zipEntry.getName();
+                    if ( !name.endsWith( ".class" ) || name.startsWith( "META-INF/" ) || name.endsWith( "module-info.class" ) ) continue;
+
+                    try ( InputStream in = jar.getInputStream( zipEntry ) ) {
+                        ClassFileReader.read( in.readAllBytes(), packageOf( name ), symbols );
+                    }
+                }
+            }
+        }
+        else if ( entry.isDirectory() ) {
+            Path root = entry.toPath();
+            List< Path > paths;
+            try ( Stream< Path > walk = Files.walk( root ) ) {
+                paths = walk.collect( Collectors.toList() );
+            }
+
+            for ( Path path : paths ) {
+                String name = root.relativize( path ).toString().replace( File.separatorChar, '/' );
+                if ( !name.endsWith( ".class" ) || name.endsWith( "module-info.class" ) ) continue;
+                ClassFileReader.read( Files.readAllBytes( path ), packageOf( name ), symbols );
+            }
+        }
+    }
+
+    /**
+     * @param path
+     *            The path of a class file from the root of the classpath, separated by /.
+     * @return The class's package.
+     */
+    private static String packageOf( String path ) {
+        int slash = path.lastIndexOf( '/' );
+        return ( slash == -1 ) ? "" : path.substring( 0, slash ).replace( '/', '.' );
+    }
+
+    /**
+     * Writes the symbols into an index buffer: a header of the magic number, the version and
+     * the number of symbols, then the position of each symbol's record in name order, then
+     * the records. A record is the name, a byte for the kind, and the detail, with the strings
+     * each in UTF-8 after their length as an unsigned short.
+     *
+     * @param symbols
+     *            The symbols, which are sorted and have their duplicates removed.
+     * @return The buffer, ready to be read.
+     */
+    public static ByteBuffer write( List< Symbol > symbols ) {
+        List< Symbol > sorted = new ArrayList<>( new HashSet<>( symbols ) );
+        Collections.sort( sorted, Symbol.ORDER );
+
+        List< byte[] > names = new ArrayList<>( sorted.size() );
+        List< byte[] > details = new ArrayList<>( sorted.size() );
+        int size = 12 + ( sorted.size() * 4 );
+        for ( Symbol symbol : sorted ) {
+            byte[] name = truncate( symbol.getName().getBytes( StandardCharsets.UTF_8 ) );
+            byte[] detail = truncate( symbol.getDetail().getBytes( StandardCharsets.UTF_8 ) );
+            names.add( name );
+            details.add( detail );
+            size += 5 + name.length + detail.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate( size );
+        buffer.putInt( MAGIC ).putInt( VERSION ).putInt( sorted.size() );
+
+        int record = 12 + ( sorted.size() * 4 );
+        for ( int i = 0; i < sorted.size(); i++ ) {
+            buffer.putInt( record );
+            record += 5 + names.get( i ).length + details.get( i ).length;
+        }
+
+        for ( int i = 0; i < sorted.size(); i++ ) {
+            buffer.putShort( ( short ) names.get( i ).length ).put( names.get( i ) );
+            buffer.put( ( byte ) sorted.get( i ).getKind().ordinal() );
+            buffer.putShort( ( short ) details.get( i ).length ).put( details.get( i ) );
+        }
+
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * @param bytes
+     *            A string in UTF-8.
+     * @return The string, cut to the longest length a record can hold.
+     */
+    private static byte[] truncate( byte[] bytes ) {
+        if ( bytes.length <= 0xFFFF ) return bytes;
+
+        byte[] truncated = new byte[ 0xFFFF ];
+        System.arraycopy( bytes, 0, truncated, 0, truncated.length );
+        return truncated;
+    }
+
+    /**
+     * @param b
+     *            A byte of UTF-8.
+     * @return The byte, lower case if it's an ASCII letter, as an unsigned value.
+     */
+    private static int lower( byte b ) {
+        int c = b & 0xFF;
+        return ( ( c >= 'A' ) && ( c <= 'Z' ) ) ? ( c + ( 'a' - 'A' ) ) : c;
+    }
+
+    //
+    // Nested Classes
+    //
+
+    /**
+     * A class, method or field in the index.
+     *
+     * @author Austin
+     */
+    public static final class Symbol {
+
+        /** Orders the symbols the way the index is searched, by name ignoring case. */
+        static final Comparator< Symbol > ORDER = new Comparator< Symbol >() {
+
+            @Override
+            public int compare( Symbol a, Symbol b ) {
+                int result = compareIgnoringCase( a.name, b.name );
+                if ( result == 0 ) result = a.name.compareTo( b.name );
+                if ( result == 0 ) result = a.kind.compareTo( b.kind );
+                if ( result == 0 ) result = a.detail.compareTo( b.detail );
+                return result;
+            }
+
+        };
+
+        /**
+         * What a symbol is.
+         */
+        public enum Kind {
+            CLASS, METHOD, FIELD
+        }
+
+        /** The simple name. */
+        private final String name;
+
+        /** What the symbol is. */
+        private final Kind   kind;
+
+        /** The package of a class, or the signature of a member along with its class. */
+        private final String detail;
+
+        /**
+         * Constructs a Symbol.
+         *
+         * @param name
+         *            The simple name.
+         * @param kind
+         *            What the symbol is.
+         * @param detail
+         *            The package of a class, or the signature of a member along with its
+         *            class.
+         */
+        public Symbol( String name, Kind kind, String detail ) {
+            this.name = name;
+            this.kind = kind;
+            this.detail = detail;
+        }
+
+        /**
+         * @return The simple name.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return What the symbol is.
+         */
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * @return The package of a class, or the signature of a member along with its class.
+         */
+        public String getDetail() {
+            return detail;
+        }
+
+        @Override
+        public boolean equals( Object obj ) {
+            if ( !( obj instanceof Symbol ) ) return false;
+
+            Symbol other = ( Symbol ) obj;
+            return name.equals( other.name ) && ( kind == other.kind ) && detail.equals( other.detail );
+        }
+
+        @Override
+        public int hashCode() {
+            return ( ( ( name.hashCode() * 31 ) + kind.hashCode() ) * 31 ) + detail.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return name + " - " + detail;
+        }
+
+        /**
+         * Compares the UTF-8 bytes of the strings, ignoring the case of ASCII letters, the same
+         * way the index is searched.
+         *
+         * @param a
+         *            The first string.
+         * @param b
+         *            The second string.
+         * @return The comparison.
+         */
+        private static int compareIgnoringCase( String a, String b ) {
+            byte[] x = a.getBytes( StandardCharsets.UTF_8 );
+            byte[] y = b.getBytes( StandardCharsets.UTF_8 );
+
+            for ( int i = 0; ( i < x.length ) && ( i < y.length ); i++ ) {
+                int difference = lower( x[ i ] ) - lower( y[ i ] );
+                if ( difference != 0 ) return difference;
+            }
+            return x.length - y.length;
+        }
+
+    }
+
+    /**
+     * Reads just enough of a class file to find its public members.
+     *
+     * @author Austin
+     */
+    static final class ClassFileReader {
+
+        /** The public access flag. */
+        private static final int ACC_PUBLIC    = 0x0001;
+
+        /** The protected access flag. */
+        private static final int ACC_PROTECTED = 0x0004;
+
+        /** The synthetic access flag. */
+        private static final int ACC_SYNTHETIC = 0x1000;
+
+        /** The module access flag. */
+        private static final int ACC_MODULE    = 0x8000;
+
+        /**
+         * Reads the class file, adding the class and its public members to the symbols. The
+         * class is skipped if it isn't public, or is anonymous or local.
+         *
+         * @param bytes
+         *            The class file.
+         * @param packageName
+         *            The package the class is in.
+         * @param symbols
+         *            Receives the symbols.
+         * @throws IOException
+         *             If the class file is malformed.
+         */
+        static void read( byte[] bytes, String packageName, List< Symbol > symbols ) throws IOException {
+            DataInputStream in = new DataInputStream( new ByteArrayInputStream( bytes ) );
+            if ( in.readInt() != 0xCAFEBABE ) throw new IOException( "Not a class file" );
+            in.readUnsignedShort(); // minor version
+            in.readUnsignedShort(); // major version
+
+            // only the UTF-8 and class constants are needed
+            int constants = in.readUnsignedShort();
+            String[] utf8 = new String[ constants ];
+            int[] classNames = new int[ constants ];
+            for ( int i = 1; i < constants; i++ ) {
+                int tag = in.readUnsignedByte();
+                switch ( tag ) {
+                    case 1: // Utf8
+                        utf8[ i ] = in.readUTF();
+                        break;
+                    case 7: // Class
+                        classNames[ i ] = in.readUnsignedShort();
+                        break;
+                    case 8: // String
+                    case 16: // MethodType
+                    case 19: // Module
+                    case 20: // Package
+                        in.skipBytes( 2 );
+                        break;
+                    case 15: // MethodHandle
+                        in.skipBytes( 3 );
+                        break;
+                    case 3: // Integer
+                    case 4: // Float
+                    case 9: // Fieldref
+                    case 10: // Methodref
+                    case 11: // InterfaceMethodref
+                    case 12: // NameAndType
+                    case 17: // Dynamic
+                    case 18: // InvokeDynamic
+                        in.skipBytes( 4 );
+                        break;
+                    case 5: // Long
+                    case 6: // Double
+                        in.skipBytes( 8 );
+                        i++; // takes two entries
+                        break;
+                    default:
+                        throw new IOException( "Unknown constant tag " + tag );
+                }
+            }
+
+            int access = in.readUnsignedShort();
+            String binaryName = utf8[ classNames[ in.readUnsignedShort() ] ];
+            if ( ( ( access & ACC_PUBLIC ) == 0 ) || ( ( access & ACC_MODULE ) != 0 ) ) return;
+
+            String simpleName = binaryName.substring( binaryName.lastIndexOf( '/' ) + 1 );
+            for ( String part : simpleName.split( "\\$" ) ) {
+                if ( part.isEmpty() || Character.isDigit( part.charAt( 0 ) ) ) return; // anonymous or local
+            }
+            String className = simpleName.replace( '$', '.' );
+            String name = className.substring( className.lastIndexOf( '.' ) + 1 );
+            symbols.add( new Symbol( name, Symbol.Kind.CLASS, packageName ) );
+
+            in.readUnsignedShort(); // super class
+            in.skipBytes( in.readUnsignedShort() * 2 ); // interfaces
+
+            int fields = in.readUnsignedShort();
+            for ( int i = 0; i < fields; i++ ) {
+                int flags = in.readUnsignedShort();
+                String fieldName = utf8[ in.readUnsignedShort() ];
+                String descriptor = utf8[ in.readUnsignedShort() ];
+                skipAttributes( in );
+
+                if ( isVisible( flags ) ) {
+                    symbols.add( new Symbol( fieldName, Symbol.Kind.FIELD, typeName( descriptor, new int[ 1 ] ) + " " + className + "." + fieldName ) );
+                }
+            }
+
+            int methods = in.readUnsignedShort();
+            for ( int i = 0; i < methods; i++ ) {
+                int flags = in.readUnsignedShort();
+                String methodName = utf8[ in.readUnsignedShort() ];
+                String descriptor = utf8[ in.readUnsignedShort() ];
+                skipAttributes( in );
+
+                if ( isVisible( flags ) && !methodName.startsWith( "<" ) && !methodName.contains( "$" ) ) {
+                    symbols.add( new Symbol( methodName, Symbol.Kind.METHOD, methodSignature( className, methodName, descriptor ) ) );
+                }
+            }
+        }
+
+        /**
+         * @param flags
+         *            The access flags of a member.
+         * @return If the member can be used from outside of its package, and was written by
+         *         hand.
+         */
+        private static boolean isVisible( int flags ) {
+            return ( ( flags & ( ACC_PUBLIC | ACC_PROTECTED ) ) != 0 ) && ( ( flags & ACC_SYNTHETIC ) == 0 );
+        }
+
+        /**
+         * Skips over the attributes of a field or method.
+         *
+         * @param in
+         *            The class file, at the attributes.
+         * @throws IOException
+         *             If the class file is malformed.
+         */
+        private static void skipAttributes( DataInputStream in ) throws IOException {
+            int attributes = in.readUnsignedShort();
+            for ( int i = 0; i < attributes; i++ ) {
+                in.readUnsignedShort(); // name
+                in.skipBytes( in.readInt() );
+            }
+        }
+
+        /**
+         * Writes the signature of a method the way it's declared, such as
+         * {@code String String.substring(int, int)}.
+         *
+         * @param className
+         *            The class the method is in.
+         * @param methodName
+         *            The name of the method.
+         * @param descriptor
+         *            The method's descriptor.
+         * @return The signature.
+         */
+        private static String methodSignature( String className, String methodName, String descriptor ) {
+            StringBuilder parameters = new StringBuilder();
+            int[] position = { 1 }; // after the (
+
+            while ( descriptor.charAt( position[ 0 ] ) != ')' ) {
+                if ( parameters.length() > 0 ) parameters.append( ", " );
+                parameters.append( typeName( descriptor, position ) );
+            }
+            position[ 0 ]++; // after the )
+
+            return typeName( descriptor, position ) + " " + className + "." + methodName + "(" + parameters + ")";
+        }
+
+        /**
+         * Reads a type from a descriptor as it would be written in source, without its
+         * package.
+         *
+         * @param descriptor
+         *            The descriptor.
+         * @param position
+         *            The position of the type, which is moved past it.
+         * @return The type.
+         */
+        private static String typeName( String descriptor, int[] position ) {
+            int dimensions = 0;
+            while ( descriptor.charAt( position[ 0 ] ) == '[' ) {
+                dimensions++;
+                position[ 0 ]++;
+            }
+
+            String type;
+            char c = descriptor.charAt( position[ 0 ]++ );
+            switch ( c ) {
+                case 'B':
+                    type = "byte";
+                    break;
+                case 'C':
+                    type = "char";
+                    break;
+                case 'D':
+                    type = "double";
+                    break;
+                case 'F':
+                    type = "float";
+                    break;
+                case 'I':
+                    type = "int";
+                    break;
+                case 'J':
+                    type = "long";
+                    break;
+                case 'S':
+                    type = "short";
+                    break;
+                case 'Z':
+                    type = "boolean";
+                    break;
+                case 'V':
+                    type = "void";
+                    break;
+                default: // L...;
+                    int end = descriptor.indexOf( ';', position[ 0 ] );
+                    String binary = descriptor.substring( position[ 0 ], end );
+                    type = binary.substring( binary.lastIndexOf( '/' ) + 1 ).replace( '$', '.' );
+                    position[ 0 ] = end + 1;
+            }
+
+            StringBuilder sb = new StringBuilder( type );
+            for ( int i = 0; i < dimensions; i++ ) {
+                sb.append( "[]" );
+            }
+            return sb.toString();
+        }
+
+    }
+
+}
@@ -0,0 +1,183 @@
+package com.github.obsidianarch.jsnippet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps the {@link SymbolIndex} in a file, so it only has to be built once. The file is
+ * memory mapped rather than read, which makes loading it take a few milliseconds, and leaves
+ * the symbols in pages the operating system can share instead of on the heap.
+ * <p>
+ * The file starts with a fingerprint of everything the index was built from: the JDK, the
+ * classpath, and the keywords and templates files. The index is built again whenever the
+ * fingerprint doesn't match.
+ *
+ * @author Austin
+ */
+public final class SymbolIndexCache {
+
+    //
+    // Fields
+    //
+
+    /** Identifies a cache file. */
+    private static final int MAGIC       = 0x4A534943; // JSIC
+
+    /** The layout of the file's header, changed whenever the layout does. */
+    private static final int VERSION     = 1;
+
+    /** The size of the header before the fingerprint: the magic number, the versions and the fingerprint's length. */
+    private static final int HEADER_SIZE = 16;
+
+    //
+    // Constructors
+    //
+
+    /**
+     * Not instantiable.
+     */
+    private SymbolIndexCache() {
+    }
+
+    //
+    // Static
+    //
+
+    /**
+     * Maps the index in the file, or builds it and writes it to the file if the file is
+     * missing or out of date.
+     *
+     * @param file
+     *            The cache file.
+     * @param classpath
+     *            The jars and directories of classes which are indexed along with the JDK.
+     * @return The index.
+     * @throws IOException
+     *             If the index couldn't be built.
+     */
+    public static SymbolIndex load( File file, List< File > classpath ) throws IOException {
+        byte[] fingerprint = fingerprint( classpath );
+
+        try {
+            SymbolIndex index = map( file, fingerprint );
+            if ( index != null ) return index;
+        }
+        catch ( IOException e ) {
+            System.err.println( "Failed to read the symbol index, building it again" );
+            e.printStackTrace();
+        }
+
+        SymbolIndex index = SymbolIndex.build( classpath );
+        try {
+            write( file, fingerprint, index );
+
+            SymbolIndex mapped = map( file, fingerprint );
+            if ( mapped != null ) return mapped; // off of the heap
+        }
+        catch ( IOException e ) {
+            System.err.println( "Failed to save the symbol index" );
+            e.printStackTrace();
+        }
+        return index;
+    }
+
+    /**
+     * Maps the index in the file.
+     *
+     * @param file
+     *            The cache file.
+     * @param fingerprint
+     *            The fingerprint the file must have.
+     * @return The index, or null if the file doesn't exist or is out of date.
+     * @throws IOException
+     *             If the file couldn't be read.
+     */
+    private static SymbolIndex map( File file, byte[] fingerprint ) throws IOException {
+        if ( !file.isFile() ) return null;
+
+        try ( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ ) ) {
+            if ( channel.size() < HEADER_SIZE ) return null;
+
+            // the mapping stays valid once the channel is closed
+            MappedByteBuffer buffer = channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() );
+            if ( ( buffer.getInt( 0 ) != MAGIC ) || ( buffer.getInt( 4 ) != VERSION ) || ( buffer.getInt( 8 ) != SymbolIndex.VERSION ) ) return null;
+            if ( buffer.getInt( 12 ) != fingerprint.length ) return null;
+
+            byte[] stored = new byte[ fingerprint.length ];
+            buffer.position( HEADER_SIZE );
+            buffer.get( stored );
+            if ( !Arrays.equals( stored, fingerprint ) ) return null;
+
+            return new SymbolIndex( buffer );
+        }
+    }
+
+    /**
+     * Writes the index to the file, through a temporary file so that a running editor never
+     * sees half of one.
+     *
+     * @param file
+     *            The cache file.
+     * @param fingerprint
+     *            The fingerprint of what the index was built from.
+     * @param index
+     *            The index.
+     * @throws IOException
+     *             If the file couldn't be written.
+     */
+    private static void write( File file, byte[] fingerprint, SymbolIndex index ) throws IOException {
+        file.getParentFile().mkdirs();
+        File temporary = new File( file.getPath() + ".tmp" );
+
+        ByteBuffer header = ByteBuffer.allocate( HEADER_SIZE + fingerprint.length );
+        header.putInt( MAGIC ).putInt( VERSION ).putInt( SymbolIndex.VERSION ).putInt( fingerprint.length ).put( fingerprint );
+        header.flip();
+
+        try ( FileChannel channel = FileChannel.open( temporary.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING ) ) {
+            ByteBuffer body = index.getBuffer();
+            while ( header.hasRemaining() || body.hasRemaining() ) {
+                channel.write( new ByteBuffer[ ] { header, body } );
+            }
+        }
+
+        Files.move( temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+    }
+
+    /**
+     * Describes everything the index is built from, or which changes what's completed. It's
+     * kept as it is rather than hashed, comparing it is cheaper than starting a digest.
+     *
+     * @param classpath
+     *            The classpath that's indexed.
+     * @return The description, in UTF-8.
+     * @throws IOException
+     *             If the keywords or templates couldn't be read.
+     */
+    private static byte[] fingerprint( List< File > classpath ) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append( System.getProperty( "java.version" ) ).append( '\n' );
+        sb.append( System.getProperty( "java.vm.version" ) ).append( '\n' );
+        sb.append( System.getProperty( "java.home" ) ).append( '\n' );
+
+        sb.append( CompilerSession.describeClasspath( classpath ) );
+
+        for ( File file : new File[ ] { JSnippet.KEYWORDS, JSnippet.TEMPLATES } ) {
+            CRC32 crc = new CRC32();
+            if ( file.isFile() ) crc.update( Files.readAllBytes( file.toPath() ) );
+            sb.append( file.getName() ).append( '|' ).append( Long.toHexString( crc.getValue() ) ).append( '\n' );
+        }
+
+        return sb.toString().getBytes( StandardCharsets.UTF_8 );
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.github.obsidianarch.jsnippet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+/**
+ * The main class of a pooled worker JVM. The worker starts up ahead of time and waits on its
+ * standard input for the snippet to run, which is sent as:
+ *
+ * <pre>
+ * classpath
+ * class name
+ * argument count
+ * one argument per line
+ * </pre>
+ *
+ * This class must not touch the rest of JSnippet, so that workers don't load the editor.
+ *
+ * @author Austin
+ */
+public final class WorkerLauncher {
+
+    /**
+     * Reads a single line from the input, one byte at a time so that nothing past the line
+     * is consumed before the snippet gets its hands on System.in.
+     *
+     * @param in
+     *            The input to read from.
+     * @return The line, or null if the input has ended.
+     * @throws IOException
+     *             If the input couldn't be read.
+     */
+    private static String readLine( InputStream in ) throws IOException {
+        StringBuilder sb = new StringBuilder();
+
+        int b;
+        while ( ( b = in.read() ) != '\n' ) {
+            if ( b == -1 ) return null;
+            if ( b != '\r' ) sb.append( ( char ) b );
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Waits for a snippet, then runs it.
+     *
+     * @param args
+     *            Command line arguments (ignored).
+     * @throws Exception
+     *             If the snippet's classes couldn't be loaded.
+     */
+    public static void main( String[] args ) throws Exception {
+        // warm up what running the snippet will need, while nobody is waiting on us
+        Class.forName( "java.net.URLClassLoader" );
+        Class.forName( "java.lang.reflect.Method" ).getMethod( "invoke", Object.class, Object[].class );
+
+        String classpath = readLine( System.in );
+        String className = readLine( System.in );
+        String count = readLine( System.in );
+        if ( ( classpath == null ) || ( className == null ) || ( count == null ) ) return; // the pool shut us down
+
+        String[] arguments = new String[ Integer.parseInt( count ) ];
+        for ( int i = 0; i < arguments.length; i++ ) {
+            arguments[ i ] = readLine( System.in );
+        }
+
+        String[] paths = classpath.split( File.pathSeparator );
+        URL[] urls = new URL[ paths.length ];
+        for ( int i = 0; i < paths.length; i++ ) {
+            urls[ i ] = new File( paths[ i ] ).toURI().toURL();
+        }
+
+        ClassLoader loader = new URLClassLoader( urls, ClassLoader.getSystemClassLoader().getParent() );
+        Thread.currentThread().setContextClassLoader( loader );
+        Method main = Class.forName( className, true, loader ).getMethod( "main", String[].class );
+
+        try {
+            main.invoke( null, ( Object ) arguments );
+        }
+        catch ( InvocationTargetException e ) {
+            System.err.print( "Exception in thread \"main\" " );
+            e.getCause().printStackTrace();
+            System.exit( 1 );
+        }
+    }
+
+}
@@ -0,0 +1,283 @@
+package com.github.obsidianarch.jsnippet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a number of idle JVMs running {@link WorkerLauncher}, so that executing a snippet
+ * doesn't have to wait for a JVM to start. Whenever a worker is taken another one is started
+ * in the background, and workers that have sat unused for too long are shut down.
+ *
+ * @author Austin
+ */
+public class WorkerPool {
+
+    //
+    // Fields
+    //
+
+    /** The idle workers, oldest first. */
+    private final LinkedBlockingDeque< Process > idle = new LinkedBlockingDeque<>();
+
+    /** Starts the replacement workers and shuts down the unused ones. */
+    private final ScheduledExecutorService       executor;
+
+    /** The number of workers kept waiting, 0 disables the pool. */
+    private volatile int                         size;
+
+    /** The options passed to the worker JVMs. */
+    private volatile List< String >              jvmOptions;
+
+    /** How long the pool can go unused before the workers are shut down, in milliseconds. */
+    private volatile long                        idleTimeout;
+
+    /** When a worker was last taken from the pool. */
+    private volatile long                        lastUsed;
+
+    //
+    // Constructors
+    //
+
+    /**
+     * Creates a WorkerPool, no workers are started until {@link #fill()} is called.
+     *
+     * @param size
+     *            The number of workers kept waiting, 0 disables the pool.
+     * @param jvmOptions
+     *            The options passed to the worker JVMs.
+     * @param idleTimeout
+     *            How long the pool can go unused before the workers are shut down, in
+     *            milliseconds.
+     */
+    public WorkerPool( int size, List< String > jvmOptions, long idleTimeout ) {
+        this.size = size;
+        this.jvmOptions = jvmOptions;
+        this.idleTimeout = idleTimeout;
+
+        executor = Executors.newSingleThreadScheduledExecutor( new ThreadFactory() {
+
+            @Override
+            public Thread newThread( Runnable r ) {
+                Thread thread = new Thread( r );
+                thread.setName( "Worker Pool" );
+                thread.setDaemon( true );
+                return thread;
+            }
+
+        } );
+
+        executor.scheduleWithFixedDelay( new Runnable() {
+
+            @Override
+            public void run() {
+                shutdownIfUnused();
+            }
+
+        }, 10, 10, TimeUnit.SECONDS );
+    }
+
+    //
+    // Actions
+    //
+
+    /**
+     * Starts workers in the background until the pool is full.
+     */
+    public void fill() {
+        executor.execute( new Runnable() {
+
+            @Override
+            public void run() {
+                lastUsed = System.currentTimeMillis();
+
+                try {
+                    while ( idle.size() < size ) {
+                        idle.addLast( startWorker() );
+                    }
+                }
+                catch ( IOException e ) {
+                    System.err.println( "Failed to start a pooled JVM" );
+                    e.printStackTrace();
+                }
+            }
+
+        } );
+    }
+
+    /**
+     * Takes a worker from the pool and has it run the class. If there aren't any workers
+     * waiting, one is started now; either way the pool is refilled in the background.
+     *
+     * @param className
+     *            The binary name of the class to run.
+     * @param classpath
+     *            Where to find the class.
+     * @param arguments
+     *            The arguments passed to the main method.
+     * @return The worker's process.
+     * @throws IOException
+     *             If a worker couldn't be started or the class couldn't be sent to it.
+     */
+    public Process take( String className, String classpath, String... arguments ) throws IOException {
+        Process worker;
+        while ( ( ( worker = idle.pollFirst() ) != null ) && !worker.isAlive() ) {
+            // skip the workers that have died while waiting
+        }
+
+        if ( worker == null ) {
+            worker = startWorker();
+        }
+
+        fill();
+
+        StringBuilder sb = new StringBuilder();
+        sb.append( classpath ).append( '\n' );
+        sb.append( className ).append( '\n' );
+        sb.append( arguments.length ).append( '\n' );
+        for ( String argument : arguments ) {
+            sb.append( argument ).append( '\n' );
+        }
+
+        OutputStream in = worker.getOutputStream();
+        in.write( sb.toString().getBytes( StandardCharsets.UTF_8 ) );
+        in.flush();
+
+        return worker;
+    }
+
+    /**
+     * Shuts down every idle worker.
+     */
+    public void shutdown() {
+        Process worker;
+        while ( ( worker = idle.pollFirst() ) != null ) {
+            worker.destroy();
+        }
+    }
+
+    /**
+     * Starts a new worker JVM.
+     *
+     * @return The worker's process.
+     * @throws IOException
+     *             If the process couldn't be started.
+     */
+    private Process startWorker() throws IOException {
+        List< String > command = new ArrayList<>();
+        command.add( new File( System.getProperty( "java.home" ), "bin/java" ).getAbsolutePath() );
+        command.addAll( jvmOptions );
+        command.add( "-cp" );
+        command.add( getLauncherPath() );
+        command.add( WorkerLauncher.class.getName() );
+
+        return new ProcessBuilder( command ).start();
+    }
+
+    /**
+     * Shuts down the idle workers if the pool hasn't been used within the idle timeout.
+     */
+    private void shutdownIfUnused() {
+        if ( !idle.isEmpty() && ( ( System.currentTimeMillis() - lastUsed ) > idleTimeout ) ) {
+            shutdown();
+        }
+    }
+
+    //
+    // Setters
+    //
+
+    /**
+     * Changes the pool's settings, the current workers are replaced by ones using the new
+     * settings.
+     *
+     * @param size
+     *            The number of workers kept waiting, 0 disables the pool.
+     * @param jvmOptions
+     *            The options passed to the worker JVMs.
+     * @param idleTimeout
+     *            How long the pool can go unused before the workers are shut down, in
+     *            milliseconds.
+     */
+    public void configure( int size, List< String > jvmOptions, long idleTimeout ) {
+        this.size = size;
+        this.jvmOptions = jvmOptions;
+        this.idleTimeout = idleTimeout;
+
+        shutdown();
+        fill();
+    }
+
+    //
+    // Getters
+    //
+
+    /**
+     * @return If the pool keeps any workers waiting.
+     */
+    public boolean isEnabled() {
+        return size > 0;
+    }
+
+    /**
+     * @return The number of workers kept waiting.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return The options passed to the worker JVMs.
+     */
+    public List< String > getJvmOptions() {
+        return jvmOptions;
+    }
+
+    /**
+     * @return How long the pool can go unused before the workers are shut down, in
+     *         milliseconds.
+     */
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * @return The classpath entry which contains the {@link WorkerLauncher}, and the rest of
+     *         JSnippet.
+     */
+    static String getLauncherPath() {
+        try {
+            return new File( WorkerLauncher.class.getProtectionDomain().getCodeSource().getLocation().toURI() ).getAbsolutePath();
+        }
+        catch ( Exception e ) {
+            return System.getProperty( "java.class.path" );
+        }
+    }
+
+    //
+    // Static
+    //
+
+    /**
+     * Splits the options the way they were typed into a list.
+     *
+     * @param options
+     *            The options, separated by whitespace.
+     * @return The options as a list.
+     */
+    public static List< String > splitOptions( String options ) {
+        options = options.trim();
+        if ( options.isEmpty() ) return new ArrayList<>();
+        return new ArrayList<>( Arrays.asList( options.split( "\\s+" ) ) );
+    }
+
+}
@@ -1,5 +1,7 @@
 package com.wordpress.tips4java;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import javax.swing.SwingUtilities;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
@@ -15,10 +17,13 @@ import javax.swing.text.Element;
  * from the start.
  * b) if you insert text at the beginning of the Document, then you would
  * want to remove lines from the end.
+ * However many inserts there are, only one trim is ever waiting on the EDT,
+ * and it removes all of the excess lines at once.
  */
 public class LimitLinesDocumentListener implements DocumentListener {
-    private int     maximumLines;
-    private boolean isRemoveFromStart;
+    private int                 maximumLines;
+    private boolean             isRemoveFromStart;
+    private final AtomicBoolean isTrimPending = new AtomicBoolean();
     
     /*
      *  Specify the number of lines to be stored in the Document.
@@ -62,11 +67,15 @@ public class LimitLinesDocumentListener implements DocumentListener {
     @Override
     public void insertUpdate( final DocumentEvent e ) {
         //  Changes to the Document can not be done within the listener
-        //  so we need to add the processing to the end of the EDT
+        //  so we need to add the processing to the end of the EDT. A trim
+        //  which is already waiting will take care of this insert as well.
+        
+        if ( !isTrimPending.compareAndSet( false, true ) ) return;
         
         SwingUtilities.invokeLater( new Runnable() {
             @Override
             public void run() {
+                isTrimPending.set( false );
                 removeLines( e );
             }
         } );
@@ -89,22 +98,23 @@ public class LimitLinesDocumentListener implements DocumentListener {
         
         Document document = e.getDocument();
         Element root = document.getDefaultRootElement();
+        int excess = root.getElementCount() - maximumLines;
         
-        while ( root.getElementCount() > maximumLines ) {
-            if ( isRemoveFromStart ) {
-                removeFromStart( document, root );
-            }
-            else {
-                removeFromEnd( document, root );
-            }
+        if ( excess <= 0 ) return;
+        
+        if ( isRemoveFromStart ) {
+            removeFromStart( document, root, excess );
+        }
+        else {
+            removeFromEnd( document, root, excess );
         }
     }
     
     /*
-     *  Remove lines from the start of the Document
+     *  Remove the excess lines from the start of the Document
      */
-    private void removeFromStart( Document document, Element root ) {
-        Element line = root.getElement( 0 );
+    private void removeFromStart( Document document, Element root, int excess ) {
+        Element line = root.getElement( excess - 1 );
         int end = line.getEndOffset();
         
         try {
@@ -116,18 +126,18 @@ public class LimitLinesDocumentListener implements DocumentListener {
     }
     
     /*
-     *  Remove lines from the end of the Document
+     *  Remove the excess lines from the end of the Document
      */
-    private void removeFromEnd( Document document, Element root ) {
+    private void removeFromEnd( Document document, Element root, int excess ) {
         //  We use start minus 1 to make sure we remove the newline
         //  character of the previous line
         
-        Element line = root.getElement( root.getElementCount() - 1 );
+        Element line = root.getElement( root.getElementCount() - excess );
         int start = line.getStartOffset();
-        int end = line.getEndOffset();
+        int end = document.getLength();
         
         try {
-            document.remove( start - 1, end - start );
+            document.remove( start - 1, end - start + 1 );
         }
         catch ( BadLocationException ble ) {
             System.out.println( ble );
@@ -1,10 +1,21 @@
 package com.wordpress.tips4java;
 
 import java.awt.Color;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.event.DocumentListener;
+import javax.swing.text.AttributeSet;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.Document;
 import javax.swing.text.JTextComponent;
@@ -18,12 +29,29 @@ import javax.swing.text.StyleConstants;
  * Messages can either be appended to the console or inserted as the first
  * line of the console
  * You can limit the number of lines to hold in the Document.
+ * Messages are queued by the printing threads and added to the Document
+ * in batches on the Event Dispatch Thread, at most once per frame and at
+ * most a frame's worth of text at a time. Printing threads wait while too
+ * much text is queued, like they would for a full pipe, but never for
+ * long, since the Event Dispatch Thread could be waiting for their locks.
  */
 public class MessageConsole {
-    private JTextComponent   textComponent;
-    private Document         document;
-    private boolean          isAppend;
-    private DocumentListener limitLinesListener;
+    private static final int          FRAME_DELAY = 25;
+    private static final int          FRAME_CHARS = 16 * 1024;
+    private static final int          QUEUE_CHARS = 1024 * 1024;
+    private static final long         QUEUE_WAIT  = 1000;
+    private static final Message      CLEAR       = new Message( null, null );
+    
+    private JTextComponent            textComponent;
+    private Document                  document;
+    private boolean                   isAppend;
+    private DocumentListener          limitLinesListener;
+    private int                       maximumLines = Integer.MAX_VALUE;
+    private final Queue< Message >    pending     = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean       scheduled   = new AtomicBoolean();
+    private final AtomicInteger       queuedChars = new AtomicInteger();
+    private final Timer               drainTimer;
+    private final Runnable            startDrainTimer;
     
     public MessageConsole( JTextComponent textComponent ) {
         this( textComponent, true );
@@ -41,6 +69,21 @@ public class MessageConsole {
         document = textComponent.getDocument();
         this.isAppend = isAppend;
         textComponent.setEditable( false );
+        
+        drainTimer = new Timer( FRAME_DELAY, new ActionListener() {
+            @Override
+            public void actionPerformed( ActionEvent e ) {
+                drain();
+            }
+        } );
+        drainTimer.setRepeats( false );
+        
+        startDrainTimer = new Runnable() {
+            @Override
+            public void run() {
+                drainTimer.restart();
+            }
+        };
     }
     
     /**
@@ -50,6 +93,15 @@ public class MessageConsole {
         return textComponent;
     }
 
+    /*
+     *  Remove all the text from the console. Messages which were queued
+     *  before the console was cleared are discarded.
+     */
+    public void clear() {
+        pending.add( CLEAR );
+        schedule();
+    }
+    
     /*
      *  Redirect the output from the standard output to the console
      *  using the default text color and null PrintStream
@@ -100,6 +152,180 @@ public class MessageConsole {
         
         limitLinesListener = new LimitLinesDocumentListener( lines, isAppend );
         document.addDocumentListener( limitLinesListener );
+        maximumLines = lines;
+    }
+    
+    /*
+     *  Make sure a drain of the queued messages is scheduled. Only one drain
+     *  is ever pending, so the Document is updated at most once per frame
+     *  no matter how fast the messages arrive. The Timer is only ever
+     *  started on the Event Dispatch Thread, so it can't be restarted while
+     *  it's still delivering the previous drain.
+     */
+    private void schedule() {
+        if ( scheduled.compareAndSet( false, true ) ) {
+            SwingUtilities.invokeLater( startDrainTimer );
+        }
+    }
+    
+    /*
+     *  Queue a message for the next drain. Unless it's printed on the Event
+     *  Dispatch Thread, which does the draining, this waits while too much
+     *  text is already queued, for up to a second.
+     */
+    private void enqueue( Message message ) {
+        if ( !SwingUtilities.isEventDispatchThread() ) {
+            long deadline = System.currentTimeMillis() + QUEUE_WAIT;
+            
+            synchronized ( queuedChars ) {
+                try {
+                    long wait;
+                    while ( ( queuedChars.get() > QUEUE_CHARS ) && ( ( wait = deadline - System.currentTimeMillis() ) > 0 ) ) {
+                        queuedChars.wait( wait );
+                    }
+                }
+                catch ( InterruptedException ie ) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        
+        queuedChars.addAndGet( message.text.length() );
+        pending.add( message );
+        schedule();
+    }
+    
+    /*
+     *  Add the queued messages to the Document, up to a frame's worth of
+     *  text, the rest is left for the next frame. Consecutive messages with
+     *  the same attributes are added with a single insert, and the caret is
+     *  only moved once for the whole batch. When appending, lines which the
+     *  line limit would remove straight away are never inserted at all.
+     */
+    private void drain() {
+        scheduled.set( false );
+        
+        List< Message > runs = new ArrayList<>();
+        StringBuilder run = new StringBuilder();
+        AttributeSet runAttributes = null;
+        int runsLength = 0;
+        int drained = 0;
+        boolean inserted = false;
+        
+        Message message;
+        while ( ( drained < FRAME_CHARS ) && ( ( message = pending.poll() ) != null ) ) {
+            if ( message == CLEAR ) {
+                runs.clear();
+                run.setLength( 0 );
+                runsLength = 0;
+                
+                try {
+                    document.remove( 0, document.getLength() );
+                }
+                catch ( BadLocationException ble ) {}
+                
+                continue;
+            }
+            
+            drained += message.text.length();
+            
+            if ( !isAppend ) {
+                insert( 0, message.text, message.source.attributes );
+                inserted = true;
+                continue;
+            }
+            
+            //  Only text with the same attributes can share an insert
+            
+            if ( ( run.length() > 0 ) && ( runAttributes != message.source.attributes ) ) {
+                runs.add( new Message( null, run.toString(), runAttributes ) );
+                runsLength += run.length();
+                run.setLength( 0 );
+            }
+            
+            message.source.appendTo( run, message.text, document.getLength() + runsLength + run.length() );
+            runAttributes = message.source.attributes;
+        }
+        
+        if ( run.length() > 0 ) {
+            runs.add( new Message( null, run.toString(), runAttributes ) );
+        }
+        
+        if ( trimToLimit( runs ) ) {
+            try {
+                document.remove( 0, document.getLength() );
+            }
+            catch ( BadLocationException ble ) {}
+        }
+        
+        for ( Message r : runs ) {
+            insert( document.getLength(), r.text, r.attributes );
+            inserted = true;
+        }
+        
+        if ( inserted ) {
+            textComponent.setCaretPosition( isAppend ? document.getLength() : 0 );
+        }
+        
+        synchronized ( queuedChars ) {
+            queuedChars.addAndGet( -drained );
+            queuedChars.notifyAll();
+        }
+        
+        if ( !pending.isEmpty() ) schedule();
+    }
+    
+    /*
+     *  If the batch alone has more lines than the limit, drop the lines from
+     *  its start which wouldn't survive. Returns true if anything was dropped,
+     *  in which case none of the existing text survives either.
+     */
+    private boolean trimToLimit( List< Message > runs ) {
+        int lines = 1;
+        
+        for ( int i = runs.size() - 1; i >= 0; i-- ) {
+            String text = runs.get( i ).text;
+            
+            for ( int j = text.length() - 1; j >= 0; j-- ) {
+                if ( ( text.charAt( j ) == '\n' ) && ( ++lines > maximumLines ) ) {
+                    runs.set( i, new Message( null, text.substring( j + 1 ), runs.get( i ).attributes ) );
+                    runs.subList( 0, i ).clear();
+                    return true;
+                }
+            }
+        }
+        
+        return false;
+    }
+    
+    /*
+     *  Insert the text into the Document
+     */
+    private void insert( int offset, String text, AttributeSet attributes ) {
+        try {
+            document.insertString( offset, text, attributes );
+        }
+        catch ( BadLocationException ble ) {}
+    }
+    
+    /*
+     *  Text waiting to be added to the Document, along with the stream
+     *  which printed it, or the attributes it will be added with.
+     */
+    static class Message {
+        private final ConsoleOutputStream source;
+        private final String              text;
+        private final AttributeSet        attributes;
+        
+        public Message( ConsoleOutputStream source, String text ) {
+            this( source, text, null );
+        }
+        
+        public Message( ConsoleOutputStream source, String text, AttributeSet attributes ) {
+            this.source = source;
+            this.text = text;
+            this.attributes = attributes;
+        }
     }
     
     /*
@@ -113,6 +339,7 @@ public class MessageConsole {
         private SimpleAttributeSet attributes;
         private PrintStream        printStream;
         private StringBuffer       buffer = new StringBuffer( 80 );
+        private String             pendingEOL = "";
         private boolean            isFirstLine;
         
         /*
@@ -130,98 +357,73 @@ public class MessageConsole {
         }
         
         /*
-         *  Override this method to intercept the output text. Each line of text
-         *  output will actually involve invoking this method twice:
-         *
-         *  a) for the actual text message
-         *  b) for the newLine string
-         *
-         *  The message will be treated differently depending on whether the line
-         *  will be appended or inserted into the Document
+         *  Override this method to intercept the output text. The text is
+         *  queued for the Event Dispatch Thread, which adds it to the Document
+         *  with the next batch, and is sent to the optional PrintStream right
+         *  away.
          */
         @Override
-        public void flush() {
+        public synchronized void flush() {
             String message = toString();
             
             if ( message.length() == 0 ) return;
             
-            if ( isAppend ) handleAppend( message );
-            else handleInsert( message );
-            
             reset();
-        }
-        
-        /*
-         *  We don't want to have blank lines in the Document. The first line
-         *  added will simply be the message. For additional lines it will be:
-         *
-         *  newLine + message
-         */
-        private void handleAppend( String message ) {
-            //  This check is needed in case the text in the Document has been
-            //  cleared. The buffer may contain the EOL string from the previous
-            //  message.
             
-            if ( document.getLength() == 0 ) buffer.setLength( 0 );
+            //  We don't want to merge the new message with the existing message
+            //  so the line will be inserted as:
+            //
+            //  message + newLine
             
-            if ( EOL.equals( message ) ) {
+            if ( !isAppend ) {
                 buffer.append( message );
-            }
-            else {
-                buffer.append( message );
-                clearBuffer();
+                if ( !message.endsWith( EOL ) ) return;
+                
+                message = buffer.toString();
+                buffer.setLength( 0 );
             }
             
-        }
-        
-        /*
-         *  We don't want to merge the new message with the existing message
-         *  so the line will be inserted as:
-         *
-         *  message + newLine
-         */
-        private void handleInsert( String message ) {
-            buffer.append( message );
+            enqueue( new Message( this, message ) );
             
-            if ( EOL.equals( message ) ) {
-                clearBuffer();
+            if ( printStream != null ) {
+                printStream.print( message );
             }
         }
         
         /*
-         *  The message and the newLine have been added to the buffer in the
-         *  appropriate order so we can now update the Document and send the
-         *  text to the optional PrintStream.
+         *  We don't want to have blank lines in the Document, so a newLine at
+         *  the end of a message is held back until the next message from this
+         *  stream:
+         *
+         *  newLine + message
+         *
+         *  Called on the Event Dispatch Thread, with the length the Document
+         *  will have when the text is added.
          */
-        private void clearBuffer() {
+        private void appendTo( StringBuilder run, String message, int length ) {
+            //  This check is needed in case the text in the Document has been
+            //  cleared. The pending EOL may be from the previous message.
+            
+            if ( length == 0 ) pendingEOL = "";
+            
             //  In case both the standard out and standard err are being redirected
             //  we need to insert a newline character for the first line only
             
-            if ( isFirstLine && ( document.getLength() != 0 ) ) {
-                buffer.insert( 0, "\n" );
+            if ( isFirstLine && ( length != 0 ) ) {
+                run.append( "\n" );
             }
-            
             isFirstLine = false;
-            String line = buffer.toString();
             
-            try {
-                if ( isAppend ) {
-                    int offset = document.getLength();
-                    document.insertString( offset, line, attributes );
-                    textComponent.setCaretPosition( document.getLength() );
-                }
-                else {
-                    document.insertString( 0, line, attributes );
-                    textComponent.setCaretPosition( 0 );
-                }
-            }
-            catch ( BadLocationException ble ) {}
+            run.append( pendingEOL );
             
-            if ( printStream != null ) {
-                printStream.print( line );
+            if ( message.endsWith( EOL ) ) {
+                run.append( message, 0, message.length() - EOL.length() );
+                pendingEOL = EOL;
+            }
+            else {
+                run.append( message );
+                pendingEOL = "";
             }
-            
-            buffer.setLength( 0 );
         }
     }
 }